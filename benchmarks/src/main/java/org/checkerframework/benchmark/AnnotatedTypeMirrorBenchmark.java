@@ -0,0 +1,77 @@
+package org.checkerframework.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutableType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks {@link AnnotatedTypeMirror#deepCopy()} on the declared types of the fixture. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotatedTypeMirrorBenchmark {
+
+    /** {@code String}, a type with no components. */
+    private AnnotatedTypeMirror leaf;
+
+    /** {@code List<? extends Map<String, ? extends List<@Nullable Integer>>>}. */
+    private AnnotatedTypeMirror nested;
+
+    /** The type of the generic method {@code Fixture.lookup}. */
+    private AnnotatedExecutableType lookup;
+
+    /**
+     * Obtains the types from the fixture.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        leaf = fixture.atypeFactory.getAnnotatedType(fixture.field("nonNullString"));
+        nested = fixture.atypeFactory.getAnnotatedType(fixture.field("nested"));
+        lookup = fixture.atypeFactory.getAnnotatedType(fixture.methodElement("lookup"));
+    }
+
+    /**
+     * Copies a type with no components.
+     *
+     * @return the copy
+     */
+    @Benchmark
+    public AnnotatedTypeMirror deepCopyLeaf() {
+        return leaf.deepCopy();
+    }
+
+    /**
+     * Copies a type with nested type arguments and wildcards.
+     *
+     * @return the copy
+     */
+    @Benchmark
+    public AnnotatedTypeMirror deepCopyNested() {
+        return nested.deepCopy();
+    }
+
+    /**
+     * Copies the type of a generic method, whose type variables refer to each other.
+     *
+     * @return the copy
+     */
+    @Benchmark
+    public AnnotatedTypeMirror deepCopyExecutable() {
+        return lookup.deepCopy();
+    }
+}
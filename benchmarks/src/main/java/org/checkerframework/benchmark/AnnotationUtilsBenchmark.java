@@ -0,0 +1,129 @@
+package org.checkerframework.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.checker.nullness.qual.EnsuresNonNullIf;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)} on annotations
+ * written in the fixture and annotations created by {@link AnnotationBuilder}, as a checker
+ * compares them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationUtilsBenchmark {
+
+    /** {@code @NonNull}. */
+    private AnnotationMirror nonNull;
+
+    /** Another instance of {@code @NonNull}. */
+    private AnnotationMirror otherNonNull;
+
+    /** {@code @Nullable}. */
+    private AnnotationMirror nullable;
+
+    /** The {@code @EnsuresNonNullIf} annotation written on {@code Fixture.ready}. */
+    private AnnotationMirror writtenEnsures;
+
+    /** An {@code @EnsuresNonNullIf} annotation with the elements of {@link #writtenEnsures}. */
+    private AnnotationMirror builtEnsures;
+
+    /** An {@code @EnsuresNonNullIf} annotation that differs from {@link #writtenEnsures}. */
+    private AnnotationMirror differentEnsures;
+
+    /**
+     * Creates the annotations.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        nonNull =
+                AnnotationBuilder.fromClass(fixture.processingEnv.getElementUtils(), NonNull.class);
+        otherNonNull = new AnnotationBuilder(fixture.processingEnv, NonNull.class).build();
+        nullable =
+                AnnotationBuilder.fromClass(
+                        fixture.processingEnv.getElementUtils(), Nullable.class);
+        writtenEnsures =
+                fixture.atypeFactory.getDeclAnnotation(
+                        fixture.methodElement("ready"), EnsuresNonNullIf.class);
+        builtEnsures = ensuresNonNullIf(fixture, "f1", "f2", "f3");
+        differentEnsures = ensuresNonNullIf(fixture, "f1", "f2", "f4");
+    }
+
+    /**
+     * Creates an {@code @EnsuresNonNullIf(result = true)} annotation.
+     *
+     * @param fixture the type-checked fixture
+     * @param expressions the value of the {@code expression} element
+     * @return the annotation
+     */
+    private static AnnotationMirror ensuresNonNullIf(
+            CheckedFixture fixture, String... expressions) {
+        AnnotationBuilder builder =
+                new AnnotationBuilder(fixture.processingEnv, EnsuresNonNullIf.class);
+        builder.setValue("expression", Arrays.asList(expressions));
+        builder.setValue("result", true);
+        return builder.build();
+    }
+
+    /**
+     * Compares two instances of an annotation without elements.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean areSameNoElements() {
+        return AnnotationUtils.areSame(nonNull, otherNonNull);
+    }
+
+    /**
+     * Compares two different annotations without elements.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean areSameDifferentNames() {
+        return AnnotationUtils.areSame(nonNull, nullable);
+    }
+
+    /**
+     * Compares an annotation in source code with an equal annotation created by a checker.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean areSameElements() {
+        return AnnotationUtils.areSame(writtenEnsures, builtEnsures);
+    }
+
+    /**
+     * Compares two annotations that differ only in the last value of an array element.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean areSameDifferentElements() {
+        return AnnotationUtils.areSame(builtEnsures, differentEnsures);
+    }
+}
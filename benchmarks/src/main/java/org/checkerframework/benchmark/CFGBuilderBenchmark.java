@@ -0,0 +1,79 @@
+package org.checkerframework.benchmark;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.processing.ProcessingEnvironment;
+import org.checkerframework.dataflow.cfg.CFGBuilder;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks {@link CFGBuilder#build} on methods of the fixture. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CFGBuilderBenchmark {
+
+    /** The compilation unit of the fixture. */
+    private CompilationUnitTree root;
+
+    /** The class declared by the fixture. */
+    private ClassTree classTree;
+
+    /** The method {@code Fixture.merge}, which has nested conditionals. */
+    private MethodTree merge;
+
+    /** The method {@code Fixture.controlFlow}, which has loops, a switch, and try statements. */
+    private MethodTree controlFlow;
+
+    /** The processing environment of the compilation. */
+    private ProcessingEnvironment processingEnv;
+
+    /**
+     * Obtains the trees from the fixture.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        root = fixture.root;
+        classTree = fixture.classTree;
+        merge = fixture.method("merge");
+        controlFlow = fixture.method("controlFlow");
+        processingEnv = fixture.processingEnv;
+    }
+
+    /**
+     * Builds the control flow graph of a method with nested conditionals.
+     *
+     * @return the control flow graph
+     */
+    @Benchmark
+    public ControlFlowGraph buildMerge() {
+        return CFGBuilder.build(root, merge, classTree, processingEnv);
+    }
+
+    /**
+     * Builds the control flow graph of a method with loops, a switch, and try statements.
+     *
+     * @return the control flow graph
+     */
+    @Benchmark
+    public ControlFlowGraph buildControlFlow() {
+        return CFGBuilder.build(root, controlFlow, classTree, processingEnv);
+    }
+}
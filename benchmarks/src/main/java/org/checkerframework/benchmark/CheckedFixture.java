@@ -0,0 +1,207 @@
+package org.checkerframework.benchmark;
+
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.JavacTool;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import org.checkerframework.checker.nullness.NullnessAnnotatedTypeFactory;
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.TreeUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The result of type-checking {@code fixtures/Fixture.java} with the Nullness Checker. The
+ * benchmarks obtain their inputs (annotated types, stores, trees, and the type factory) from it.
+ *
+ * <p>The fixture is compiled once per trial, in memory. The compilation is analyzed but not
+ * closed, so the type factory, the trees, and the dataflow results of the fixture remain usable.
+ */
+@State(Scope.Benchmark)
+public class CheckedFixture {
+
+    /** The resource that contains the source code of the fixture. */
+    private static final String FIXTURE_RESOURCE = "/fixtures/Fixture.java";
+
+    /** The type factory of the Nullness Checker. */
+    public NullnessAnnotatedTypeFactory atypeFactory;
+
+    /** The processing environment of the compilation. */
+    public ProcessingEnvironment processingEnv;
+
+    /** The compilation unit of the fixture. */
+    public CompilationUnitTree root;
+
+    /** The class declared by the fixture. */
+    public ClassTree classTree;
+
+    /** The element of {@link #classTree}. */
+    public TypeElement classElement;
+
+    /**
+     * Type-checks the fixture.
+     *
+     * @throws IOException if the fixture cannot be read
+     */
+    @Setup(Level.Trial)
+    public void check() throws IOException {
+        String source = readResource(FIXTURE_RESOURCE);
+        JavaFileObject file =
+                new SimpleJavaFileObject(
+                        URI.create("string:///fixtures/Fixture.java"), JavaFileObject.Kind.SOURCE) {
+                    @Override
+                    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                        return source;
+                    }
+                };
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+        JavacTask task =
+                JavacTool.create()
+                        .getTask(
+                                null,
+                                null,
+                                diagnostics,
+                                options,
+                                null,
+                                Collections.singletonList(file));
+        NullnessChecker checker = new NullnessChecker();
+        task.setProcessors(Collections.singletonList(checker));
+        List<CompilationUnitTree> roots = new ArrayList<>();
+        task.parse().forEach(roots::add);
+        task.analyze();
+
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.NOTE) {
+                throw new BugInCF("The benchmark fixture does not type-check: %s", diagnostic);
+            }
+        }
+
+        atypeFactory = (NullnessAnnotatedTypeFactory) checker.getTypeFactory();
+        processingEnv = checker.getProcessingEnvironment();
+        root = roots.get(0);
+        classTree = (ClassTree) root.getTypeDecls().get(0);
+        classElement = TreeUtils.elementFromDeclaration(classTree);
+    }
+
+    /**
+     * Returns the declaration of the method of the fixture with the given name.
+     *
+     * @param name the name of a method of the fixture
+     * @return the declaration of the method
+     */
+    public MethodTree method(String name) {
+        for (Tree member : classTree.getMembers()) {
+            if (member.getKind() == Tree.Kind.METHOD
+                    && ((MethodTree) member).getName().contentEquals(name)) {
+                return (MethodTree) member;
+            }
+        }
+        throw new BugInCF("No method %s in the benchmark fixture", name);
+    }
+
+    /**
+     * Returns the element of the method of the fixture with the given name.
+     *
+     * @param name the name of a method of the fixture
+     * @return the element of the method
+     */
+    public ExecutableElement methodElement(String name) {
+        return TreeUtils.elementFromDeclaration(method(name));
+    }
+
+    /**
+     * Returns the element of the field of the fixture with the given name.
+     *
+     * @param name the name of a field of the fixture
+     * @return the element of the field
+     */
+    public VariableElement field(String name) {
+        for (VariableElement field : ElementFilter.fieldsIn(classElement.getEnclosedElements())) {
+            if (field.getSimpleName().contentEquals(name)) {
+                return field;
+            }
+        }
+        throw new BugInCF("No field %s in the benchmark fixture", name);
+    }
+
+    /**
+     * Returns the first assignment to the given local variable in the given method.
+     *
+     * @param method the declaration of a method of the fixture
+     * @param variable the name of a local variable of the method
+     * @return the first assignment to {@code variable}
+     */
+    public AssignmentTree assignmentTo(MethodTree method, String variable) {
+        AssignmentTree result =
+                new TreeScanner<AssignmentTree, Void>() {
+                    @Override
+                    public AssignmentTree visitAssignment(AssignmentTree tree, Void p) {
+                        if (tree.getVariable().getKind() == Tree.Kind.IDENTIFIER
+                                && ((IdentifierTree) tree.getVariable())
+                                        .getName()
+                                        .contentEquals(variable)) {
+                            return tree;
+                        }
+                        return super.visitAssignment(tree, p);
+                    }
+
+                    @Override
+                    public AssignmentTree reduce(AssignmentTree r1, AssignmentTree r2) {
+                        return r1 != null ? r1 : r2;
+                    }
+                }.scan(method, null);
+        if (result == null) {
+            throw new BugInCF("No assignment to %s in method %s", variable, method.getName());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contents of a resource of this module.
+     *
+     * @param name the name of the resource
+     * @return the contents of the resource, decoded as UTF-8
+     * @throws IOException if the resource cannot be read
+     */
+    static String readResource(String name) throws IOException {
+        try (InputStream in = CheckedFixture.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new BugInCF("Cannot find resource %s", name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package org.checkerframework.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.framework.test.CompilationResult;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.javacutil.UserError;
+
+/**
+ * Measures the throughput of checkers on corpora of real-world code, and outputs the results as
+ * JSON so that they can be compared across versions of the Checker Framework.
+ *
+ * <p>For each checker and corpus, the driver type-checks the whole corpus in this JVM several
+ * times, using {@link TypecheckExecutor}, after some unmeasured warm-up runs. It reports the wall
+ * time, the number of files type-checked per second, the peak heap usage, the number of
+ * diagnostics, and the time spent in each phase of type-checking as recorded by {@code
+ * -AperfStats}.
+ *
+ * <p>Usage:
+ *
+ * <pre>{@code
+ * CheckerThroughput [-checkers CHECKER,...] [-warmup N] [-iterations N] [-label LABEL]
+ *                   [-output FILE] -corpus NAME=DIR [-corpusClasspath NAME=CLASSPATH] ...
+ * }</pre>
+ *
+ * A checker is either a short name such as {@code nullness} (see {@link #CHECKERS}) or the
+ * fully-qualified name of a checker class. The Java files of a corpus are all the files under its
+ * directory; the corpus must compile without errors against its classpath. The {@code benchmarks}
+ * project's {@code checkerThroughput} Gradle task downloads pinned corpora and runs this driver on
+ * them.
+ */
+public class CheckerThroughput {
+
+    /** The checkers that are run by default, by short name. */
+    static final Map<String, String> CHECKERS = new LinkedHashMap<>();
+
+    static {
+        CHECKERS.put("nullness", "org.checkerframework.checker.nullness.NullnessChecker");
+        CHECKERS.put("index", "org.checkerframework.checker.index.IndexChecker");
+        CHECKERS.put("lock", "org.checkerframework.checker.lock.LockChecker");
+        CHECKERS.put("interning", "org.checkerframework.checker.interning.InterningChecker");
+        CHECKERS.put("regex", "org.checkerframework.checker.regex.RegexChecker");
+        CHECKERS.put("value", "org.checkerframework.common.value.ValueChecker");
+    }
+
+    /** Matches a phase in the output of {@code -AperfStats}. */
+    private static final Pattern PHASE =
+            Pattern.compile("\"(\\w+)\": \\{\"count\": (\\d+), \"nanos\": (\\d+)\\}");
+
+    /** The checkers to run, as fully-qualified class names. */
+    private final List<String> checkers = new ArrayList<>();
+
+    /** Maps the name of each corpus to its source directory. */
+    private final Map<String, File> corpora = new LinkedHashMap<>();
+
+    /** Maps the name of a corpus to the classpath needed to compile it. */
+    private final Map<String, String> corpusClasspaths = new LinkedHashMap<>();
+
+    /** The number of unmeasured runs of each checker on each corpus. */
+    private int warmup = 1;
+
+    /** The number of measured runs of each checker on each corpus. */
+    private int iterations = 3;
+
+    /** A label for the results, such as the version of the Checker Framework. */
+    private String label = "";
+
+    /** The file to which to write the results, or null to write them to standard output. */
+    private File output = null;
+
+    /** The measurements of one checker on one corpus. */
+    private static class Result {
+        /** The fully-qualified name of the checker. */
+        final String checker;
+        /** The name of the corpus. */
+        final String corpus;
+        /** The number of Java files in the corpus. */
+        final int files;
+        /** The wall time of each measured run, in nanoseconds. */
+        final List<Long> wallNanos = new ArrayList<>();
+        /** The largest peak heap usage of any measured run, in bytes. */
+        long peakHeapBytes = 0;
+        /** The number of errors issued by the last run. */
+        int errors = 0;
+        /** The number of warnings issued by the last run. */
+        int warnings = 0;
+        /** The total time spent in each phase during the measured runs, in nanoseconds. */
+        final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+        /**
+         * Creates a Result.
+         *
+         * @param checker the fully-qualified name of the checker
+         * @param corpus the name of the corpus
+         * @param files the number of Java files in the corpus
+         */
+        Result(String checker, String corpus, int files) {
+            this.checker = checker;
+            this.corpus = corpus;
+            this.files = files;
+        }
+
+        /**
+         * Returns the mean wall time of the measured runs.
+         *
+         * @return the mean wall time of the measured runs, in seconds
+         */
+        double meanWallSeconds() {
+            return wallNanos.stream().mapToLong(Long::longValue).average().orElse(0) / 1e9;
+        }
+
+        /**
+         * Returns the shortest wall time of the measured runs.
+         *
+         * @return the shortest wall time of the measured runs, in seconds
+         */
+        double minWallSeconds() {
+            return wallNanos.stream().mapToLong(Long::longValue).min().orElse(0) / 1e9;
+        }
+    }
+
+    /**
+     * Runs the driver.
+     *
+     * @param args the command-line arguments; see the class documentation
+     * @throws IOException if a corpus cannot be read or the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        CheckerThroughput driver = new CheckerThroughput();
+        driver.parseArguments(args);
+        driver.run();
+    }
+
+    /**
+     * Sets the fields of this from the command-line arguments.
+     *
+     * @param args the command-line arguments
+     */
+    private void parseArguments(String[] args) {
+        List<String> checkerNames = new ArrayList<>(CHECKERS.keySet());
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 == args.length) {
+                throw new UserError("Missing value for %s", arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-checkers":
+                    checkerNames = Arrays.asList(value.split(","));
+                    break;
+                case "-corpus":
+                    corpora.put(key(value), new File(value(value)));
+                    break;
+                case "-corpusClasspath":
+                    corpusClasspaths.put(key(value), value(value));
+                    break;
+                case "-warmup":
+                    warmup = Integer.parseInt(value);
+                    break;
+                case "-iterations":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "-label":
+                    label = value;
+                    break;
+                case "-output":
+                    output = new File(value);
+                    break;
+                default:
+                    throw new UserError("Unknown argument %s", arg);
+            }
+        }
+        for (String checkerName : checkerNames) {
+            checkers.add(CHECKERS.getOrDefault(checkerName.trim(), checkerName.trim()));
+        }
+        if (corpora.isEmpty()) {
+            throw new UserError("No corpus given; use -corpus NAME=DIR");
+        }
+        if (iterations < 1) {
+            throw new UserError("-iterations must be positive");
+        }
+    }
+
+    /**
+     * Returns the part of a {@code NAME=VALUE} argument before the equals sign.
+     *
+     * @param arg an argument of the form {@code NAME=VALUE}
+     * @return the name
+     */
+    private static String key(String arg) {
+        int equals = arg.indexOf('=');
+        if (equals < 1) {
+            throw new UserError("Expected NAME=VALUE, found %s", arg);
+        }
+        return arg.substring(0, equals);
+    }
+
+    /**
+     * Returns the part of a {@code NAME=VALUE} argument after the equals sign.
+     *
+     * @param arg an argument of the form {@code NAME=VALUE}
+     * @return the value
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    /**
+     * Runs every checker on every corpus, and outputs the results.
+     *
+     * @throws IOException if a corpus cannot be read or the results cannot be written
+     */
+    private void run() throws IOException {
+        Path workDir = Files.createTempDirectory("checker-throughput");
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, File> corpus : corpora.entrySet()) {
+            List<File> files = javaFiles(corpus.getValue());
+            String classpath = classpath(corpus.getKey());
+            compileWithoutCheckers(corpus.getKey(), files, classpath);
+            for (String checker : checkers) {
+                Result result = new Result(checker, corpus.getKey(), files.size());
+                for (int i = 0; i < warmup + iterations; i++) {
+                    check(checker, files, classpath, workDir, i < warmup ? null : result);
+                }
+                System.out.printf(
+                        "%-60s %-12s %6d files %8.2f s %8.1f files/s %6d MiB%n",
+                        checker,
+                        result.corpus,
+                        result.files,
+                        result.meanWallSeconds(),
+                        result.files / result.meanWallSeconds(),
+                        result.peakHeapBytes >> 20);
+                results.add(result);
+            }
+        }
+        String json = toJson(results);
+        if (output == null) {
+            System.out.print(json);
+        } else {
+            Files.write(output.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the classpath needed to compile the given corpus: its own classpath, followed by the
+     * classpath of this JVM, which contains the Checker Framework's annotations.
+     *
+     * @param corpus the name of a corpus
+     * @return the classpath needed to compile {@code corpus}
+     */
+    private String classpath(String corpus) {
+        String classpath = System.getProperty("java.class.path");
+        String corpusClasspath = corpusClasspaths.get(corpus);
+        if (corpusClasspath == null || corpusClasspath.isEmpty()) {
+            return classpath;
+        }
+        return corpusClasspath + File.pathSeparator + classpath;
+    }
+
+    /**
+     * Returns the Java files under the given directory, in a deterministic order.
+     *
+     * @param dir a directory
+     * @return the Java files under {@code dir}
+     * @throws IOException if {@code dir} cannot be read
+     */
+    private static List<File> javaFiles(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            List<File> result =
+                    paths.filter(path -> path.toString().endsWith(".java"))
+                            .filter(path -> !path.endsWith("module-info.java"))
+                            .filter(path -> !path.endsWith("package-info.java"))
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList());
+            if (result.isEmpty()) {
+                throw new UserError("No Java files in %s", dir);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Compiles the corpus without any checkers, to ensure that the checkers type-check all of it:
+     * a checker skips compilation units that contain Java errors.
+     *
+     * @param corpus the name of the corpus
+     * @param files the Java files of the corpus
+     * @param classpath the classpath needed to compile the corpus
+     * @throws IOException if the file manager cannot be closed
+     */
+    private static void compileWithoutCheckers(String corpus, List<File> files, String classpath)
+            throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options =
+                    Arrays.asList("-proc:none", "-classpath", classpath, "-Xlint:none", "-nowarn");
+            boolean success =
+                    compiler.getTask(
+                                    null,
+                                    fileManager,
+                                    diagnostics,
+                                    options,
+                                    null,
+                                    fileManager.getJavaFileObjectsFromFiles(files))
+                            .call();
+            if (!success) {
+                throw new UserError(
+                        "Corpus %s does not compile:%n%s",
+                        corpus,
+                        diagnostics.getDiagnostics().stream()
+                                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                                .limit(10)
+                                .map(Object::toString)
+                                .collect(Collectors.joining(System.lineSeparator())));
+            }
+        }
+    }
+
+    /**
+     * Type-checks a corpus once.
+     *
+     * @param checker the fully-qualified name of the checker
+     * @param files the Java files of the corpus
+     * @param classpath the classpath needed to compile the corpus
+     * @param workDir a directory for temporary files
+     * @param result where to record the measurements, or null if this is a warm-up run
+     * @throws IOException if the performance statistics cannot be read
+     */
+    private static void check(
+            String checker, List<File> files, String classpath, Path workDir, Result result)
+            throws IOException {
+        Path perfStats = workDir.resolve("perfStats.json");
+        Files.deleteIfExists(perfStats);
+        TestConfiguration config =
+                TestConfigurationBuilder.getDefaultConfigurationBuilder(
+                                "",
+                                workDir.resolve("classes").toFile(),
+                                classpath,
+                                files,
+                                Collections.singletonList(checker),
+                                Arrays.asList("-proc:only", "-AperfStats=" + perfStats),
+                                false)
+                        .validateThenBuild(true);
+
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long start = System.nanoTime();
+        CompilationResult compilation = new TypecheckExecutor().compile(config);
+        long wallNanos = System.nanoTime() - start;
+        if (result == null) {
+            return;
+        }
+
+        result.wallNanos.add(wallNanos);
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        result.peakHeapBytes = Math.max(result.peakHeapBytes, peakHeap);
+        result.errors = 0;
+        result.warnings = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : compilation.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                result.errors++;
+            } else if (diagnostic.getKind() == Diagnostic.Kind.WARNING
+                    || diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING) {
+                result.warnings++;
+            }
+        }
+        if (Files.exists(perfStats)) {
+            String json = new String(Files.readAllBytes(perfStats), StandardCharsets.UTF_8);
+            Matcher matcher = PHASE.matcher(json);
+            while (matcher.find()) {
+                result.phaseNanos.merge(
+                        matcher.group(1), Long.parseLong(matcher.group(3)), Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Returns the results as a JSON object.
+     *
+     * @param results the results of every checker on every corpus
+     * @return the results as a JSON object
+     */
+    private String toJson(List<Result> results) {
+        StringJoiner resultsJson = new StringJoiner(",\n", "[\n", "\n  ]");
+        for (Result result : results) {
+            StringJoiner phases = new StringJoiner(", ", "{", "}");
+            for (Map.Entry<String, Long> phase : result.phaseNanos.entrySet()) {
+                phases.add(
+                        String.format(
+                                Locale.ROOT,
+                                "\"%s\": %.1f",
+                                phase.getKey(),
+                                phase.getValue() / 1e6 / iterations));
+            }
+            resultsJson.add(
+                    String.format(
+                            Locale.ROOT,
+                            "    {\"checker\": \"%s\", \"corpus\": \"%s\", \"files\": %d,"
+                                    + " \"iterations\": %d, \"meanWallSeconds\": %.3f,"
+                                    + " \"minWallSeconds\": %.3f, \"filesPerSecond\": %.2f,"
+                                    + " \"peakHeapBytes\": %d, \"errors\": %d, \"warnings\": %d,"
+                                    + " \"meanPhaseMillis\": %s}",
+                            result.checker,
+                            result.corpus,
+                            result.files,
+                            iterations,
+                            result.meanWallSeconds(),
+                            result.minWallSeconds(),
+                            result.files / result.meanWallSeconds(),
+                            result.peakHeapBytes,
+                            result.errors,
+                            result.warnings,
+                            phases));
+        }
+        return String.format(
+                Locale.ROOT,
+                "{\n  \"label\": \"%s\",\n  \"timestamp\": \"%s\",\n  \"javaVersion\": \"%s\",\n"
+                        + "  \"warmup\": %d,\n  \"results\": %s\n}\n",
+                label,
+                Instant.now(),
+                System.getProperty("java.version"),
+                warmup,
+                resultsJson);
+    }
+}
@@ -0,0 +1,118 @@
+package org.checkerframework.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.util.Elements;
+import org.checkerframework.checker.initialization.qual.Initialized;
+import org.checkerframework.checker.nullness.NullnessAnnotatedTypeFactory;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.framework.type.QualifierHierarchy;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link QualifierHierarchy#leastUpperBound(AnnotationMirror, AnnotationMirror)} on the
+ * qualifiers of the Nullness Checker, which include the qualifiers of the Initialization Checker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QualifierHierarchyBenchmark {
+
+    /** The qualifier hierarchy of the Nullness Checker. */
+    private QualifierHierarchy qualifierHierarchy;
+
+    /** {@code @NonNull}. */
+    private AnnotationMirror nonNull;
+
+    /** {@code @Nullable}. */
+    private AnnotationMirror nullable;
+
+    /** {@code @MonotonicNonNull}. */
+    private AnnotationMirror monotonicNonNull;
+
+    /** {@code @Initialized}. */
+    private AnnotationMirror initialized;
+
+    /** {@code @UnderInitialization(Fixture.class)}, a qualifier with an element. */
+    private AnnotationMirror underInitializationFixture;
+
+    /** {@code @UnderInitialization(Object.class)}, a qualifier with an element. */
+    private AnnotationMirror underInitializationObject;
+
+    /**
+     * Creates the qualifiers.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        NullnessAnnotatedTypeFactory atypeFactory = fixture.atypeFactory;
+        Elements elements = fixture.processingEnv.getElementUtils();
+        qualifierHierarchy = atypeFactory.getQualifierHierarchy();
+        nonNull = AnnotationBuilder.fromClass(elements, NonNull.class);
+        nullable = AnnotationBuilder.fromClass(elements, Nullable.class);
+        monotonicNonNull = AnnotationBuilder.fromClass(elements, MonotonicNonNull.class);
+        initialized = AnnotationBuilder.fromClass(elements, Initialized.class);
+        underInitializationFixture =
+                atypeFactory.createUnderInitializationAnnotation(fixture.classElement.asType());
+        underInitializationObject =
+                atypeFactory.createUnderInitializationAnnotation(Object.class);
+    }
+
+    /**
+     * Computes the least upper bound of a qualifier and its supertype.
+     *
+     * @return the least upper bound
+     */
+    @Benchmark
+    public AnnotationMirror lubNullness() {
+        return qualifierHierarchy.leastUpperBound(nonNull, nullable);
+    }
+
+    /**
+     * Computes the least upper bound of two qualifiers that are neither top nor bottom.
+     *
+     * @return the least upper bound
+     */
+    @Benchmark
+    public AnnotationMirror lubMonotonic() {
+        return qualifierHierarchy.leastUpperBound(monotonicNonNull, nonNull);
+    }
+
+    /**
+     * Computes the least upper bound of two qualifiers whose elements must be compared.
+     *
+     * @return the least upper bound
+     */
+    @Benchmark
+    public AnnotationMirror lubUnderInitialization() {
+        return qualifierHierarchy.leastUpperBound(
+                underInitializationFixture, underInitializationObject);
+    }
+
+    /**
+     * Computes the least upper bound of a qualifier with elements and one without.
+     *
+     * @return the least upper bound
+     */
+    @Benchmark
+    public AnnotationMirror lubInitialized() {
+        return qualifierHierarchy.leastUpperBound(initialized, underInitializationFixture);
+    }
+}
@@ -0,0 +1,72 @@
+package org.checkerframework.benchmark;
+
+import com.sun.source.tree.MethodTree;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.NullnessStore;
+import org.checkerframework.framework.flow.CFAbstractStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link CFAbstractStore#leastUpperBound} on the stores at the ends of the two branches
+ * of the {@code if} statement in {@code Fixture.merge}, as computed by the Nullness Checker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StoreBenchmark {
+
+    /** The store at the end of the then branch. */
+    private NullnessStore thenStore;
+
+    /** The store at the end of the else branch. */
+    private NullnessStore elseStore;
+
+    /** The store at the exit of the method. */
+    private NullnessStore exitStore;
+
+    /**
+     * Obtains the stores from the dataflow results of the fixture.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        MethodTree merge = fixture.method("merge");
+        thenStore = fixture.atypeFactory.getStoreAfter(fixture.assignmentTo(merge, "thenEnd"));
+        elseStore = fixture.atypeFactory.getStoreAfter(fixture.assignmentTo(merge, "elseEnd"));
+        exitStore = fixture.atypeFactory.getRegularExitStore(merge);
+    }
+
+    /**
+     * Merges the stores of two branches, which have refined different variables and fields.
+     *
+     * @return the least upper bound of the stores
+     */
+    @Benchmark
+    public NullnessStore lubBranches() {
+        return thenStore.leastUpperBound(elseStore);
+    }
+
+    /**
+     * Merges a store with itself, as happens when a loop reaches a fixed point.
+     *
+     * @return the least upper bound of the stores
+     */
+    @Benchmark
+    public NullnessStore lubSame() {
+        return exitStore.leastUpperBound(exitStore);
+    }
+}
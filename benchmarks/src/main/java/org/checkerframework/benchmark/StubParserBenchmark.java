@@ -0,0 +1,95 @@
+package org.checkerframework.benchmark;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.StubUnit;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import org.checkerframework.framework.stub.StubParser;
+import org.checkerframework.framework.stub.StubUnitCache;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link StubParser#parse} on a stub file that is distributed with the Nullness
+ * Checker.
+ *
+ * <p>{@link StubParser#parse} obtains the syntax tree of a stub file from {@link StubUnitCache},
+ * so after the first invocation it measures only the conversion of the tree to annotated types.
+ * {@link #parseSyntax} measures the parsing that the cache avoids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StubParserBenchmark {
+
+    /** The stub file, as a resource of the Nullness Checker. */
+    private static final String STUB_FILE =
+            "/org/checkerframework/checker/nullness/collection-object-parameters-may-be-null.astub";
+
+    /** The type-checked fixture. */
+    private CheckedFixture fixture;
+
+    /** The contents of the stub file. */
+    private byte[] stubFile;
+
+    /**
+     * Reads the stub file.
+     *
+     * @param fixture the type-checked fixture
+     * @throws IOException if the stub file cannot be read
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) throws IOException {
+        this.fixture = fixture;
+        this.stubFile = CheckedFixture.readResource(STUB_FILE).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the stub file and creates the annotated types that it declares.
+     *
+     * @return the annotated types that the stub file declares
+     */
+    @Benchmark
+    public Map<Element, AnnotatedTypeMirror> parse() {
+        Map<Element, AnnotatedTypeMirror> atypes = new HashMap<>();
+        Map<String, Set<AnnotationMirror>> declAnnos = new HashMap<>();
+        StubParser.parse(
+                STUB_FILE,
+                new ByteArrayInputStream(stubFile),
+                fixture.atypeFactory,
+                fixture.processingEnv,
+                atypes,
+                declAnnos);
+        return atypes;
+    }
+
+    /**
+     * Parses the stub file into a syntax tree, without the cache.
+     *
+     * @return the syntax tree of the stub file
+     */
+    @Benchmark
+    public StubUnit parseSyntax() {
+        return StaticJavaParser.parseStubUnit(new ByteArrayInputStream(stubFile));
+    }
+}
@@ -0,0 +1,110 @@
+package org.checkerframework.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.DefaultTypeHierarchy;
+import org.checkerframework.framework.type.TypeHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks {@link DefaultTypeHierarchy#isSubtype} on the types of fields of the fixture. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeHierarchyBenchmark {
+
+    /** The type hierarchy of the Nullness Checker. */
+    private TypeHierarchy typeHierarchy;
+
+    /** {@code String}. */
+    private AnnotatedTypeMirror nonNullString;
+
+    /** {@code @Nullable String}. */
+    private AnnotatedTypeMirror nullableString;
+
+    /** {@code Map<String, List<@Nullable Integer>>}. */
+    private AnnotatedTypeMirror map;
+
+    /** {@code HashMap<String, ArrayList<@Nullable Integer>>}. */
+    private AnnotatedTypeMirror hashMap;
+
+    /** {@code Map<String, ? extends List<Integer>>}. */
+    private AnnotatedTypeMirror nonNullValues;
+
+    /** {@code List<? extends Map<String, ? extends List<@Nullable Integer>>>}. */
+    private AnnotatedTypeMirror nested;
+
+    /** {@code ArrayList<Map<String, ArrayList<@Nullable Integer>>>}. */
+    private AnnotatedTypeMirror nestedList;
+
+    /**
+     * Obtains the types from the fixture.
+     *
+     * @param fixture the type-checked fixture
+     */
+    @Setup(Level.Trial)
+    public void setup(CheckedFixture fixture) {
+        typeHierarchy = fixture.atypeFactory.getTypeHierarchy();
+        nonNullString = fixture.atypeFactory.getAnnotatedType(fixture.field("nonNullString"));
+        nullableString = fixture.atypeFactory.getAnnotatedType(fixture.field("nullableString"));
+        map = fixture.atypeFactory.getAnnotatedType(fixture.field("map"));
+        hashMap = fixture.atypeFactory.getAnnotatedType(fixture.field("hashMap"));
+        nonNullValues = fixture.atypeFactory.getAnnotatedType(fixture.field("nonNullValues"));
+        nested = fixture.atypeFactory.getAnnotatedType(fixture.field("nested"));
+        nestedList = fixture.atypeFactory.getAnnotatedType(fixture.field("nestedList"));
+    }
+
+    /**
+     * Compares two declared types that differ only in their primary annotations.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean isSubtypePrimaryAnnotations() {
+        return typeHierarchy.isSubtype(nonNullString, nullableString);
+    }
+
+    /**
+     * Compares a declared type to a supertype with different type arguments, which requires
+     * viewing the subtype as the supertype.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean isSubtypeTypeArguments() {
+        return typeHierarchy.isSubtype(hashMap, map);
+    }
+
+    /**
+     * Compares a declared type to a supertype whose type arguments are nested wildcards.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean isSubtypeWildcards() {
+        return typeHierarchy.isSubtype(nestedList, nested);
+    }
+
+    /**
+     * Compares a Java subtype to a supertype whose type argument has a different annotation, so
+     * that the comparison fails.
+     *
+     * @return the result of the comparison
+     */
+    @Benchmark
+    public boolean isSubtypeFailure() {
+        return typeHierarchy.isSubtype(hashMap, nonNullValues);
+    }
+}
@@ -0,0 +1,170 @@
+package fixtures;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.EnsuresNonNullIf;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The code on which the benchmarks run. It is type-checked by the Nullness Checker, and must not
+ * issue any warnings. The benchmarks find declarations in this class by name, so do not rename
+ * them without updating the benchmarks.
+ */
+public class Fixture {
+
+    @Nullable String nullableString;
+
+    String nonNullString = "";
+
+    @MonotonicNonNull Object lazyObject;
+
+    @Nullable Object f1;
+    @Nullable Object f2;
+    @Nullable Object f3;
+    @Nullable Object f4;
+    @Nullable Object f5;
+    @Nullable Object f6;
+
+    Map<String, List<@Nullable Integer>> map = new HashMap<>();
+
+    HashMap<String, ArrayList<@Nullable Integer>> hashMap = new HashMap<>();
+
+    Map<String, ? extends List<Integer>> nonNullValues = new HashMap<>();
+
+    List<? extends Map<String, ? extends List<@Nullable Integer>>> nested =
+            new ArrayList<Map<String, ArrayList<@Nullable Integer>>>();
+
+    ArrayList<Map<String, ArrayList<@Nullable Integer>>> nestedList = new ArrayList<>();
+
+    @EnsuresNonNullIf(
+            expression = {"f1", "f2", "f3"},
+            result = true)
+    boolean ready() {
+        return f1 != null && f2 != null && f3 != null;
+    }
+
+    <K extends Comparable<K>, V extends @Nullable Object> @Nullable V lookup(
+            Map<K, V> m, K key, @Nullable V defaultValue) {
+        V result = m.get(key);
+        return result != null ? result : defaultValue;
+    }
+
+    /**
+     * Refines many locals and fields differently in two branches, so that the stores at the end of
+     * the branches have many entries, only some of which agree.
+     */
+    int merge(List<@Nullable String> input, boolean flag) {
+        @Nullable String a = null;
+        @Nullable String b = null;
+        @Nullable String c = null;
+        @Nullable String d = input.isEmpty() ? null : input.get(0);
+        Object thenEnd;
+        Object elseEnd;
+        if (flag) {
+            a = "a";
+            b = nonNullString;
+            f1 = a;
+            f2 = b;
+            f3 = input;
+            if (d != null && nullableString != null) {
+                c = d + nullableString;
+            }
+            thenEnd = f1;
+        } else {
+            a = "";
+            c = "c";
+            f1 = c;
+            f4 = a;
+            f5 = map;
+            if (ready()) {
+                f6 = f1.toString() + f2.toString() + f3.toString();
+            }
+            elseEnd = c;
+        }
+        int length = a.length();
+        if (b != null) {
+            length += b.length();
+        }
+        if (c != null) {
+            length += c.length();
+        }
+        return length;
+    }
+
+    /** Has many kinds of statements, so that its control flow graph has many kinds of nodes. */
+    int controlFlow(List<@Nullable String> lines, @Nullable Reader reader, int limit) {
+        int count = 0;
+        int[] histogram = new int[16];
+        outer:
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line == null) {
+                continue;
+            }
+            for (char ch : line.toCharArray()) {
+                switch (Character.getType(ch)) {
+                    case Character.UPPERCASE_LETTER:
+                    case Character.LOWERCASE_LETTER:
+                        count++;
+                        break;
+                    case Character.DECIMAL_DIGIT_NUMBER:
+                        count += ch - '0';
+                        break;
+                    case Character.SPACE_SEPARATOR:
+                        if (count > limit) {
+                            break outer;
+                        }
+                        continue outer;
+                    default:
+                        histogram[ch & 15]++;
+                }
+            }
+            count = count > limit ? limit : count + line.length();
+        }
+        Iterator<String> keys = map.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            List<@Nullable Integer> values = map.get(key);
+            if (values == null || values.isEmpty()) {
+                keys.remove();
+            } else {
+                Integer first = values.get(0);
+                count += first == null ? 0 : first;
+            }
+        }
+        int read = 0;
+        if (reader != null) {
+            try {
+                char[] buffer = new char[64];
+                do {
+                    read = reader.read(buffer);
+                    count += read > 0 ? read : 0;
+                } while (read > 0 && count < limit);
+            } catch (IOException e) {
+                count = -1;
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    count = -2;
+                }
+            }
+        }
+        synchronized (this) {
+            if (lazyObject == null) {
+                lazyObject = new Object();
+            }
+        }
+        assert count >= 0 : "count is negative: " + count;
+        for (int bucket : histogram) {
+            count += bucket;
+        }
+        return count;
+    }
+}
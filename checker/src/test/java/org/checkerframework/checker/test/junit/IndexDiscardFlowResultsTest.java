@@ -0,0 +1,32 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Index Checker with {@code -AdiscardFlowResults}. The Index Checker reads the
+ * dataflow results of its subcheckers, so the results of the tests must not change.
+ */
+public class IndexDiscardFlowResultsTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create an IndexDiscardFlowResultsTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public IndexDiscardFlowResultsTest(List<File> testFiles) {
+        super(
+                testFiles,
+                org.checkerframework.checker.index.IndexChecker.class,
+                "index",
+                "-Anomsgtext",
+                "-AdiscardFlowResults");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"index"};
+    }
+}
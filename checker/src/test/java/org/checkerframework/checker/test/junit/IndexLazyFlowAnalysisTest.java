@@ -0,0 +1,35 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Index Checker with {@code -AlazyFlowAnalysis} and {@code
+ * -AdiscardFlowResults}. The Index Checker reads the dataflow results of its subcheckers, which
+ * then analyze each method when it is type-checked and discard the results afterward, so the
+ * results of the tests must be the same as those of {@link IndexTest}.
+ */
+public class IndexLazyFlowAnalysisTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create an IndexLazyFlowAnalysisTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public IndexLazyFlowAnalysisTest(List<File> testFiles) {
+        super(
+                testFiles,
+                org.checkerframework.checker.index.IndexChecker.class,
+                "index",
+                "-Anomsgtext",
+                "-AlazyFlowAnalysis",
+                "-AdiscardFlowResults");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"index", "all-systems"};
+    }
+}
@@ -0,0 +1,38 @@
+package org.checkerframework.checker.test.junit;
+
+import java.io.File;
+import java.util.List;
+import org.checkerframework.checker.nullness.NullnessChecker;
+import org.checkerframework.framework.test.CheckerFrameworkPerDirectoryTest;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * JUnit tests for the Nullness Checker with {@code -AlazyFlowAnalysis}. The results of the tests
+ * must be the same as those of {@link NullnessFbcTest}, including those that depend on the values
+ * of fields after their initializers have been analyzed.
+ */
+public class NullnessLazyFlowAnalysisTest extends CheckerFrameworkPerDirectoryTest {
+
+    /**
+     * Create a NullnessLazyFlowAnalysisTest.
+     *
+     * @param testFiles the files containing test code, which will be type-checked
+     */
+    public NullnessLazyFlowAnalysisTest(List<File> testFiles) {
+        super(
+                testFiles,
+                org.checkerframework.checker.nullness.NullnessChecker.class,
+                "nullness",
+                "-AcheckPurityAnnotations",
+                "-Anomsgtext",
+                "-Xlint:deprecation",
+                "-Alint=soundArrayCreationNullness,"
+                        + NullnessChecker.LINT_REDUNDANTNULLCOMPARISON,
+                "-AlazyFlowAnalysis");
+    }
+
+    @Parameters
+    public static String[] getTestDirs() {
+        return new String[] {"nullness", "initialization/fbc", "all-systems"};
+    }
+}
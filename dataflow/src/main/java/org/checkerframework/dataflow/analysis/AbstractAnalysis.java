@@ -3,13 +3,15 @@ package org.checkerframework.dataflow.analysis;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.StringJoiner;
 import javax.lang.model.element.Element;
 import org.checkerframework.checker.interning.qual.FindDistinct;
 import org.checkerframework.checker.interning.qual.InternedDistinct;
@@ -20,6 +22,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.nullness.qual.RequiresNonNull;
 import org.checkerframework.dataflow.cfg.ControlFlowGraph;
 import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
 import org.checkerframework.dataflow.cfg.block.SpecialBlock;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
@@ -87,6 +90,12 @@ public abstract class AbstractAnalysis<
     /** The current transfer input when the analysis is running. */
     protected @Nullable TransferInput<V, S> currentInput;
 
+    /**
+     * The number of basic blocks that the most recent (or current) fix-point iteration has taken
+     * from the worklist.
+     */
+    protected int blockVisitCount = 0;
+
     /**
      * Returns the tree that is currently being looked at. The transfer function can set this tree
      * to make sure that calls to {@code getValue} will not return information for this given tree.
@@ -160,6 +169,17 @@ public abstract class AbstractAnalysis<
         return this.direction;
     }
 
+    /**
+     * Returns the number of basic blocks that the most recent fix-point iteration has taken from
+     * the worklist, counting a block once per visit. This measures how quickly the analysis of a
+     * control flow graph converged.
+     *
+     * @return the number of block visits of the most recent fix-point iteration
+     */
+    public int getBlockVisitCount() {
+        return blockVisitCount;
+    }
+
     @Override
     @SuppressWarnings("nullness:contracts.precondition.override.invalid") // implementation field
     @RequiresNonNull("cfg")
@@ -361,6 +381,7 @@ public abstract class AbstractAnalysis<
      * @param cfg the control flow graph to use
      */
     protected final void init(ControlFlowGraph cfg) {
+        blockVisitCount = 0;
         initFields(cfg);
         initInitialInputs();
     }
@@ -418,47 +439,29 @@ public abstract class AbstractAnalysis<
      * @param b the block to add to {@link #worklist}
      */
     protected void addToWorklist(Block b) {
-        // TODO: use a more efficient way to check if b is already present
-        if (!worklist.contains(b)) {
-            worklist.add(b);
-        }
+        worklist.add(b);
     }
 
     /**
-     * A worklist is a priority queue of blocks in which the order is given by depth-first ordering
-     * to place non-loop predecessors ahead of successors.
+     * A worklist is a priority queue of blocks in which the order is given by the reverse
+     * postorder of the control flow graph, which places non-loop predecessors ahead of successors
+     * (or the reverse, for a backward analysis). In particular, the blocks of a loop body are
+     * processed before the blocks after the loop.
+     *
+     * <p>The worklist is a bit set indexed by {@link BlockImpl#getReversePostorderIndex}, so
+     * adding, removing, and testing for a block require neither hashing nor allocation. Blocks that
+     * are not reachable from the entry block have no index, and are never in the worklist.
      */
     protected static class Worklist {
 
-        /** Map all blocks in the CFG to their depth-first order. */
-        protected final IdentityHashMap<Block, Integer> depthFirstOrder;
+        /** The direction of the analysis. */
+        protected final Direction direction;
 
-        /**
-         * Comparators to allow priority queue to order blocks by their depth-first order, using by
-         * forward analysis.
-         */
-        public class ForwardDFOComparator implements Comparator<Block> {
-            @SuppressWarnings("nullness:unboxing.of.nullable")
-            @Override
-            public int compare(Block b1, Block b2) {
-                return depthFirstOrder.get(b1) - depthFirstOrder.get(b2);
-            }
-        }
-
-        /**
-         * Comparators to allow priority queue to order blocks by their depth-first order, using by
-         * backward analysis.
-         */
-        public class BackwardDFOComparator implements Comparator<Block> {
-            @SuppressWarnings("nullness:unboxing.of.nullable")
-            @Override
-            public int compare(Block b1, Block b2) {
-                return depthFirstOrder.get(b2) - depthFirstOrder.get(b1);
-            }
-        }
+        /** The reachable blocks of the control flow graph in reverse postorder. */
+        protected List<Block> reversePostorder = Collections.emptyList();
 
-        /** The backing priority queue. */
-        protected final PriorityQueue<Block> queue;
+        /** The reverse postorder indices of the blocks in the worklist. */
+        protected final BitSet queue = new BitSet();
 
         /**
          * Create a Worklist.
@@ -466,36 +469,47 @@ public abstract class AbstractAnalysis<
          * @param direction the direction (forward or backward)
          */
         public Worklist(Direction direction) {
-            depthFirstOrder = new IdentityHashMap<>();
-
-            if (direction == Direction.FORWARD) {
-                queue = new PriorityQueue<>(11, new ForwardDFOComparator());
-            } else if (direction == Direction.BACKWARD) {
-                queue = new PriorityQueue<>(11, new BackwardDFOComparator());
-            } else {
+            if (direction != Direction.FORWARD && direction != Direction.BACKWARD) {
                 throw new BugInCF("Unexpected Direction meet: " + direction.name());
             }
+            this.direction = direction;
         }
 
         /**
-         * Process the control flow graph, add the blocks to {@link #depthFirstOrder}.
+         * Process the control flow graph: empty the worklist, and compute the order of the blocks
+         * of {@code cfg}.
          *
          * @param cfg the control flow graph to process
          */
         public void process(ControlFlowGraph cfg) {
-            depthFirstOrder.clear();
-            int count = 1;
-            for (Block b : cfg.getDepthFirstOrderedBlocks()) {
-                depthFirstOrder.put(b, count++);
-            }
-
+            reversePostorder = cfg.getReversePostorder();
             queue.clear();
         }
 
         /**
-         * See {@link PriorityQueue#isEmpty}.
+         * Returns the index of the given block in the reverse postorder of the control flow graph.
+         *
+         * @param block a block of the control flow graph
+         * @return the index of {@code block} in the reverse postorder, or -1 if it is unreachable
+         */
+        private static int index(Block block) {
+            return ((BlockImpl) block).getReversePostorderIndex();
+        }
+
+        /**
+         * Returns true if the given block is reachable from the entry block of the control flow
+         * graph. Only reachable blocks are ever in the worklist.
+         *
+         * @param block a block of the control flow graph
+         * @return true if {@code block} is reachable
+         */
+        public boolean isReachable(Block block) {
+            return index(block) >= 0;
+        }
+
+        /**
+         * Returns true if the worklist is empty.
          *
-         * @see PriorityQueue#isEmpty
          * @return true if {@link #queue} is empty else false
          */
         @EnsuresNonNullIf(result = false, expression = "poll()")
@@ -511,31 +525,48 @@ public abstract class AbstractAnalysis<
          * @return true if {@link #queue} contains the given block
          */
         public boolean contains(Block block) {
-            return queue.contains(block);
+            int index = index(block);
+            return index >= 0 && queue.get(index);
         }
 
         /**
-         * Add the given block to {@link #queue}.
+         * Add the given block to {@link #queue}, if it is not already present. Does nothing if the
+         * block is not reachable from the entry block, because such a block is not analyzed.
          *
          * @param block the block to add to {@link #queue}
          */
         public void add(Block block) {
-            queue.add(block);
+            int index = index(block);
+            if (index >= 0) {
+                queue.set(index);
+            }
         }
 
         /**
-         * See {@link PriorityQueue#poll}.
+         * Removes and returns the first block in the worklist: the block with the smallest reverse
+         * postorder index for a forward analysis, and with the largest for a backward analysis.
          *
-         * @see PriorityQueue#poll
-         * @return the head of {@link #queue}
+         * @return the first block in the worklist, or null if it is empty
          */
         public @Nullable Block poll() {
-            return queue.poll();
+            int index =
+                    direction == Direction.FORWARD
+                            ? queue.nextSetBit(0)
+                            : queue.previousSetBit(queue.length() - 1);
+            if (index < 0) {
+                return null;
+            }
+            queue.clear(index);
+            return reversePostorder.get(index);
         }
 
         @Override
         public String toString() {
-            return "Worklist(" + queue + ")";
+            StringJoiner result = new StringJoiner(", ", "Worklist([", "])");
+            for (int i = queue.nextSetBit(0); i >= 0; i = queue.nextSetBit(i + 1)) {
+                result.add(reversePostorder.get(i).toString());
+            }
+            return result.toString();
         }
     }
 }
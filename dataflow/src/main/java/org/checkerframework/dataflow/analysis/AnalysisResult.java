@@ -9,10 +9,12 @@ import java.util.Set;
 import java.util.StringJoiner;
 import javax.lang.model.element.Element;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
 import org.checkerframework.dataflow.cfg.block.Block;
 import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.node.AssignmentNode;
 import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.util.IdentityMostlySingleton;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.TreeUtils;
 import org.plumelib.util.UniqueId;
@@ -142,6 +144,27 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
         finalLocalValues.putAll(other.finalLocalValues);
     }
 
+    /**
+     * Removes the abstract values, stores, and cached analysis results of the nodes, trees, and
+     * blocks of a control flow graph whose result was combined into this. Keeps the values of
+     * effectively final local variables.
+     *
+     * @param cfg a control flow graph whose results are no longer needed
+     */
+    public void removeResultsFor(ControlFlowGraph cfg) {
+        for (Block block : cfg.getAllBlocks()) {
+            TransferInput<V, S> transferInput = stores.remove(block);
+            if (transferInput != null && analysisCaches != null) {
+                analysisCaches.remove(transferInput);
+            }
+            for (Node node : block.getNodes()) {
+                nodeValues.remove(node);
+            }
+        }
+        treeLookup.keySet().removeAll(cfg.getTreeLookup().keySet());
+        unaryAssignNodeLookup.keySet().removeAll(cfg.getUnaryAssignNodeLookup().keySet());
+    }
+
     /**
      * Merge all entries from otherTreeLookup into treeLookup. Merge sets if already present.
      *
@@ -156,7 +179,12 @@ public class AnalysisResult<V extends AbstractValue<V>, S extends Store<S>> impl
             if (hit == null) {
                 treeLookup.put(entry.getKey(), entry.getValue());
             } else {
-                hit.addAll(entry.getValue());
+                // The sets belong to control flow graphs, which can be shared with other checkers
+                // (see CFGCache), so merge into a copy rather than into either set.
+                Set<Node> merged = new IdentityMostlySingleton<>();
+                merged.addAll(hit);
+                merged.addAll(entry.getValue());
+                treeLookup.put(entry.getKey(), merged);
             }
         }
     }
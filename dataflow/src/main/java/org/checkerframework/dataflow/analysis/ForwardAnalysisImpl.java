@@ -54,6 +54,9 @@ public class ForwardAnalysisImpl<
      */
     protected final int maxCountBeforeWidening;
 
+    /** The number of times that the current or most recent analysis widened a store. */
+    protected int wideningCount = 0;
+
     /** Then stores before every basic block (assumed to be 'no information' if not present). */
     protected final IdentityHashMap<Block, S> thenStores;
 
@@ -103,6 +106,7 @@ public class ForwardAnalysisImpl<
             init(cfg);
             while (!worklist.isEmpty()) {
                 Block b = worklist.poll();
+                blockVisitCount++;
                 performAnalysisBlock(b);
             }
         } finally {
@@ -335,9 +339,20 @@ public class ForwardAnalysisImpl<
             blockCount.clear();
         }
         storesAtReturnStatements.clear();
+        wideningCount = 0;
         super.initFields(cfg);
     }
 
+    /**
+     * Returns the number of times that the most recent analysis widened a store, rather than
+     * computing a least upper bound.
+     *
+     * @return the number of times that the most recent analysis widened a store
+     */
+    public int getWideningCount() {
+        return wideningCount;
+    }
+
     @Override
     @RequiresNonNull("cfg")
     protected void initInitialInputs() {
@@ -566,6 +581,7 @@ public class ForwardAnalysisImpl<
         if (previousStore == null) {
             return newStore;
         } else if (shouldWiden) {
+            wideningCount++;
             return newStore.widenedUpperBound(previousStore);
         } else {
             return newStore.leastUpperBound(previousStore);
@@ -22,6 +22,7 @@ import org.checkerframework.checker.initialization.qual.UnknownInitialization;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.analysis.AnalysisResult;
 import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.BlockImpl;
 import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
 import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
 import org.checkerframework.dataflow.cfg.block.RegularBlock;
@@ -94,6 +95,12 @@ public class ControlFlowGraph {
      */
     protected final List<LambdaExpressionTree> declaredLambdas;
 
+    /**
+     * The reachable blocks in reverse postorder, indexed by {@link
+     * BlockImpl#getReversePostorderIndex}; null until {@link #getReversePostorder} is first called.
+     */
+    private @Nullable List<Block> reversePostorder = null;
+
     public ControlFlowGraph(
             SpecialBlock entryBlock,
             SpecialBlockImpl regularExitBlock,
@@ -240,6 +247,37 @@ public class ControlFlowGraph {
         return dfsOrderResult;
     }
 
+    /**
+     * Returns the reachable blocks of this graph in reverse postorder: a block precedes its
+     * successors, except along back edges of loops. The result is computed once, from {@link
+     * #getDepthFirstOrderedBlocks}, and also stored in each block as its {@link
+     * BlockImpl#getReversePostorderIndex index}, so that dataflow analysis can order its worklist
+     * without hashing blocks. The graph must not be modified afterwards.
+     *
+     * @return the reachable blocks of this graph in reverse postorder
+     */
+    public List<Block> getReversePostorder() {
+        if (reversePostorder == null) {
+            // getDepthFirstOrderedBlocks may contain a block more than once; its last occurrence
+            // determines its position.
+            List<Block> depthFirstOrder = getDepthFirstOrderedBlocks();
+            Set<Block> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<Block> result = new ArrayList<>(depthFirstOrder.size());
+            for (int i = depthFirstOrder.size() - 1; i >= 0; i--) {
+                Block b = depthFirstOrder.get(i);
+                if (seen.add(b)) {
+                    result.add(b);
+                }
+            }
+            Collections.reverse(result);
+            for (int i = 0; i < result.size(); i++) {
+                ((BlockImpl) result.get(i)).setReversePostorderIndex(i);
+            }
+            reversePostorder = Collections.unmodifiableList(result);
+        }
+        return reversePostorder;
+    }
+
     /**
      * Returns the copied tree-lookup map. Ignores convertedTreeLookup, though {@link
      * #getNodesCorrespondingToTree} uses that field.
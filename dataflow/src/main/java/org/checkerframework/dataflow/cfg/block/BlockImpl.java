@@ -12,6 +12,13 @@ public abstract class BlockImpl implements Block {
     /** The last ID that has already been used. */
     protected static long lastId = 0;
 
+    /**
+     * The index of this block in the reverse postorder of its control flow graph, or -1 if the
+     * block is unreachable or the order has not been computed. Set by {@link
+     * org.checkerframework.dataflow.cfg.ControlFlowGraph#getReversePostorder}.
+     */
+    protected int reversePostorderIndex = -1;
+
     /** The type of this basic block. */
     protected final BlockType type;
 
@@ -42,6 +49,26 @@ public abstract class BlockImpl implements Block {
         return id;
     }
 
+    /**
+     * Returns the index of this block in the reverse postorder of its control flow graph, or -1 if
+     * the block is unreachable. Only valid after {@link
+     * org.checkerframework.dataflow.cfg.ControlFlowGraph#getReversePostorder} has been called.
+     *
+     * @return the index of this block in the reverse postorder of its control flow graph
+     */
+    public int getReversePostorderIndex() {
+        return reversePostorderIndex;
+    }
+
+    /**
+     * Sets the index of this block in the reverse postorder of its control flow graph.
+     *
+     * @param reversePostorderIndex the index of this block in the reverse postorder
+     */
+    public void setReversePostorderIndex(int reversePostorderIndex) {
+        this.reversePostorderIndex = reversePostorderIndex;
+    }
+
     @Override
     public BlockType getType() {
         return type;
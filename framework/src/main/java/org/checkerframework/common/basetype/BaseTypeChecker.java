@@ -6,8 +6,13 @@ import com.sun.source.util.TreePath;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -31,8 +36,11 @@ import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.ClassGetName;
 import org.checkerframework.common.reflection.MethodValChecker;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceDriver;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage;
 import org.checkerframework.dataflow.cfg.CFGVisualizer;
 import org.checkerframework.framework.qual.SubtypeOf;
+import org.checkerframework.framework.source.IncrementalCheckingCache;
 import org.checkerframework.framework.source.SourceChecker;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.GenericAnnotatedTypeFactory;
@@ -109,8 +117,25 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         }
 
         super.initChecker();
+
+        if (parentChecker == null && hasOption("incrementalCheckingFile")) {
+            if (hasOption("infer")) {
+                throw new UserError(
+                        "The incrementalCheckingFile option cannot be used with -Ainfer,"
+                                + " which must see every class");
+            }
+            incrementalCheckingCache =
+                    new IncrementalCheckingCache(this, getOption("incrementalCheckingFile"));
+        }
     }
 
+    /**
+     * Records the diagnostics of each top-level class, so that unchanged classes need not be
+     * type-checked again by a later compilation. Non-null only for the root checker, and only if
+     * the {@code -AincrementalCheckingFile} command-line option was supplied.
+     */
+    private @Nullable IncrementalCheckingCache incrementalCheckingCache = null;
+
     /**
      * The full list of subcheckers that need to be run prior to this one, in the order they need to
      * be run in. This list will only be non-empty for the one checker that runs all other
@@ -467,6 +492,45 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
     // AbstractTypeProcessor delegation
     @Override
     public void typeProcess(TypeElement element, TreePath tree) {
+        WholeProgramInferenceDriver wpiDriver = WholeProgramInferenceDriver.instance(processingEnv);
+        if (!isInPartition(tree.getCompilationUnit())
+                || (wpiDriver != null && !wpiDriver.shouldTypeCheck(tree.getCompilationUnit()))) {
+            // Neither this checker nor its subcheckers type-check this compilation unit, but any
+            // Java errors in it must not be attributed to the next compilation unit.
+            Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+            this.errsOnLastExit = Log.instance(context).nerrors;
+            if (incrementalCheckingCache != null) {
+                incrementalCheckingCache.keep(element);
+            }
+            return;
+        }
+
+        Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+        Log log = Log.instance(context);
+        CompilationUnitTree root = tree.getCompilationUnit();
+
+        // The number of errors and warnings before this class is type-checked, or -1 if the
+        // diagnostics for this class are not being recorded.
+        int errorsBefore = -1;
+        int warningsBefore = -1;
+        // If the compilation unit contains Java errors, it is not type-checked (see
+        // SourceChecker#typeProcess), so its diagnostics are neither replayed nor recorded.
+        if (incrementalCheckingCache != null && log.nerrors <= this.errsOnLastExit) {
+            if (incrementalCheckingCache.replayOrStartRecording(
+                    element,
+                    tree,
+                    (kind, message, source) ->
+                            super.printOrStoreMessage(
+                                    kind, message, source, root, new StackTraceElement[0]))) {
+                this.errsOnLastExit = log.nerrors;
+                return;
+            }
+            errorsBefore = log.nerrors;
+            warningsBefore = log.nwarnings;
+        } else if (incrementalCheckingCache != null) {
+            incrementalCheckingCache.keep(element);
+        }
+
         if (!getSubcheckers().isEmpty()) {
             // TODO: I expected this to only be necessary if (parentChecker == null).
             // However, the NestedAggregateChecker fails otherwise.
@@ -483,9 +547,6 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         // issued errors, the next checker's errsOnLastExit needs to include all errors
         // issued by previous checkers.
 
-        Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
-        Log log = Log.instance(context);
-
         int nerrorsOfAllPreviousCheckers = this.errsOnLastExit;
         for (BaseTypeChecker subchecker : getSubcheckers()) {
             subchecker.errsOnLastExit = nerrorsOfAllPreviousCheckers;
@@ -502,10 +563,15 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         super.typeProcess(element, tree);
 
         if (!getSubcheckers().isEmpty()) {
-            printStoredMessages(tree.getCompilationUnit());
+            printStoredMessages(root);
             // Update errsOnLastExit to reflect the errors issued.
             this.errsOnLastExit = log.nerrors;
         }
+
+        if (errorsBefore != -1) {
+            incrementalCheckingCache.finishRecording(
+                    log.nerrors - errorsBefore, log.nwarnings - warningsBefore);
+        }
     }
 
     /**
@@ -559,7 +625,7 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
         assert this.currentRoot == root;
         StackTraceElement[] trace = Thread.currentThread().getStackTrace();
         if (messageStore == null) {
-            super.printOrStoreMessage(kind, message, source, root, trace);
+            printAndRecordMessage(kind, message, source, root, trace);
         } else {
             CheckerMessage checkerMessage = new CheckerMessage(kind, message, source, this, trace);
             messageStore.add(checkerMessage);
@@ -576,11 +642,33 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
     private void printStoredMessages(CompilationUnitTree unit) {
         if (messageStore != null) {
             for (CheckerMessage msg : messageStore) {
-                super.printOrStoreMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
+                printAndRecordMessage(msg.kind, msg.message, msg.source, unit, msg.trace);
             }
         }
     }
 
+    /**
+     * Prints the given message, and records it for the current class if incremental checking is
+     * enabled.
+     *
+     * @param kind the kind of message to print
+     * @param message the message text
+     * @param source the source code position of the diagnostic message
+     * @param root the compilation unit
+     * @param trace the stack trace where the checker encountered an error
+     */
+    private void printAndRecordMessage(
+            Diagnostic.Kind kind,
+            String message,
+            Tree source,
+            CompilationUnitTree root,
+            StackTraceElement[] trace) {
+        if (incrementalCheckingCache != null) {
+            incrementalCheckingCache.record(kind, message, source, root);
+        }
+        super.printOrStoreMessage(kind, message, source, root, trace);
+    }
+
     /** Represents a message (e.g., an error message) issued by a checker. */
     private static class CheckerMessage {
         /** The severity of the message. */
@@ -711,9 +799,101 @@ public abstract class BaseTypeChecker extends SourceChecker implements BaseTypeC
             checker.typeProcessingOver();
         }
 
+        if (incrementalCheckingCache != null) {
+            try {
+                incrementalCheckingCache.write();
+            } catch (IOException e) {
+                message(
+                        Diagnostic.Kind.WARNING,
+                        "Cannot write incremental checking file %s: %s",
+                        getOption("incrementalCheckingFile"),
+                        e.getMessage());
+            }
+        }
+
+        GenericAnnotatedTypeFactory<?, ?, ?, ?> atypeFactory = getTypeFactory();
+
+        // A WholeProgramInferenceDriver computes the compilation units to type-check again itself,
+        // from the reads of every round.
+        if (hasOption("infer") && WholeProgramInferenceDriver.instance(processingEnv) == null) {
+            // The next compilation might type-check only some of the compilation units, so it
+            // needs the reads of the others.
+            if (atypeFactory != null && atypeFactory.getWholeProgramInference() != null) {
+                try {
+                    atypeFactory.getWholeProgramInference().writeReadersToFile();
+                } catch (IOException e) {
+                    message(
+                            Diagnostic.Kind.WARNING,
+                            "Cannot write whole-program inference file %s: %s",
+                            WholeProgramInferenceScenesStorage.getReadersPath(this),
+                            e.getMessage());
+                }
+            }
+            if (parentChecker == null && hasOption("inferRecheckFile")) {
+                writeCompilationUnitsToRecheck(getOption("inferRecheckFile"));
+            }
+        }
+
+        // The subcheckers have already recorded their cache statistics above; the root checker
+        // outputs them in super.typeProcessingOver().
+        if (atypeFactory != null) {
+            atypeFactory.recordCacheStatistics(getPerformanceStatistics());
+        }
+
         super.typeProcessingOver();
     }
 
+    /**
+     * Writes the names of the source files of the compilation units that this checker or a
+     * subchecker must type-check again, because they read the type of an element whose inferred
+     * type changed, to the given file, one per line.
+     *
+     * @param filename the file to write
+     */
+    private void writeCompilationUnitsToRecheck(String filename) {
+        Set<String> toRecheck = new TreeSet<>();
+        List<BaseTypeChecker> checkers = new ArrayList<>(getSubcheckers());
+        checkers.add(this);
+        for (BaseTypeChecker checker : checkers) {
+            GenericAnnotatedTypeFactory<?, ?, ?, ?> atypeFactory = checker.getTypeFactory();
+            if (atypeFactory != null && atypeFactory.getWholeProgramInference() != null) {
+                toRecheck.addAll(
+                        atypeFactory.getWholeProgramInference().getCompilationUnitsToRecheck());
+            }
+        }
+        Path file = Paths.get(filename);
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Files.write(file, toRecheck, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            message(
+                    Diagnostic.Kind.WARNING,
+                    "Cannot write whole-program inference file %s: %s",
+                    filename,
+                    e.getMessage());
+        }
+    }
+
+    /** Also prints the statistics of the type factory caches of this checker and subcheckers. */
+    @Override
+    protected void printStats() {
+        super.printStats();
+        List<BaseTypeChecker> checkers = new ArrayList<>(getSubcheckers());
+        checkers.add(this);
+        for (BaseTypeChecker checker : checkers) {
+            GenericAnnotatedTypeFactory<?, ?, ?, ?> atypeFactory = checker.getTypeFactory();
+            if (atypeFactory != null && atypeFactory.shouldCache) {
+                System.out.println(
+                        "Type factory cache statistics for "
+                                + checker.getClass().getSimpleName());
+                System.out.println(atypeFactory.getCacheStatistics());
+            }
+        }
+    }
+
     @Override
     public Set<String> getSupportedOptions() {
         if (supportedOptions == null) {
@@ -296,6 +296,14 @@ public class BaseTypeVisitor<Factory extends GenericAnnotatedTypeFactory<?, ?, ?
         if (tree != null && getCurrentPath() != null) {
             this.visitorState.setPath(new TreePath(getCurrentPath(), tree));
         }
+        if (tree != null && tree.getKind() == Tree.Kind.METHOD) {
+            atypeFactory.preProcessMethodTree((MethodTree) tree);
+            try {
+                return super.scan(tree, p);
+            } finally {
+                atypeFactory.postProcessMethodTree((MethodTree) tree);
+            }
+        }
         return super.scan(tree, p);
     }
 
@@ -1,10 +1,14 @@
 package org.checkerframework.common.wholeprograminference;
 
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
@@ -184,6 +188,34 @@ public interface WholeProgramInference {
      */
     void writeResultsToFile(OutputFormat format, BaseTypeChecker checker);
 
+    /**
+     * Records that the declared type of {@code elt} was read while type-checking the compilation
+     * unit {@code root}. If the inferred type of {@code elt} changes, then {@code root} has to be
+     * type-checked again to take the new type into account.
+     *
+     * @param elt an element whose declared type was read
+     * @param root the compilation unit that is being type-checked
+     */
+    void recordRead(Element elt, CompilationUnitTree root);
+
+    /**
+     * Returns the compilation units that read the declared type of an element whose inferred type
+     * changed: these, and only these, need to be type-checked again to make use of the new
+     * inferred types.
+     *
+     * @return the names of the source files of the compilation units to type-check again
+     */
+    Set<String> getCompilationUnitsToRecheck();
+
+    /**
+     * Writes the compilation units that read the declared type of each field and method, in this
+     * and earlier compilations, to the file from which the next compilation reads them. Does
+     * nothing if this whole-program inference does not keep them across compilations.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void writeReadersToFile() throws IOException;
+
     /** The kinds of output that whole-program inference can produce. */
     enum OutputFormat {
         /**
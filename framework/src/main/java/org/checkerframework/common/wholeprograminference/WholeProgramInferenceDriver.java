@@ -0,0 +1,375 @@
+package org.checkerframework.common.wholeprograminference;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage.AnnotationsInContexts;
+import org.checkerframework.framework.source.SourceChecker;
+
+/**
+ * Runs whole-program inference to a fixed point within a single JVM.
+ *
+ * <p>Like {@code checker/bin/infer-and-annotate.sh}, this driver runs the compiler with {@code
+ * -Ainfer} repeatedly until the inferred annotations no longer change. Unlike that script, it does
+ * not start a new JVM or insert annotations into the source code on each round:
+ *
+ * <ul>
+ *   <li>It writes stub files ({@code -Ainfer=stubs}) and reads them back on the next round ({@code
+ *       -Astubs} and {@code -AmergeStubsWithSource}).
+ *   <li>Each round creates a new {@link WholeProgramInferenceScenes} for each checker, which
+ *       continues from the .jaif files that the previous round wrote to {@link #STATE_PATH}. Only
+ *       data keyed by strings is kept from one round to the next, so that no round keeps the javac
+ *       symbols and types of an earlier round alive.
+ *   <li>The file manager, the parsed stub files and annotated JDK (see {@link
+ *       org.checkerframework.framework.stub.StubUnitCache}), and other process-wide caches are
+ *       reused by every round.
+ *   <li>After the first round, a compilation unit is type-checked only if, in some round, it read
+ *       the declared type of a field or method whose inferred type changed in the previous round.
+ *       The other compilation units are still compiled, so that inference can update the classes
+ *       they declare, but their contributions from earlier rounds are already in the .jaif files.
+ * </ul>
+ *
+ * <p>The fixed point is reached when no compilation unit needs to be type-checked again.
+ *
+ * <p>The arguments are those of javac, including {@code -processor}. Each argument that ends in
+ * ".java" is a source file. The inferred stub files are written to {@link
+ * WholeProgramInferenceScenesStorage#JAIF_FILES_PATH}, which is emptied first.
+ *
+ * @checker_framework.manual #whole-program-inference Whole-program inference
+ */
+public class WholeProgramInferenceDriver {
+
+    /**
+     * Directory to which each round writes the .jaif files from which the next round continues,
+     * in one subdirectory per checker. This directory is relative to where the driver is run.
+     */
+    public static final String STATE_PATH =
+            "build" + File.separator + "whole-program-inference-state" + File.separator;
+
+    /** The key under which the compiler's context holds the driver that runs the compilation. */
+    private static final Context.Key<WholeProgramInferenceDriver> DRIVER_KEY = new Context.Key<>();
+
+    /** The options passed to the compiler on every round. */
+    private final List<String> options;
+
+    /** The source files of the program. */
+    private final List<File> sourceFiles;
+
+    /**
+     * The whole-program inference of each checker in the current round, by the checker's class
+     * name. Emptied at the end of each round.
+     */
+    private final Map<String, WholeProgramInferenceScenes> inferences = new HashMap<>();
+
+    /**
+     * The annotations that should not be output to a stub file, by the checker's class name. These
+     * are kept across rounds, because the .jaif files in {@link #STATE_PATH} do not record them.
+     */
+    private final Map<String, AnnotationsInContexts> annosToIgnore = new HashMap<>();
+
+    /**
+     * Maps the key of each field and method to the names of the source files of the compilation
+     * units that read its declared type in any round; see {@link
+     * WholeProgramInferenceScenes#getReaders}. A compilation unit that is not type-checked in a
+     * round does not record its reads again, so this index is kept across rounds.
+     */
+    private final Map<String, Set<String>> readers = new HashMap<>();
+
+    /**
+     * The names of the source files of the compilation units to type-check in the current round, or
+     * null to type-check every compilation unit.
+     */
+    private @Nullable Set<String> unitsToCheck = null;
+
+    /**
+     * The names of the source files of the compilation units type-checked in each round, in the
+     * order of the rounds.
+     */
+    private final List<Set<String>> typeCheckedUnits = new ArrayList<>();
+
+    /**
+     * The names of the source files of the compilation units that were compiled but not
+     * type-checked in each round, in the order of the rounds.
+     */
+    private final List<Set<String>> skippedUnits = new ArrayList<>();
+
+    /**
+     * The names of the source files of the compilation units that each round found must be
+     * type-checked again, in the order of the rounds. The run ends after the first round that
+     * finds none.
+     */
+    private final List<Set<String>> unitsToRecheck = new ArrayList<>();
+
+    /**
+     * Creates a driver.
+     *
+     * @param options the compiler options, including {@code -processor}
+     * @param sourceFiles the source files of the program
+     */
+    public WholeProgramInferenceDriver(List<String> options, List<File> sourceFiles) {
+        this.options = new ArrayList<>(options);
+        this.sourceFiles = sourceFiles;
+        this.options.add("-Ainfer=stubs");
+        this.options.add("-AmergeStubsWithSource");
+        this.options.add("-Awarns");
+        addStubsOption(this.options);
+    }
+
+    /**
+     * Runs whole-program inference on the given compiler arguments.
+     *
+     * @param args the compiler arguments
+     */
+    public static void main(String[] args) {
+        List<String> options = new ArrayList<>();
+        List<File> sourceFiles = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.endsWith(".java")) {
+                sourceFiles.add(new File(arg));
+            } else {
+                options.add(arg);
+            }
+        }
+        if (sourceFiles.isEmpty()) {
+            System.err.println(
+                    "Usage: WholeProgramInferenceDriver -processor <checker> [javac options]"
+                            + " <source files>");
+            System.exit(1);
+        }
+        try {
+            System.exit(new WholeProgramInferenceDriver(options, sourceFiles).run());
+        } catch (IOException e) {
+            System.err.println("WholeProgramInferenceDriver: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the compiler until the inferred annotations no longer change.
+     *
+     * @return 0 if inference reached a fixed point, 1 if a compilation had errors
+     * @throws IOException if the output directories cannot be created or read
+     */
+    public int run() throws IOException {
+        Path outputDir = new File(WholeProgramInferenceScenesStorage.JAIF_FILES_PATH).toPath();
+        deleteRecursively(outputDir);
+        deleteRecursively(new File(STATE_PATH).toPath());
+        Files.createDirectories(outputDir);
+        List<String> roundOptions = new ArrayList<>(options);
+        Path classesDir = null;
+        if (!options.contains("-d")) {
+            classesDir = Files.createTempDirectory("whole-program-inference");
+            roundOptions.add("-d");
+            roundOptions.add(classesDir.toString());
+        }
+
+        JavacTool tool = JavacTool.create();
+        try (StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units =
+                    fileManager.getJavaFileObjectsFromFiles(sourceFiles);
+            unitsToCheck = null;
+            typeCheckedUnits.clear();
+            skippedUnits.clear();
+            unitsToRecheck.clear();
+            for (int round = 1; ; round++) {
+                typeCheckedUnits.add(new TreeSet<>());
+                skippedUnits.add(new TreeSet<>());
+                BasicJavacTask task =
+                        (BasicJavacTask)
+                                tool.getTask(null, fileManager, null, roundOptions, null, units);
+                task.getContext().put(DRIVER_KEY, this);
+                boolean success = task.call();
+                Set<String> toRecheck = endRound();
+                unitsToRecheck.add(toRecheck);
+                if (!success) {
+                    System.err.printf("Round %d of whole-program inference failed%n", round);
+                    return 1;
+                }
+
+                System.out.printf(
+                        "Round %d of whole-program inference: type-checked %s compilation units,"
+                                + " %d to type-check again%n",
+                        round,
+                        unitsToCheck == null ? "all" : String.valueOf(unitsToCheck.size()),
+                        toRecheck.size());
+                if (toRecheck.isEmpty()) {
+                    return 0;
+                }
+                unitsToCheck = toRecheck;
+            }
+        } finally {
+            if (classesDir != null) {
+                deleteRecursively(classesDir);
+            }
+        }
+    }
+
+    /**
+     * Adds the reads of the current round to {@link #readers}, and discards the whole-program
+     * inference of the current round.
+     *
+     * @return the names of the source files of the compilation units that read the declared type
+     *     of a field or method whose inferred type changed in the current round
+     */
+    private Set<String> endRound() {
+        Set<String> changedElements = new HashSet<>();
+        for (WholeProgramInferenceScenes inference : inferences.values()) {
+            for (Map.Entry<String, Set<String>> entry : inference.getReaders().entrySet()) {
+                readers.computeIfAbsent(entry.getKey(), k -> new HashSet<>())
+                        .addAll(entry.getValue());
+            }
+            changedElements.addAll(inference.getChangedElements());
+        }
+        inferences.clear();
+
+        Set<String> result = new TreeSet<>();
+        for (String key : changedElements) {
+            Set<String> readersOfKey = readers.get(key);
+            if (readersOfKey != null) {
+                result.addAll(readersOfKey);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the driver that runs the given compilation, or null if the compilation was not
+     * started by a driver.
+     *
+     * @param env the processing environment of a compilation
+     * @return the driver that runs the compilation, or null
+     */
+    public static @Nullable WholeProgramInferenceDriver instance(ProcessingEnvironment env) {
+        Context context = ((JavacProcessingEnvironment) env).getContext();
+        return context.get(DRIVER_KEY);
+    }
+
+    /**
+     * Returns the whole-program inference of the given checker in the current round. It continues
+     * from the inferred annotations of the previous round.
+     *
+     * @param checker a checker
+     * @param ignoreNullAssignments indicates whether assignments where the rhs is null should be
+     *     ignored
+     * @return the whole-program inference of {@code checker}
+     */
+    public WholeProgramInference getWholeProgramInference(
+            SourceChecker checker, boolean ignoreNullAssignments) {
+        return inferences.computeIfAbsent(
+                checker.getClass().getName(),
+                name ->
+                        new WholeProgramInferenceScenes(
+                                ignoreNullAssignments,
+                                STATE_PATH + name + File.separator,
+                                annosToIgnore.computeIfAbsent(
+                                        name, n -> new AnnotationsInContexts())));
+    }
+
+    /**
+     * Returns true if the given compilation unit is type-checked in the current round: that is, if
+     * this is the first round, or if the unit read the declared type of an element whose inferred
+     * type changed in the previous round.
+     *
+     * @param root a compilation unit
+     * @return true if {@code root} should be type-checked in the current round
+     */
+    public boolean shouldTypeCheck(CompilationUnitTree root) {
+        String name = root.getSourceFile().getName();
+        boolean result = unitsToCheck == null || unitsToCheck.contains(name);
+        if (!typeCheckedUnits.isEmpty()) {
+            int round = typeCheckedUnits.size() - 1;
+            (result ? typeCheckedUnits : skippedUnits).get(round).add(name);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the source files of the compilation units type-checked in each round of
+     * the last {@link #run}.
+     *
+     * @return the compilation units type-checked in each round, in the order of the rounds
+     */
+    public List<Set<String>> getTypeCheckedUnits() {
+        return Collections.unmodifiableList(typeCheckedUnits);
+    }
+
+    /**
+     * Returns the names of the source files of the compilation units that were compiled but not
+     * type-checked in each round of the last {@link #run}, because they did not read the declared
+     * type of any element whose inferred type changed in the previous round.
+     *
+     * @return the compilation units skipped in each round, in the order of the rounds
+     */
+    public List<Set<String>> getSkippedUnits() {
+        return Collections.unmodifiableList(skippedUnits);
+    }
+
+    /**
+     * Returns the names of the source files of the compilation units that each round of the last
+     * {@link #run} found must be type-checked in the next round. If the run reached a fixed point,
+     * the last of these sets is empty.
+     *
+     * @return the compilation units to type-check again after each round, in the order of the
+     *     rounds
+     */
+    public List<Set<String>> getUnitsToRecheck() {
+        return Collections.unmodifiableList(unitsToRecheck);
+    }
+
+    /**
+     * Adds the inference output directory to the {@code -Astubs} option in the given compiler
+     * options, so that each round reads the stub files written by the previous round.
+     *
+     * @param options compiler options, which are side-effected
+     */
+    private static void addStubsOption(List<String> options) {
+        String outputDir = WholeProgramInferenceScenesStorage.JAIF_FILES_PATH;
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            if (option.startsWith("-Astubs=")) {
+                options.set(i, option + File.pathSeparator + outputDir);
+                return;
+            }
+        }
+        options.add("-Astubs=" + outputDir);
+    }
+
+    /**
+     * Deletes a file or directory and its contents, if it exists.
+     *
+     * @param path the file or directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file :
+                    files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+}
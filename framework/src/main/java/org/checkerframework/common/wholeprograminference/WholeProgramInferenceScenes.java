@@ -1,20 +1,36 @@
 package org.checkerframework.common.wholeprograminference;
 
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.VarSymbol;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.VariableElement;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.BinaryName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage.AnnotationsInContexts;
 import org.checkerframework.dataflow.cfg.node.FieldAccessNode;
 import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
 import org.checkerframework.dataflow.cfg.node.MethodInvocationNode;
@@ -31,6 +47,7 @@ import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.UserError;
 import scenelib.annotations.el.AClass;
 import scenelib.annotations.el.AField;
 import scenelib.annotations.el.AMethod;
@@ -47,6 +64,13 @@ import scenelib.annotations.util.JVMNames;
  * <p>Calling an update* method replaces the currently-stored type for an element in a {@link
  * scenelib.annotations.el.AScene}, if any, by the LUB of it and the update method's argument.
  *
+ * <p>This class also records which compilation units read the declared type of each field and
+ * method, and which fields and methods have an inferred type that changed. A compilation unit that
+ * read an element whose inferred type changed is the only kind that needs to be type-checked again;
+ * see {@link #getCompilationUnitsToRecheck} and {@link WholeProgramInferenceDriver}. If given a
+ * readers file, this class merges these reads with those that earlier compilations wrote to the
+ * file, so that a compilation of only some compilation units still knows what the others read.
+ *
  * <p>This class does not perform inference for an element if the element has explicit annotations:
  * calling an update* method on an explicitly annotated field, method return, or method parameter
  * has no effect.
@@ -86,6 +110,40 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
     /** The interface to the AScene library itself, which stores the inferred annotations. */
     private final WholeProgramInferenceScenesStorage storage;
 
+    /**
+     * Maps the key (see {@link #elementKey}) of each field and method to the names of the source
+     * files of the compilation units whose type-checking read its declared type.
+     */
+    private final Map<String, Set<String>> readers = new HashMap<>();
+
+    /**
+     * The file from which the reads of earlier compilations are read, and to which the reads of
+     * this and earlier compilations are written, or null if reads are not kept across compilations.
+     */
+    private final @Nullable String readersFile;
+
+    /**
+     * The reads of earlier compilations, as read from {@link #readersFile}: a map from the key of
+     * each field and method to the names of the source files of the compilation units that read
+     * its declared type.
+     */
+    private final Map<String, Set<String>> previousReaders = new HashMap<>();
+
+    /**
+     * The names of the source files of the compilation units whose reads this compilation
+     * recorded. Their reads in {@link #previousReaders} are out of date.
+     */
+    private final Set<String> unitsRead = new HashSet<>();
+
+    /** The keys (see {@link #elementKey}) of the fields and methods whose inferred type changed. */
+    private final Set<String> changedElements = new HashSet<>();
+
+    /** The compilation unit whose reads are recorded in {@link #elementsRead}. */
+    private @Nullable CompilationUnitTree currentRoot = null;
+
+    /** The elements whose reads by {@link #currentRoot} have already been recorded. */
+    private final Set<Element> elementsRead = new HashSet<>();
+
     /**
      * Default constructor.
      *
@@ -93,7 +151,46 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
      *     ignored
      */
     public WholeProgramInferenceScenes(boolean ignoreNullAssignments) {
+        this(ignoreNullAssignments, null);
+    }
+
+    /**
+     * Creates a whole-program inference that reads the reads of earlier compilations from the
+     * given file, if it exists; {@link #writeReadersToFile} writes them back, together with the
+     * reads of this compilation.
+     *
+     * @param ignoreNullAssignments indicates whether assignments where the rhs is null should be
+     *     ignored
+     * @param readersFile the file from which the reads of earlier compilations are read and to
+     *     which the reads are written, or null if reads are not kept across compilations
+     */
+    public WholeProgramInferenceScenes(
+            boolean ignoreNullAssignments, @Nullable String readersFile) {
         storage = new WholeProgramInferenceScenesStorage(ignoreNullAssignments);
+        this.readersFile = readersFile;
+        if (readersFile != null) {
+            readReaders(readersFile);
+        }
+    }
+
+    /**
+     * Creates a whole-program inference that continues from the Scenes in the given directory,
+     * which an earlier compilation wrote, and writes its Scenes back to that directory.
+     *
+     * @param ignoreNullAssignments indicates whether assignments where the rhs is null should be
+     *     ignored
+     * @param sceneDirectory the directory from which Scenes are read and to which they are written
+     * @param annosToIgnore the annotations that should not be output to a .jaif or stub file, as
+     *     computed by earlier compilations
+     */
+    public WholeProgramInferenceScenes(
+            boolean ignoreNullAssignments,
+            String sceneDirectory,
+            AnnotationsInContexts annosToIgnore) {
+        storage =
+                new WholeProgramInferenceScenesStorage(
+                        ignoreNullAssignments, sceneDirectory, annosToIgnore);
+        this.readersFile = null;
     }
 
     @Override
@@ -168,8 +265,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
             AField param =
                     method.vivifyAndAddTypeMirrorToParameter(
                             i, argATM.getUnderlyingType(), ve.getSimpleName());
-            storage.updateAnnotationSetInScene(
-                    param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER);
+            if (storage.updateAnnotationSetInScene(
+                    param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER)) {
+                recordChange(methodElt);
+            }
         }
     }
 
@@ -200,8 +299,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
             AField param =
                     method.vivifyAndAddTypeMirrorToParameter(
                             i, argATM.getUnderlyingType(), ve.getSimpleName());
-            storage.updateAnnotationSetInScene(
-                    param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER);
+            if (storage.updateAnnotationSetInScene(
+                    param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER)) {
+                recordChange(methodElt);
+            }
         }
 
         AnnotatedDeclaredType argADT = overriddenMethod.getReceiverType();
@@ -209,8 +310,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
             AnnotatedTypeMirror paramATM = atf.getAnnotatedType(methodTree).getReceiverType();
             if (paramATM != null) {
                 AField receiver = method.receiver;
-                storage.updateAnnotationSetInScene(
-                        receiver.type, atf, jaifPath, argADT, paramATM, TypeUseLocation.RECEIVER);
+                if (storage.updateAnnotationSetInScene(
+                        receiver.type, atf, jaifPath, argADT, paramATM, TypeUseLocation.RECEIVER)) {
+                    recordChange(methodElt);
+                }
             }
         }
     }
@@ -259,8 +362,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
                 AField param =
                         method.vivifyAndAddTypeMirrorToParameter(
                                 i, argATM.getUnderlyingType(), ve.getSimpleName());
-                storage.updateAnnotationSetInScene(
-                        param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER);
+                if (storage.updateAnnotationSetInScene(
+                        param.type, atf, jaifPath, argATM, paramATM, TypeUseLocation.PARAMETER)) {
+                    recordChange(methodElt);
+                }
                 break;
             }
         }
@@ -322,8 +427,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
         // TODO: For a primitive such as long, this is yielding just @GuardedBy rather than
         // @GuardedBy({}).
         AnnotatedTypeMirror rhsATM = atf.getAnnotatedType(rhs.getTree());
-        storage.updateAnnotationSetInScene(
-                field.type, atf, jaifPath, rhsATM, lhsATM, TypeUseLocation.FIELD);
+        if (storage.updateAnnotationSetInScene(
+                field.type, atf, jaifPath, rhsATM, lhsATM, TypeUseLocation.FIELD)) {
+            recordChange(element);
+        }
     }
 
     /**
@@ -379,8 +486,10 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
 
         // Type of the expression returned
         AnnotatedTypeMirror rhsATM = atf.getAnnotatedType(retNode.getTree().getExpression());
-        storage.updateAnnotationSetInScene(
-                method.returnType, atf, jaifPath, rhsATM, lhsATM, TypeUseLocation.RETURN);
+        if (storage.updateAnnotationSetInScene(
+                method.returnType, atf, jaifPath, rhsATM, lhsATM, TypeUseLocation.RETURN)) {
+            recordChange(methodElt);
+        }
 
         // Now, update return types of overridden methods based on the implementation we just saw.
         // This inference is similar to the inference procedure for method parameters: both are
@@ -422,13 +531,15 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
             overriddenMethodInSuperclass.setFieldsFromMethodElement(overriddenMethodElement);
             AnnotatedTypeMirror overriddenMethodReturnType = overriddenMethod.getReturnType();
 
-            storage.updateAnnotationSetInScene(
+            if (storage.updateAnnotationSetInScene(
                     overriddenMethodInSuperclass.returnType,
                     atf,
                     superJaifPath,
                     rhsATM,
                     overriddenMethodReturnType,
-                    TypeUseLocation.RETURN);
+                    TypeUseLocation.RETURN)) {
+                recordChange(overriddenMethodElement);
+            }
         }
     }
 
@@ -438,6 +549,162 @@ public class WholeProgramInferenceScenes implements WholeProgramInference {
         storage.writeScenes(outputFormat, checker);
     }
 
+    @Override
+    public void recordRead(Element elt, CompilationUnitTree root) {
+        if (root != currentRoot) {
+            currentRoot = root;
+            elementsRead.clear();
+            unitsRead.add(root.getSourceFile().getName());
+        }
+        if (!elementsRead.add(elt) || !ElementUtils.isElementFromSourceCode(elt)) {
+            return;
+        }
+        String key = elementKey(elt);
+        if (key != null) {
+            readers.computeIfAbsent(key, k -> new HashSet<>())
+                    .add(root.getSourceFile().getName());
+        }
+    }
+
+    @Override
+    public Set<String> getCompilationUnitsToRecheck() {
+        Map<String, Set<String>> allReaders = getAllReaders();
+        Set<String> result = new TreeSet<>();
+        for (String key : changedElements) {
+            Set<String> readersOfKey = allReaders.get(key);
+            if (readersOfKey != null) {
+                result.addAll(readersOfKey);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void writeReadersToFile() throws IOException {
+        if (readersFile == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : getAllReaders().entrySet()) {
+            lines.add(entry.getKey() + "\t" + String.join("\t", entry.getValue()));
+        }
+        Path file = Paths.get(readersFile);
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the reads of earlier compilations into {@link #previousReaders}. Each line of the file
+     * is the key of a field or method, followed by the names of the source files of the
+     * compilation units that read its declared type, separated by tabs. Does nothing if the file
+     * does not exist.
+     *
+     * @param filename the file written by {@link #writeReadersToFile} in an earlier compilation
+     */
+    private void readReaders(String filename) {
+        Path file = Paths.get(filename);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                Set<String> readersOfKey =
+                        previousReaders.computeIfAbsent(fields[0], k -> new TreeSet<>());
+                readersOfKey.addAll(Arrays.asList(fields).subList(1, fields.length));
+            }
+        } catch (IOException e) {
+            throw new UserError("Problem while reading %s: %s", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the reads of this and earlier compilations: the reads recorded by this compilation,
+     * and the reads in {@link #previousReaders} by compilation units that this compilation did not
+     * type-check.
+     *
+     * @return a map from the key of each field and method to the names of the source files of the
+     *     compilation units that read its declared type, sorted by key and by name
+     */
+    private Map<String, Set<String>> getAllReaders() {
+        Map<String, Set<String>> result = new TreeMap<>();
+        for (Map.Entry<String, Set<String>> entry : previousReaders.entrySet()) {
+            for (String reader : entry.getValue()) {
+                if (!unitsRead.contains(reader)) {
+                    result.computeIfAbsent(entry.getKey(), k -> new TreeSet<>()).add(reader);
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : readers.entrySet()) {
+            result.computeIfAbsent(entry.getKey(), k -> new TreeSet<>()).addAll(entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the compilation units that read the declared type of each field and method in this
+     * compilation: a map from the key of each field and method (see {@link #elementKey}) to the
+     * names of the source files of the compilation units whose type-checking read its declared
+     * type.
+     *
+     * @return the compilation units that read the declared type of each field and method
+     */
+    public Map<String, Set<String>> getReaders() {
+        return Collections.unmodifiableMap(readers);
+    }
+
+    /**
+     * Returns the keys (see {@link #elementKey}) of the fields and methods whose inferred types
+     * changed. A parameter, receiver, or return type counts as its method.
+     *
+     * @return the keys of the fields and methods whose inferred types changed
+     */
+    public Set<String> getChangedElements() {
+        return Collections.unmodifiableSet(changedElements);
+    }
+
+    /**
+     * Records that the inferred type of a field, or of the return type, receiver, or a parameter of
+     * a method, has changed.
+     *
+     * @param elt a field or method
+     */
+    private void recordChange(Element elt) {
+        String key = elementKey(elt);
+        if (key != null) {
+            changedElements.add(key);
+        }
+    }
+
+    /**
+     * Returns the key of an element in {@link #readers} and {@link #changedElements}: the binary
+     * name of its class, followed by the name of a field or the JVM signature of a method. A
+     * parameter has the key of its method. Keys are strings so that they can be compared across
+     * compilations.
+     *
+     * @param elt an element
+     * @return the key of {@code elt}, or null if whole-program inference infers no types for it
+     */
+    private static @Nullable String elementKey(Element elt) {
+        switch (elt.getKind()) {
+            case FIELD:
+                return ((VarSymbol) elt).enclClass().flatName() + "#" + elt.getSimpleName();
+            case METHOD:
+            case CONSTRUCTOR:
+                return ((MethodSymbol) elt).enclClass().flatName()
+                        + "#"
+                        + JVMNames.getJVMMethodSignature((ExecutableElement) elt);
+            case PARAMETER:
+                Element enclosing = elt.getEnclosingElement();
+                return enclosing instanceof ExecutableElement ? elementKey(enclosing) : null;
+            default:
+                return null;
+        }
+    }
+
     /**
      * Returns the "flatname" of the class enclosing {@code localVariableNode}
      *
@@ -5,9 +5,11 @@ import com.sun.tools.javac.code.TypeAnnotationPosition;
 import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Target;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.AnnotationMirror;
@@ -55,7 +57,7 @@ import scenelib.annotations.io.IndexFileParser;
 public class WholeProgramInferenceScenesStorage {
 
     /** Annotations that should not be output to a .jaif or stub file. */
-    private final AnnotationsInContexts annosToIgnore = new AnnotationsInContexts();
+    private final AnnotationsInContexts annosToIgnore;
 
     /**
      * Directory where .jaif files will be written to and read from. This directory is relative to
@@ -82,6 +84,14 @@ public class WholeProgramInferenceScenesStorage {
      */
     private final Set<String> modifiedScenes = new HashSet<>();
 
+    /**
+     * Directory from which Scenes are read and to which they are also written as .jaif files,
+     * including the annotations in {@link #annosToIgnore}, or null to read Scenes from {@link
+     * #JAIF_FILES_PATH}. Keeping the Scenes in files lets a later compilation continue from them
+     * without keeping this object, and the javac symbols that it refers to, alive.
+     */
+    private final @Nullable String sceneDirectory;
+
     /**
      * Default constructor.
      *
@@ -89,7 +99,26 @@ public class WholeProgramInferenceScenesStorage {
      *     ignored
      */
     public WholeProgramInferenceScenesStorage(boolean ignoreNullAssignments) {
+        this(ignoreNullAssignments, null, new AnnotationsInContexts());
+    }
+
+    /**
+     * Creates a storage that reads its Scenes from, and writes them to, the given directory.
+     *
+     * @param ignoreNullAssignments indicates whether assignments where the rhs is null should be
+     *     ignored
+     * @param sceneDirectory the directory from which Scenes are read and to which they are written
+     *     as .jaif files, or null to read Scenes from {@link #JAIF_FILES_PATH}
+     * @param annosToIgnore the annotations that should not be output to a .jaif or stub file, which
+     *     this storage adds to
+     */
+    public WholeProgramInferenceScenesStorage(
+            boolean ignoreNullAssignments,
+            @Nullable String sceneDirectory,
+            AnnotationsInContexts annosToIgnore) {
         this.ignoreNullAssignments = ignoreNullAssignments;
+        this.sceneDirectory = sceneDirectory;
+        this.annosToIgnore = annosToIgnore;
     }
 
     /**
@@ -109,9 +138,33 @@ public class WholeProgramInferenceScenesStorage {
         for (String jaifPath : modifiedScenes) {
             scenes.get(jaifPath).writeToFile(jaifPath, annosToIgnore, outputFormat, checker);
         }
+        if (sceneDirectory != null) {
+            new File(sceneDirectory).mkdirs();
+            for (String jaifPath : modifiedScenes) {
+                // Keep the ignored annotations, which later LUBs are computed from.
+                scenes.get(jaifPath)
+                        .writeToFile(
+                                getScenePath(jaifPath),
+                                new AnnotationsInContexts(),
+                                OutputFormat.JAIF,
+                                checker);
+            }
+        }
         modifiedScenes.clear();
     }
 
+    /**
+     * Returns the file, next to the .jaif files in {@link #JAIF_FILES_PATH}, in which the given
+     * checker keeps the compilation units that read the declared type of each field and method from
+     * one compilation to the next.
+     *
+     * @param checker a checker
+     * @return the path of the file that holds the reads recorded by {@code checker}
+     */
+    public static String getReadersPath(BaseTypeChecker checker) {
+        return JAIF_FILES_PATH + checker.getClass().getName() + ".readers";
+    }
+
     /**
      * Returns the String representing the .jaif path of a class given its name.
      *
@@ -123,6 +176,20 @@ public class WholeProgramInferenceScenesStorage {
         return jaifPath;
     }
 
+    /**
+     * Returns the path of the file from which the Scene for the given .jaif path is read: {@code
+     * jaifPath} itself, or the file of the same name in {@link #sceneDirectory}.
+     *
+     * @param jaifPath the path to a .jaif file
+     * @return the path of the file from which the Scene for {@code jaifPath} is read
+     */
+    private String getScenePath(String jaifPath) {
+        if (sceneDirectory == null) {
+            return jaifPath;
+        }
+        return new File(sceneDirectory, new File(jaifPath).getName()).getPath();
+    }
+
     /**
      * Reads a Scene from the given .jaif file, or returns an empty Scene if the file does not
      * exist.
@@ -133,13 +200,14 @@ public class WholeProgramInferenceScenesStorage {
     protected ASceneWrapper getScene(String jaifPath) {
         AScene scene;
         if (!scenes.containsKey(jaifPath)) {
-            File jaifFile = new File(jaifPath);
+            String scenePath = getScenePath(jaifPath);
+            File jaifFile = new File(scenePath);
             scene = new AScene();
             if (jaifFile.exists()) {
                 try {
-                    IndexFileParser.parseFile(jaifPath, scene);
+                    IndexFileParser.parseFile(scenePath, scene);
                 } catch (IOException e) {
-                    throw new UserError("Problem while reading %s: %s", jaifPath, e.getMessage());
+                    throw new UserError("Problem while reading %s: %s", scenePath, e.getMessage());
                 }
             }
             ASceneWrapper wrapper = new ASceneWrapper(scene);
@@ -203,8 +271,9 @@ public class WholeProgramInferenceScenesStorage {
      * @param rhsATM the RHS of the annotated type on the source code
      * @param lhsATM the LHS of the annotated type on the source code
      * @param defLoc the location where the annotation will be added
+     * @return true if the annotations in {@code type} changed
      */
-    protected void updateAnnotationSetInScene(
+    protected boolean updateAnnotationSetInScene(
             ATypeElement type,
             AnnotatedTypeFactory atf,
             String jaifPath,
@@ -212,7 +281,7 @@ public class WholeProgramInferenceScenesStorage {
             AnnotatedTypeMirror lhsATM,
             TypeUseLocation defLoc) {
         if (rhsATM instanceof AnnotatedNullType && ignoreNullAssignments) {
-            return;
+            return false;
         }
         AnnotatedTypeMirror atmFromJaif =
                 AnnotatedTypeMirror.createType(rhsATM.getUnderlyingType(), atf, false);
@@ -225,11 +294,30 @@ public class WholeProgramInferenceScenesStorage {
             // current type on the source code, halt.
             if (upperAnnos.size() == rhsATM.getAnnotations().size()
                     && atf.getQualifierHierarchy().isSubtype(rhsATM.getAnnotations(), upperAnnos)) {
-                return;
+                return false;
             }
         }
+        List<Object> previousAnnotations = annotationsIn(type);
         updateTypeElementFromATM(rhsATM, lhsATM, atf, type, 1, defLoc);
         modifiedScenes.add(jaifPath);
+        return !previousAnnotations.equals(annotationsIn(type));
+    }
+
+    /**
+     * Returns the annotations on an {@link scenelib.annotations.el.ATypeElement} and on its inner
+     * types, in a form that can be compared with {@code equals}.
+     *
+     * @param type an ATypeElement
+     * @return the annotations on {@code type} and on its inner types, with their locations
+     */
+    private static List<Object> annotationsIn(ATypeElement type) {
+        List<Object> result = new ArrayList<>();
+        result.add(new HashSet<>(type.tlAnnotationsHere));
+        for (Map.Entry<InnerTypeLocation, ATypeElement> innerType : type.innerTypes.entrySet()) {
+            result.add(innerType.getKey());
+            result.add(annotationsIn(innerType.getValue()));
+        }
+        return result;
     }
 
     /**
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Set;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -31,6 +32,7 @@ import scenelib.annotations.el.AScene;
 import scenelib.annotations.el.ATypeElement;
 import scenelib.annotations.el.DefException;
 import scenelib.annotations.io.IndexFileWriter;
+import scenelib.annotations.util.JVMNames;
 
 /**
  * scene-lib (from the Annotation File Utilities) doesn't provide enough information to usefully
@@ -218,6 +220,48 @@ public class ASceneWrapper {
         } while (outerClass != null && !previous.equals(outerClass));
 
         aClass.setTypeElement(classSymbol);
+        updateMemberSymbolInformation(aClass, classSymbol);
+    }
+
+    /**
+     * Sets the symbol information of the fields and methods of {@code aClass} that lack it because
+     * they were read from a .jaif file rather than updated by whole-program inference, so that they
+     * can be printed in a stub file.
+     *
+     * @param aClass the class representation in which the symbol information is to be updated
+     * @param classSymbol the source of the symbol information
+     */
+    private static void updateMemberSymbolInformation(AClass aClass, ClassSymbol classSymbol) {
+        for (Element member : classSymbol.getEnclosedElements()) {
+            switch (member.getKind()) {
+                case FIELD:
+                    AField field = aClass.fields.get(member.getSimpleName().toString());
+                    if (field != null && field.getTypeMirror() == null) {
+                        field.setTypeMirror(member.asType());
+                    }
+                    break;
+                case METHOD:
+                case CONSTRUCTOR:
+                    ExecutableElement methodElt = (ExecutableElement) member;
+                    AMethod method =
+                            aClass.methods.get(JVMNames.getJVMMethodSignature(methodElt));
+                    if (method == null || method.getTypeParameters() != null) {
+                        break;
+                    }
+                    method.setFieldsFromMethodElement(methodElt);
+                    List<? extends VariableElement> params = methodElt.getParameters();
+                    for (Integer i : new ArrayList<>(method.getParameters().keySet())) {
+                        if (i < params.size()) {
+                            VariableElement ve = params.get(i);
+                            method.vivifyAndAddTypeMirrorToParameter(
+                                    i, ve.asType(), ve.getSimpleName());
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
     }
 
     /**
@@ -113,6 +113,23 @@ public abstract class CFAbstractAnalysis<
         return fieldValues;
     }
 
+    /**
+     * Returns the largest number of expressions in any store before a basic block, in the most
+     * recent analysis.
+     *
+     * @return the size of the largest store before a basic block
+     */
+    public int getMaxStoreSize() {
+        int result = 0;
+        for (S store : thenStores.values()) {
+            result = Math.max(result, store.size());
+        }
+        for (S store : elseStores.values()) {
+            result = Math.max(result, store.size());
+        }
+        return result;
+    }
+
     /**
      * Returns the transfer function to be used by the analysis.
      *
@@ -1,10 +1,10 @@
 package org.checkerframework.framework.flow;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.function.BiFunction;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
@@ -38,6 +38,7 @@ import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.PersistentHashMap;
 import org.plumelib.util.UniqueId;
 
 /**
@@ -62,7 +63,7 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     protected final CFAbstractAnalysis<V, S, ?> analysis;
 
     /** Information collected about local variables (including method arguments). */
-    protected final Map<FlowExpressions.LocalVariable, V> localVariableValues;
+    protected PersistentHashMap<FlowExpressions.LocalVariable, V> localVariableValues;
 
     /** Information collected about the current object. */
     protected V thisValue;
@@ -70,24 +71,24 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     /**
      * Information collected about fields, using the internal representation {@link FieldAccess}.
      */
-    protected Map<FlowExpressions.FieldAccess, V> fieldValues;
+    protected PersistentHashMap<FlowExpressions.FieldAccess, V> fieldValues;
 
     /**
      * Information collected about arrays, using the internal representation {@link ArrayAccess}.
      */
-    protected Map<FlowExpressions.ArrayAccess, V> arrayValues;
+    protected PersistentHashMap<FlowExpressions.ArrayAccess, V> arrayValues;
 
     /**
      * Information collected about method calls, using the internal representation {@link
      * MethodCall}.
      */
-    protected Map<FlowExpressions.MethodCall, V> methodValues;
+    protected PersistentHashMap<FlowExpressions.MethodCall, V> methodValues;
 
     /**
      * Information collected about <i>classname</i>.class values, using the internal representation
      * {@link ClassName}.
      */
-    protected Map<FlowExpressions.ClassName, V> classValues;
+    protected PersistentHashMap<FlowExpressions.ClassName, V> classValues;
 
     /**
      * Should the analysis use sequential Java semantics (i.e., assume that only one thread is
@@ -109,24 +110,24 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
 
     protected CFAbstractStore(CFAbstractAnalysis<V, S, ?> analysis, boolean sequentialSemantics) {
         this.analysis = analysis;
-        localVariableValues = new HashMap<>();
+        localVariableValues = new PersistentHashMap<>();
         thisValue = null;
-        fieldValues = new HashMap<>();
-        methodValues = new HashMap<>();
-        arrayValues = new HashMap<>();
-        classValues = new HashMap<>();
+        fieldValues = new PersistentHashMap<>();
+        methodValues = new PersistentHashMap<>();
+        arrayValues = new PersistentHashMap<>();
+        classValues = new PersistentHashMap<>();
         this.sequentialSemantics = sequentialSemantics;
     }
 
     /** Copy constructor. */
     protected CFAbstractStore(CFAbstractStore<V, S> other) {
         this.analysis = other.analysis;
-        localVariableValues = new HashMap<>(other.localVariableValues);
+        localVariableValues = new PersistentHashMap<>(other.localVariableValues);
         thisValue = other.thisValue;
-        fieldValues = new HashMap<>(other.fieldValues);
-        methodValues = new HashMap<>(other.methodValues);
-        arrayValues = new HashMap<>(other.arrayValues);
-        classValues = new HashMap<>(other.classValues);
+        fieldValues = new PersistentHashMap<>(other.fieldValues);
+        methodValues = new PersistentHashMap<>(other.methodValues);
+        arrayValues = new PersistentHashMap<>(other.arrayValues);
+        classValues = new PersistentHashMap<>(other.classValues);
         sequentialSemantics = other.sequentialSemantics;
     }
 
@@ -198,7 +199,8 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
                 || analysis.checker.hasOption("assumePure")
                 || isSideEffectFree(atypeFactory, method))) {
             // update field values
-            Map<FlowExpressions.FieldAccess, V> newFieldValues = new HashMap<>();
+            PersistentHashMap<FlowExpressions.FieldAccess, V> newFieldValues =
+                    new PersistentHashMap<>();
             for (Map.Entry<FlowExpressions.FieldAccess, V> e : fieldValues.entrySet()) {
                 FlowExpressions.FieldAccess fieldAccess = e.getKey();
                 V otherVal = e.getValue();
@@ -855,6 +857,20 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
     /* Helper and miscellaneous methods */
     /* --------------------------------------------------------- */
 
+    /**
+     * Returns the number of expressions about which this store has information.
+     *
+     * @return the number of expressions about which this store has information
+     */
+    public int size() {
+        return localVariableValues.size()
+                + (thisValue == null ? 0 : 1)
+                + fieldValues.size()
+                + arrayValues.size()
+                + methodValues.size()
+                + classValues.size();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public S copy() {
@@ -873,22 +889,13 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
 
     private S upperBound(S other, boolean shouldWiden) {
         S newStore = analysis.createEmptyStore(sequentialSemantics);
-
-        for (Map.Entry<FlowExpressions.LocalVariable, V> e : other.localVariableValues.entrySet()) {
-            // local variables that are only part of one store, but not the
-            // other are discarded, as one of store implicitly contains 'top'
-            // for that variable.
-            FlowExpressions.LocalVariable localVar = e.getKey();
-            V thisVal = localVariableValues.get(localVar);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-
-                if (mergedVal != null) {
-                    newStore.localVariableValues.put(localVar, mergedVal);
-                }
-            }
-        }
+        // Expressions that are only part of one store, but not the other, are discarded, as one
+        // store implicitly contains 'top' for them. Where no value changes, the maps of the new
+        // store share the nodes of this store.
+        BiFunction<V, V, V> merge =
+                (thisVal, otherVal) -> upperBoundOfValues(otherVal, thisVal, shouldWiden);
+        newStore.localVariableValues =
+                localVariableValues.intersect(other.localVariableValues, merge);
 
         // information about the current object
         {
@@ -900,59 +907,10 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
             }
         }
 
-        for (Map.Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues.entrySet()) {
-            // information about fields that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that field.
-            FlowExpressions.FieldAccess el = e.getKey();
-            V thisVal = fieldValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.fieldValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Map.Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues.entrySet()) {
-            // information about arrays that are only part of one store, but not
-            // the other are discarded, as one store implicitly contains 'top'
-            // for that array access.
-            FlowExpressions.ArrayAccess el = e.getKey();
-            V thisVal = arrayValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.arrayValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Map.Entry<MethodCall, V> e : other.methodValues.entrySet()) {
-            // information about methods that are only part of one store, but
-            // not the other are discarded, as one store implicitly contains
-            // 'top' for that field.
-            FlowExpressions.MethodCall el = e.getKey();
-            V thisVal = methodValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.methodValues.put(el, mergedVal);
-                }
-            }
-        }
-        for (Map.Entry<FlowExpressions.ClassName, V> e : other.classValues.entrySet()) {
-            FlowExpressions.ClassName el = e.getKey();
-            V thisVal = classValues.get(el);
-            if (thisVal != null) {
-                V otherVal = e.getValue();
-                V mergedVal = upperBoundOfValues(otherVal, thisVal, shouldWiden);
-                if (mergedVal != null) {
-                    newStore.classValues.put(el, mergedVal);
-                }
-            }
-        }
+        newStore.fieldValues = fieldValues.intersect(other.fieldValues, merge);
+        newStore.arrayValues = arrayValues.intersect(other.arrayValues, merge);
+        newStore.methodValues = methodValues.intersect(other.methodValues, merge);
+        newStore.classValues = classValues.intersect(other.classValues, merge);
         return newStore;
     }
 
@@ -964,45 +922,15 @@ public abstract class CFAbstractStore<V extends CFAbstractValue<V>, S extends CF
      * Returns true iff this {@link CFAbstractStore} contains a superset of the map entries of the
      * argument {@link CFAbstractStore}. Note that we test the entry keys and values by Java
      * equality, not by any subtype relationship. This method is used primarily to simplify the
-     * equals predicate.
+     * equals predicate. Parts of the maps that the two stores share, because one was copied from
+     * the other, are not compared.
      */
     protected boolean supersetOf(CFAbstractStore<V, S> other) {
-        for (Map.Entry<FlowExpressions.LocalVariable, V> e : other.localVariableValues.entrySet()) {
-            FlowExpressions.LocalVariable key = e.getKey();
-            V value = localVariableValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<FlowExpressions.FieldAccess, V> e : other.fieldValues.entrySet()) {
-            FlowExpressions.FieldAccess key = e.getKey();
-            V value = fieldValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<FlowExpressions.ArrayAccess, V> e : other.arrayValues.entrySet()) {
-            FlowExpressions.ArrayAccess key = e.getKey();
-            V value = arrayValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<MethodCall, V> e : other.methodValues.entrySet()) {
-            FlowExpressions.MethodCall key = e.getKey();
-            V value = methodValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        for (Map.Entry<FlowExpressions.ClassName, V> e : other.classValues.entrySet()) {
-            FlowExpressions.ClassName key = e.getKey();
-            V value = classValues.get(key);
-            if (value == null || !value.equals(e.getValue())) {
-                return false;
-            }
-        }
-        return true;
+        return localVariableValues.containsAllEntriesOf(other.localVariableValues)
+                && fieldValues.containsAllEntriesOf(other.fieldValues)
+                && arrayValues.containsAllEntriesOf(other.arrayValues)
+                && methodValues.containsAllEntriesOf(other.methodValues)
+                && classValues.containsAllEntriesOf(other.classValues);
     }
 
     @Override
@@ -9,6 +9,8 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.VariableElement;
@@ -41,6 +43,19 @@ public class CFCFGBuilder extends CFGBuilder {
             BaseTypeChecker checker,
             AnnotatedTypeFactory factory,
             ProcessingEnvironment env) {
+        return build(root, underlyingAST, createTranslationPhaseOne(checker, factory, env));
+    }
+
+    /**
+     * Creates the first phase of the translation of code to a control flow graph.
+     *
+     * @param checker the checker
+     * @param factory the type factory of {@code checker}
+     * @param env the processing environment
+     * @return the first phase of the translation
+     */
+    static CFCFGTranslationPhaseOne createTranslationPhaseOne(
+            BaseTypeChecker checker, AnnotatedTypeFactory factory, ProcessingEnvironment env) {
         boolean assumeAssertionsEnabled = checker.hasOption("assumeAssertionsAreEnabled");
         boolean assumeAssertionsDisabled = checker.hasOption("assumeAssertionsAreDisabled");
         if (assumeAssertionsEnabled && assumeAssertionsDisabled) {
@@ -49,15 +64,23 @@ public class CFCFGBuilder extends CFGBuilder {
         }
 
         CFTreeBuilder builder = new CFTreeBuilder(env);
-        PhaseOneResult phase1result =
-                new CFCFGTranslationPhaseOne(
-                                builder,
-                                checker,
-                                factory,
-                                assumeAssertionsEnabled,
-                                assumeAssertionsDisabled,
-                                env)
-                        .process(root, underlyingAST);
+        return new CFCFGTranslationPhaseOne(
+                builder, checker, factory, assumeAssertionsEnabled, assumeAssertionsDisabled, env);
+    }
+
+    /**
+     * Build the control flow graph of some code, using the given first phase of the translation.
+     *
+     * @param root the compilation unit that contains the code
+     * @param underlyingAST the code
+     * @param phaseOne the first phase of the translation
+     * @return the control flow graph of the code
+     */
+    static ControlFlowGraph build(
+            CompilationUnitTree root,
+            UnderlyingAST underlyingAST,
+            CFCFGTranslationPhaseOne phaseOne) {
+        PhaseOneResult phase1result = phaseOne.process(root, underlyingAST);
         ControlFlowGraph phase2result = CFGTranslationPhaseTwo.process(phase1result);
         ControlFlowGraph phase3result = CFGTranslationPhaseThree.process(phase2result);
         return phase3result;
@@ -91,6 +114,16 @@ public class CFCFGBuilder extends CFGBuilder {
         /** Type factory to provide types used during CFG building. */
         protected final AnnotatedTypeFactory factory;
 
+        /** The artificial trees that this translation created, and their enclosing elements. */
+        protected final Map<Tree, Element> artificialTrees = new HashMap<>();
+
+        /**
+         * True if the control flow graph depends on the checker or its type factory, other than
+         * through {@link #artificialTrees}: it contains variables whose types were computed by the
+         * type factory, or assertions that the checker's warning suppression prefixes affect.
+         */
+        protected boolean isCheckerSpecific = false;
+
         public CFCFGTranslationPhaseOne(
                 CFTreeBuilder builder,
                 BaseTypeChecker checker,
@@ -105,6 +138,10 @@ public class CFCFGBuilder extends CFGBuilder {
 
         @Override
         protected boolean assumeAssertionsEnabledFor(AssertTree tree) {
+            ExpressionTree detail = tree.getDetail();
+            if (detail != null && detail.toString().contains("@AssumeAssertion(")) {
+                isCheckerSpecific = true;
+            }
             if (assumeAssertionsActivatedForAssertTree(checker, tree)) {
                 return true;
             }
@@ -118,11 +155,13 @@ public class CFCFGBuilder extends CFGBuilder {
             if (enclosingMethod != null) {
                 Element methodElement = TreeUtils.elementFromDeclaration(enclosingMethod);
                 factory.setEnclosingElementForArtificialTree(tree, methodElement);
+                artificialTrees.put(tree, methodElement);
             } else {
                 ClassTree enclosingClass = TreeUtils.enclosingClass(getCurrentPath());
                 if (enclosingClass != null) {
                     Element classElement = TreeUtils.elementFromDeclaration(enclosingClass);
                     factory.setEnclosingElementForArtificialTree(tree, classElement);
+                    artificialTrees.put(tree, classElement);
                 }
             }
         }
@@ -130,6 +169,7 @@ public class CFCFGBuilder extends CFGBuilder {
         @Override
         protected VariableTree createEnhancedForLoopIteratorVariable(
                 MethodInvocationTree iteratorCall, VariableElement variableElement) {
+            isCheckerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
@@ -154,6 +194,7 @@ public class CFCFGBuilder extends CFGBuilder {
         @Override
         protected VariableTree createEnhancedForLoopArrayVariable(
                 ExpressionTree expression, VariableElement variableElement) {
+            isCheckerSpecific = true;
             // We do not want to cache flow-insensitive types
             // retrieved during CFG building.
             boolean oldShouldCache = factory.shouldCache;
@@ -0,0 +1,201 @@
+package org.checkerframework.framework.flow;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.util.Context;
+import java.util.Collections;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.framework.flow.CFCFGBuilder.CFCFGTranslationPhaseOne;
+import org.checkerframework.framework.source.SourceChecker;
+import org.checkerframework.framework.type.AnnotatedTypeFactory;
+import org.checkerframework.framework.util.PerformanceStatistics;
+import org.checkerframework.javacutil.CollectionUtils;
+import org.checkerframework.javacutil.WeightedLRUCache;
+
+/**
+ * Control flow graphs that all checkers in one run of javac share, so that each method, lambda,
+ * and initializer is translated once rather than once per checker. For example, the Index Checker
+ * runs seven subcheckers, which all analyze every method, and {@code -processor
+ * NullnessChecker,InterningChecker} runs two checkers that do. {@link
+ * SourceChecker#getCFGCache()} returns the cache.
+ *
+ * <p>A control flow graph is shared only if its translation did not depend on the checker that
+ * requested it. The translation of an enhanced {@code for} loop declares a variable whose type is
+ * computed by the type factory, and whether an {@code assert} statement whose message contains
+ * {@code @AssumeAssertion} is assumed to hold depends on the checker's warning suppression
+ * prefixes; such graphs are built anew for each checker. So are graphs that were built with
+ * different {@code -AassumeAssertionsAreEnabled} and {@code -AassumeAssertionsAreDisabled}
+ * options. The artificial trees of a shared graph are registered with each type factory that uses
+ * the graph. Dataflow analysis does not modify a control flow graph, so several checkers can
+ * analyze the same graph; clients must not modify a graph that they obtain from the cache. The
+ * checkers that share a cache must agree on which methods are annotated as {@code
+ * TerminatesExecution}.
+ *
+ * <p>The cache holds the graphs of the current compilation unit only: all checkers process a class
+ * before any of them processes the next one, so the graphs of a compilation unit are discarded
+ * when a checker requests a graph of another compilation unit. The cache is also bounded by the
+ * total number of nodes of its graphs, which the {@code -AcfgCacheWeight} command-line option sets.
+ */
+public class CFGCache {
+
+    /** The key of the cache in the javac context. */
+    private static final Context.Key<CFGCache> CFG_CACHE_KEY = new Context.Key<>();
+
+    /** The maximum number of graphs in the cache. */
+    private static final int MAX_SIZE = 10_000;
+
+    /**
+     * The maximum total number of nodes of the graphs in the cache; used if the {@code
+     * -AcfgCacheWeight} command-line option isn't specified.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 200_000;
+
+    /** A control flow graph, and what a type factory needs to use it. */
+    private static class SharedCFG {
+        /** The control flow graph, or null if it depends on the checker that built it. */
+        final @Nullable ControlFlowGraph cfg;
+
+        /** The artificial trees of {@link #cfg}, and their enclosing elements. */
+        final Map<Tree, Element> artificialTrees;
+
+        /** Whether the graph was built with {@code -AassumeAssertionsAreEnabled}. */
+        final boolean assumeAssertionsEnabled;
+
+        /** Whether the graph was built with {@code -AassumeAssertionsAreDisabled}. */
+        final boolean assumeAssertionsDisabled;
+
+        /** The number of nodes of {@link #cfg}. */
+        final int weight;
+
+        /**
+         * Creates a new SharedCFG.
+         *
+         * @param cfg the control flow graph
+         * @param phaseOne the first phase of the translation that built {@code cfg}
+         * @param checker the checker that built {@code cfg}
+         */
+        SharedCFG(
+                ControlFlowGraph cfg,
+                CFCFGTranslationPhaseOne phaseOne,
+                BaseTypeChecker checker) {
+            boolean isShared = !phaseOne.isCheckerSpecific;
+            this.cfg = isShared ? cfg : null;
+            this.artificialTrees = isShared ? phaseOne.artificialTrees : Collections.emptyMap();
+            this.assumeAssertionsEnabled = checker.hasOption("assumeAssertionsAreEnabled");
+            this.assumeAssertionsDisabled = checker.hasOption("assumeAssertionsAreDisabled");
+            this.weight = isShared ? cfg.getAllNodes().size() : 1;
+        }
+    }
+
+    /** The control flow graphs of {@link #currentRoot}, by the code they represent. */
+    private final WeightedLRUCache<Tree, SharedCFG> graphs;
+
+    /** The compilation unit of the graphs in {@link #graphs}. */
+    private @Nullable CompilationUnitTree currentRoot = null;
+
+    /** The number of control flow graphs that were shared. */
+    private long hits = 0;
+
+    /** The number of control flow graphs that were built. */
+    private long misses = 0;
+
+    /**
+     * Creates a new CFGCache.
+     *
+     * @param maxWeight the maximum total number of nodes of the graphs in the cache
+     */
+    protected CFGCache(long maxWeight) {
+        this.graphs = CollectionUtils.createLRUCache(MAX_SIZE, maxWeight, shared -> shared.weight);
+    }
+
+    /**
+     * Returns the cache of the given javac context, creating it if necessary.
+     *
+     * @param context the javac context
+     * @param maxWeight the maximum total number of nodes of the graphs in the cache, if this call
+     *     creates it
+     * @return the cache of {@code context}
+     */
+    public static CFGCache instance(Context context, long maxWeight) {
+        CFGCache instance = context.get(CFG_CACHE_KEY);
+        if (instance == null) {
+            instance = new CFGCache(maxWeight);
+            context.put(CFG_CACHE_KEY, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the control flow graph of some code. If another checker already built the graph,
+     * and the graph does not depend on the checker, returns the same graph and registers its
+     * artificial trees with {@code factory}.
+     *
+     * @param root the compilation unit that contains the code
+     * @param underlyingAST the code
+     * @param checker the checker that requests the graph
+     * @param factory the type factory of {@code checker}
+     * @param env the processing environment
+     * @return the control flow graph of the code
+     */
+    public ControlFlowGraph build(
+            CompilationUnitTree root,
+            UnderlyingAST underlyingAST,
+            BaseTypeChecker checker,
+            AnnotatedTypeFactory factory,
+            ProcessingEnvironment env) {
+        if (root != currentRoot) {
+            // Every checker is done with the previous compilation unit.
+            graphs.clear();
+            currentRoot = root;
+        }
+        Tree code = underlyingAST.getCode();
+        SharedCFG shared = graphs.get(code);
+        if (shared != null
+                && shared.cfg != null
+                && shared.assumeAssertionsEnabled
+                        == checker.hasOption("assumeAssertionsAreEnabled")
+                && shared.assumeAssertionsDisabled
+                        == checker.hasOption("assumeAssertionsAreDisabled")) {
+            hits++;
+            for (Map.Entry<Tree, Element> artificialTree : shared.artificialTrees.entrySet()) {
+                factory.setEnclosingElementForArtificialTree(
+                        artificialTree.getKey(), artificialTree.getValue());
+            }
+            return shared.cfg;
+        }
+        misses++;
+        CFCFGTranslationPhaseOne phaseOne =
+                CFCFGBuilder.createTranslationPhaseOne(checker, factory, env);
+        ControlFlowGraph cfg = CFCFGBuilder.build(root, underlyingAST, phaseOne);
+        if (shared == null) {
+            graphs.put(code, new SharedCFG(cfg, phaseOne, checker));
+        }
+        return cfg;
+    }
+
+    /**
+     * Discards all control flow graphs. {@link #build} already discards the graphs of a compilation
+     * unit when a graph of another compilation unit is requested, that is, after every checker has
+     * type-checked the compilation unit; so a client only needs to call this to release the graphs
+     * of the last compilation unit early.
+     */
+    public void clear() {
+        graphs.clear();
+        currentRoot = null;
+    }
+
+    /**
+     * Records the number of control flow graphs that were shared and built.
+     *
+     * @param performanceStatistics where to record the counts
+     */
+    public void recordStatistics(PerformanceStatistics performanceStatistics) {
+        performanceStatistics.recordCache("CFGCache", hits, misses);
+    }
+}
@@ -0,0 +1,773 @@
+package org.checkerframework.framework.source;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeInfo;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.UnionType;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.ElementUtils;
+
+/**
+ * Records, for each top-level class, a fingerprint of everything that type-checking the class
+ * depends on and the diagnostics that type-checking it produced, so that a later compilation can
+ * replay the diagnostics instead of type-checking an unchanged class again. The records are kept
+ * in the file named by the {@code -AincrementalCheckingFile} command-line option.
+ *
+ * <p>The fingerprint of a class is a digest of:
+ *
+ * <ul>
+ *   <li>the source code of its compilation unit, and
+ *   <li>the signatures of all classes that the compilation unit refers to, and of their
+ *       supertypes: their annotations, type parameters, supertypes, and the names, types,
+ *       modifiers, annotations, and constant values of their members. Annotations on the
+ *       enclosing classes and packages of those classes are included, because they can change
+ *       defaults.
+ * </ul>
+ *
+ * The whole file is discarded if the checker, its command-line options, its code, or the stub
+ * files passed via {@code -Astubs} change.
+ *
+ * <p>A class is recorded only if every error and warning that the compiler reported while
+ * type-checking it was a checker diagnostic about a tree in its compilation unit. In particular, a
+ * class is not recorded if the checker crashed or reported a diagnostic about an element.
+ *
+ * <p>When the cache is written, the entries of classes that were not part of the compilation are
+ * discarded, so that the file does not keep entries of classes that were deleted or renamed.
+ *
+ * <p>The fingerprint is conservative but not a proof of equivalence. For example, it does not
+ * include method bodies of other classes, which no checker in the Checker Framework reads, and it
+ * does not include stub files in the checker's own jar other than via the jar's timestamp.
+ */
+public class IncrementalCheckingCache {
+
+    /** The version of the file format; files written with a different version are ignored. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** An object that prints diagnostics that are replayed from the cache. */
+    public interface DiagnosticPrinter {
+        /**
+         * Print the given diagnostic.
+         *
+         * @param kind the kind of the diagnostic
+         * @param message the message text
+         * @param source the tree that the diagnostic is about
+         */
+        void print(Diagnostic.Kind kind, String message, Tree source);
+    }
+
+    /** A diagnostic issued while type-checking a class, located by the extent of its tree. */
+    private static class CachedDiagnostic {
+        /** The kind of the diagnostic. */
+        final Diagnostic.Kind kind;
+        /** The message text. */
+        final String message;
+        /** The kind of the tree that the diagnostic is about. */
+        final Tree.Kind treeKind;
+        /** The start position of the tree that the diagnostic is about. */
+        final long start;
+        /** The end position of the tree that the diagnostic is about. */
+        final long end;
+
+        /**
+         * Creates a new CachedDiagnostic.
+         *
+         * @param kind the kind of the diagnostic
+         * @param message the message text
+         * @param treeKind the kind of the tree that the diagnostic is about
+         * @param start the start position of the tree
+         * @param end the end position of the tree
+         */
+        CachedDiagnostic(
+                Diagnostic.Kind kind, String message, Tree.Kind treeKind, long start, long end) {
+            this.kind = kind;
+            this.message = message;
+            this.treeKind = treeKind;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** The fingerprint of a class and the diagnostics issued when it was type-checked. */
+    private static class Entry {
+        /** The fingerprint of the class. */
+        final String fingerprint;
+        /** The diagnostics issued for the class, in the order in which they were printed. */
+        final List<CachedDiagnostic> diagnostics;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param fingerprint the fingerprint of the class
+         * @param diagnostics the diagnostics issued for the class
+         */
+        Entry(String fingerprint, List<CachedDiagnostic> diagnostics) {
+            this.fingerprint = fingerprint;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /** The file from which the entries were read and to which they are written. */
+    private final File file;
+
+    /** Describes the checker and its configuration; entries are only valid for this environment. */
+    private final String environment;
+
+    /** The Trees instance of the current compilation. */
+    private final Trees trees;
+
+    /** Maps the fully-qualified name of a top-level class to its entry. */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /** Memoizes {@link #signature} within the current compilation. */
+    private final Map<TypeElement, String> signatures = new HashMap<>();
+
+    /** The name of the class whose diagnostics are being recorded, or null if none is. */
+    private @Nullable String recordingClass = null;
+
+    /** The fingerprint of {@link #recordingClass}. */
+    private @Nullable String recordingFingerprint = null;
+
+    /** The diagnostics recorded for {@link #recordingClass}. */
+    private final List<CachedDiagnostic> recordedDiagnostics = new ArrayList<>();
+
+    /** True if a diagnostic for {@link #recordingClass} could not be recorded. */
+    private boolean recordingFailed = false;
+
+    /** The names of the top-level classes in the current compilation. */
+    private final Set<String> seenClasses = new HashSet<>();
+
+    /** True if an entry has been added since the file was read. */
+    private boolean modified = false;
+
+    /**
+     * Creates an IncrementalCheckingCache for the given checker and reads the entries in the given
+     * file, if it exists and was written for the same checker configuration.
+     *
+     * @param checker the checker whose diagnostics are cached
+     * @param fileName the name of the file that stores the cache
+     */
+    public IncrementalCheckingCache(SourceChecker checker, String fileName) {
+        this.file = new File(fileName);
+        this.environment = environment(checker);
+        this.trees = Trees.instance(checker.getProcessingEnvironment());
+        if (file.exists()) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                read(new DataInputStream(in));
+            } catch (IOException | IllegalArgumentException e) {
+                // An unreadable or corrupt file is treated like a missing one.
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * If the given class is unchanged since it was recorded, prints the recorded diagnostics for
+     * it and returns true. Otherwise, starts recording the diagnostics for the class, which the
+     * caller must pass to {@link #record} as they are printed, and returns false.
+     *
+     * @param element the top-level class about to be type-checked
+     * @param path the path to the class
+     * @param printer prints a replayed diagnostic
+     * @return true if the recorded diagnostics were printed and the class need not be
+     *     type-checked
+     */
+    public boolean replayOrStartRecording(
+            TypeElement element, TreePath path, DiagnosticPrinter printer) {
+        String className = element.getQualifiedName().toString();
+        seenClasses.add(className);
+        CompilationUnitTree root = path.getCompilationUnit();
+        String fingerprint = fingerprint(className, root);
+
+        Entry entry = entries.get(className);
+        if (entry != null && entry.fingerprint.equals(fingerprint)) {
+            List<Tree> sources = findTrees(root, entry.diagnostics);
+            if (sources != null) {
+                for (int i = 0; i < sources.size(); i++) {
+                    CachedDiagnostic diagnostic = entry.diagnostics.get(i);
+                    printer.print(diagnostic.kind, diagnostic.message, sources.get(i));
+                }
+                return true;
+            }
+        }
+
+        recordingClass = className;
+        recordingFingerprint = fingerprint;
+        recordedDiagnostics.clear();
+        recordingFailed = false;
+        return false;
+    }
+
+    /**
+     * Records that the given top-level class is part of the current compilation even though it is
+     * not passed to {@link #replayOrStartRecording}, so that {@link #write()} keeps its entry.
+     *
+     * @param element a top-level class that is not type-checked in the current compilation
+     */
+    public void keep(TypeElement element) {
+        seenClasses.add(element.getQualifiedName().toString());
+    }
+
+    /**
+     * Records a diagnostic that was printed for the class passed to the last call to {@link
+     * #replayOrStartRecording}. Does nothing if that call replayed the diagnostics.
+     *
+     * @param kind the kind of the diagnostic
+     * @param message the message text
+     * @param source the tree that the diagnostic is about
+     * @param root the compilation unit that contains {@code source}
+     */
+    public void record(
+            Diagnostic.Kind kind, String message, Tree source, CompilationUnitTree root) {
+        if (recordingClass == null) {
+            return;
+        }
+        SourcePositions positions = trees.getSourcePositions();
+        long start = positions.getStartPosition(root, source);
+        long end = positions.getEndPosition(root, source);
+        if (start == Diagnostic.NOPOS) {
+            // The tree is synthetic and cannot be found again by its position.
+            recordingFailed = true;
+            return;
+        }
+        recordedDiagnostics.add(new CachedDiagnostic(kind, message, source.getKind(), start, end));
+    }
+
+    /**
+     * Finishes recording the diagnostics for the current class. The class is only added to the
+     * cache if the number of errors and warnings that the compiler reported while it was
+     * type-checked equals the number of recorded diagnostics of those kinds; otherwise some
+     * diagnostic was not recorded, for example because the checker crashed.
+     *
+     * @param errors the number of errors reported while type-checking the class
+     * @param warnings the number of warnings reported while type-checking the class
+     */
+    public void finishRecording(int errors, int warnings) {
+        if (recordingClass == null) {
+            return;
+        }
+        int recordedErrors = 0;
+        int recordedWarnings = 0;
+        for (CachedDiagnostic diagnostic : recordedDiagnostics) {
+            if (diagnostic.kind == Diagnostic.Kind.ERROR) {
+                recordedErrors++;
+            } else if (diagnostic.kind == Diagnostic.Kind.WARNING
+                    || diagnostic.kind == Diagnostic.Kind.MANDATORY_WARNING) {
+                recordedWarnings++;
+            }
+        }
+        if (!recordingFailed && errors == recordedErrors && warnings == recordedWarnings) {
+            entries.put(
+                    recordingClass,
+                    new Entry(recordingFingerprint, new ArrayList<>(recordedDiagnostics)));
+        } else {
+            entries.remove(recordingClass);
+        }
+        modified = true;
+        recordingClass = null;
+        recordingFingerprint = null;
+        recordedDiagnostics.clear();
+    }
+
+    /**
+     * Discards the entries of classes that were not part of the current compilation, and writes the
+     * cache to its file if any entry was added or discarded.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write() throws IOException {
+        if (entries.keySet().retainAll(seenClasses)) {
+            modified = true;
+        }
+        if (!modified) {
+            return;
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        // Write to a temporary file first, so that a concurrent or interrupted compilation never
+        // reads a partially written file.
+        File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp.toPath()))) {
+            write(new DataOutputStream(out));
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        modified = false;
+    }
+
+    /**
+     * Reads the entries from the given stream, unless it was written for a different environment.
+     *
+     * @param in the stream to read
+     * @throws IOException if the stream cannot be read
+     */
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION || !readString(in).equals(environment)) {
+            return;
+        }
+        int numEntries = in.readInt();
+        for (int i = 0; i < numEntries; i++) {
+            String className = readString(in);
+            String fingerprint = readString(in);
+            int numDiagnostics = in.readInt();
+            List<CachedDiagnostic> diagnostics = new ArrayList<>(numDiagnostics);
+            for (int j = 0; j < numDiagnostics; j++) {
+                Diagnostic.Kind kind = Diagnostic.Kind.valueOf(readString(in));
+                String message = readString(in);
+                Tree.Kind treeKind = Tree.Kind.valueOf(readString(in));
+                long start = in.readLong();
+                long end = in.readLong();
+                diagnostics.add(new CachedDiagnostic(kind, message, treeKind, start, end));
+            }
+            entries.put(className, new Entry(fingerprint, diagnostics));
+        }
+    }
+
+    /**
+     * Writes the environment and all entries to the given stream.
+     *
+     * @param out the stream to write
+     * @throws IOException if the stream cannot be written
+     */
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, environment);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            writeString(out, mapEntry.getKey());
+            writeString(out, entry.fingerprint);
+            out.writeInt(entry.diagnostics.size());
+            for (CachedDiagnostic diagnostic : entry.diagnostics) {
+                writeString(out, diagnostic.kind.name());
+                writeString(out, diagnostic.message);
+                writeString(out, diagnostic.treeKind.name());
+                out.writeLong(diagnostic.start);
+                out.writeLong(diagnostic.end);
+            }
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     *
+     * @param in the stream to read
+     * @return the string read from {@code in}
+     * @throws IOException if the stream cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a string of any length. ({@link DataOutputStream#writeUTF} is limited to 65535
+     * bytes.)
+     *
+     * @param out the stream to write
+     * @param s the string to write
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Returns, for each of the given diagnostics, the tree in the compilation unit that it is
+     * about.
+     *
+     * @param root a compilation unit
+     * @param diagnostics diagnostics recorded for a class in {@code root}
+     * @return the trees that the diagnostics are about, or null if some tree cannot be found
+     */
+    private @Nullable List<Tree> findTrees(
+            CompilationUnitTree root, List<CachedDiagnostic> diagnostics) {
+        if (diagnostics.isEmpty()) {
+            return Collections.emptyList();
+        }
+        SourcePositions positions = trees.getSourcePositions();
+        Map<String, Tree> treesByExtent = new HashMap<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (tree != null) {
+                    long start = positions.getStartPosition(root, tree);
+                    long end = positions.getEndPosition(root, tree);
+                    treesByExtent.putIfAbsent(extentKey(tree.getKind(), start, end), tree);
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(root, null);
+
+        List<Tree> result = new ArrayList<>(diagnostics.size());
+        for (CachedDiagnostic diagnostic : diagnostics) {
+            Tree tree =
+                    treesByExtent.get(
+                            extentKey(diagnostic.treeKind, diagnostic.start, diagnostic.end));
+            if (tree == null) {
+                return null;
+            }
+            result.add(tree);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a string that identifies a tree in a compilation unit.
+     *
+     * @param kind the kind of the tree
+     * @param start the start position of the tree
+     * @param end the end position of the tree
+     * @return a string that identifies the tree
+     */
+    private static String extentKey(Tree.Kind kind, long start, long end) {
+        return kind + ":" + start + ":" + end;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    /// Fingerprints
+    ///
+
+    /**
+     * Returns the fingerprint of the given top-level class.
+     *
+     * @param className the name of a top-level class
+     * @param root the compilation unit that contains the class
+     * @return the fingerprint of the class
+     */
+    private String fingerprint(String className, CompilationUnitTree root) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(className).append('\n');
+        try {
+            sb.append(root.getSourceFile().getCharContent(true)).append('\n');
+        } catch (IOException e) {
+            throw new BugInCF("Cannot read " + root.getSourceFile().getName(), e);
+        }
+        // Sort by name, so that the fingerprint does not depend on the order of the trees.
+        Map<String, TypeElement> referenced = new TreeMap<>();
+        for (TypeElement type : referencedTypes(root)) {
+            referenced.put(type.getQualifiedName().toString(), type);
+        }
+        for (TypeElement type : referenced.values()) {
+            sb.append(signature(type)).append('\n');
+        }
+        return digest(sb.toString());
+    }
+
+    /**
+     * Returns the classes that the given compilation unit refers to.
+     *
+     * @param root a compilation unit
+     * @return the classes that trees in {@code root} refer to or have as their type
+     */
+    private Set<TypeElement> referencedTypes(CompilationUnitTree root) {
+        Set<TypeElement> result = new HashSet<>();
+        Set<Element> visitedTypeVariables = new HashSet<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (tree instanceof JCTree) {
+                    JCTree jcTree = (JCTree) tree;
+                    addTypes(jcTree.type, result, visitedTypeVariables);
+                    Element element = TreeInfo.symbol(jcTree);
+                    if (element != null) {
+                        TypeElement enclosingClass = ElementUtils.enclosingClass(element);
+                        if (enclosingClass != null) {
+                            result.add(enclosingClass);
+                        }
+                    }
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(root, null);
+        return result;
+    }
+
+    /**
+     * Adds the classes that occur in the given type to {@code result}.
+     *
+     * @param type a type, or null
+     * @param result the set to which to add classes
+     * @param visitedTypeVariables type variables whose bounds have already been visited
+     */
+    private static void addTypes(
+            @Nullable TypeMirror type, Set<TypeElement> result, Set<Element> visitedTypeVariables) {
+        if (type == null) {
+            return;
+        }
+        switch (type.getKind()) {
+            case DECLARED:
+                DeclaredType declaredType = (DeclaredType) type;
+                result.add((TypeElement) declaredType.asElement());
+                addTypes(declaredType.getEnclosingType(), result, visitedTypeVariables);
+                for (TypeMirror typeArg : declaredType.getTypeArguments()) {
+                    addTypes(typeArg, result, visitedTypeVariables);
+                }
+                break;
+            case ARRAY:
+                addTypes(((ArrayType) type).getComponentType(), result, visitedTypeVariables);
+                break;
+            case TYPEVAR:
+                TypeVariable typeVariable = (TypeVariable) type;
+                if (visitedTypeVariables.add(typeVariable.asElement())) {
+                    addTypes(typeVariable.getUpperBound(), result, visitedTypeVariables);
+                    addTypes(typeVariable.getLowerBound(), result, visitedTypeVariables);
+                }
+                break;
+            case WILDCARD:
+                WildcardType wildcardType = (WildcardType) type;
+                addTypes(wildcardType.getExtendsBound(), result, visitedTypeVariables);
+                addTypes(wildcardType.getSuperBound(), result, visitedTypeVariables);
+                break;
+            case EXECUTABLE:
+                ExecutableType executableType = (ExecutableType) type;
+                addTypes(executableType.getReturnType(), result, visitedTypeVariables);
+                for (TypeMirror paramType : executableType.getParameterTypes()) {
+                    addTypes(paramType, result, visitedTypeVariables);
+                }
+                for (TypeMirror thrownType : executableType.getThrownTypes()) {
+                    addTypes(thrownType, result, visitedTypeVariables);
+                }
+                for (TypeMirror typeVar : executableType.getTypeVariables()) {
+                    addTypes(typeVar, result, visitedTypeVariables);
+                }
+                break;
+            case INTERSECTION:
+                for (TypeMirror bound : ((IntersectionType) type).getBounds()) {
+                    addTypes(bound, result, visitedTypeVariables);
+                }
+                break;
+            case UNION:
+                for (TypeMirror alternative : ((UnionType) type).getAlternatives()) {
+                    addTypes(alternative, result, visitedTypeVariables);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns a string that changes whenever the type-checking-relevant parts of the given class
+     * or its supertypes change.
+     *
+     * @param type a class
+     * @return the signature of the class
+     */
+    private String signature(TypeElement type) {
+        String result = signatures.get(type);
+        if (result != null) {
+            return result;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(type.getKind()).append(' ').append(type.getQualifiedName());
+        sb.append(' ').append(type.getModifiers()).append(' ').append(type.asType());
+        for (Element enclosing = type;
+                enclosing != null;
+                enclosing = enclosing.getEnclosingElement()) {
+            sb.append(' ').append(enclosing.getAnnotationMirrors());
+        }
+        for (TypeParameterElement typeParameter : type.getTypeParameters()) {
+            sb.append(" <").append(typeParameter.getBounds()).append('>');
+        }
+        sb.append(" extends ").append(type.getSuperclass());
+        sb.append(" implements ").append(type.getInterfaces()).append('\n');
+        for (Element member : type.getEnclosedElements()) {
+            appendMemberSignature(member, sb);
+        }
+
+        addSupertypeSignature(type.getSuperclass(), sb);
+        for (TypeMirror iface : type.getInterfaces()) {
+            addSupertypeSignature(iface, sb);
+        }
+
+        result = digest(sb.toString());
+        signatures.put(type, result);
+        return result;
+    }
+
+    /**
+     * Appends the signature of the class of the given supertype to {@code sb}.
+     *
+     * @param supertype a supertype of some class
+     * @param sb the string builder to which to append
+     */
+    private void addSupertypeSignature(TypeMirror supertype, StringBuilder sb) {
+        if (supertype instanceof DeclaredType) {
+            TypeElement element = (TypeElement) ((DeclaredType) supertype).asElement();
+            sb.append("super ").append(signature(element)).append('\n');
+        }
+    }
+
+    /**
+     * Appends the type-checking-relevant parts of the given member to {@code sb}.
+     *
+     * @param member a member of a class
+     * @param sb the string builder to which to append
+     */
+    private static void appendMemberSignature(Element member, StringBuilder sb) {
+        sb.append(member.getKind()).append(' ').append(member.getSimpleName());
+        sb.append(' ').append(member.getModifiers());
+        appendAnnotations(member.getAnnotationMirrors(), sb);
+        sb.append(' ').append(member.asType());
+        if (member instanceof ExecutableElement) {
+            ExecutableElement method = (ExecutableElement) member;
+            sb.append(" returns ").append(method.getReturnType());
+            sb.append(" receiver ").append(method.getReceiverType());
+            for (VariableElement parameter : method.getParameters()) {
+                sb.append(" param ").append(parameter.asType());
+                appendAnnotations(parameter.getAnnotationMirrors(), sb);
+            }
+            sb.append(" throws ").append(method.getThrownTypes());
+            sb.append(" default ").append(method.getDefaultValue());
+        } else if (member.getKind() == ElementKind.FIELD
+                || member.getKind() == ElementKind.ENUM_CONSTANT) {
+            sb.append(" = ").append(((VariableElement) member).getConstantValue());
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Appends the given annotations to {@code sb}.
+     *
+     * @param annotations annotations
+     * @param sb the string builder to which to append
+     */
+    private static void appendAnnotations(
+            List<? extends AnnotationMirror> annotations, StringBuilder sb) {
+        for (AnnotationMirror annotation : annotations) {
+            sb.append(' ').append(annotation);
+        }
+    }
+
+    /**
+     * Returns a description of the checker and everything other than the source code that affects
+     * its diagnostics: its options, its code, and its stub files.
+     *
+     * @param checker a checker
+     * @return a digest of a description of the checker's environment
+     */
+    private static String environment(SourceChecker checker) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(checker.getClass().getName()).append('\n');
+        sb.append(checker.getProcessingEnvironment().getSourceVersion()).append('\n');
+        sb.append(new TreeMap<>(checker.getOptions())).append('\n');
+
+        CodeSource codeSource = checker.getClass().getProtectionDomain().getCodeSource();
+        if (codeSource != null) {
+            URL location = codeSource.getLocation();
+            sb.append(location).append(' ');
+            try {
+                appendTimestamps(new File(location.toURI()), sb);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a file; the location alone identifies the code.
+            }
+            sb.append('\n');
+        }
+
+        String stubs = checker.getOption("stubs");
+        if (stubs != null) {
+            for (String stub : stubs.split(File.pathSeparator)) {
+                appendTimestamps(new File(stub), sb);
+            }
+        }
+        return digest(sb.toString());
+    }
+
+    /**
+     * Appends the modification time and length of the given file, or of every file in the given
+     * directory, to {@code sb}.
+     *
+     * @param file a file or directory
+     * @param sb the string builder to which to append
+     */
+    private static void appendTimestamps(File file, StringBuilder sb) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : new TreeSet<>(Arrays.asList(children))) {
+                    appendTimestamps(child, sb);
+                }
+            }
+        } else {
+            sb.append(file.getPath()).append('@').append(file.lastModified());
+            sb.append(':').append(file.length()).append(' ');
+        }
+    }
+
+    /**
+     * Returns a string that identifies the given text.
+     *
+     * @param text the text to digest
+     * @return a hexadecimal SHA-256 digest of {@code text}
+     */
+    private static String digest(String text) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BugInCF("SHA-256 is not supported", e);
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : md.digest(text.getBytes(StandardCharsets.UTF_8))) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
@@ -16,6 +16,7 @@ import com.sun.tools.javac.util.DiagnosticSource;
 import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 import com.sun.tools.javac.util.Log;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -23,6 +24,9 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -60,11 +64,14 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.CanonicalName;
 import org.checkerframework.checker.signature.qual.FullyQualifiedName;
 import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.framework.flow.CFGCache;
 import org.checkerframework.framework.qual.AnnotatedFor;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.CFContext;
 import org.checkerframework.framework.util.CheckerMain;
 import org.checkerframework.framework.util.OptionConfiguration;
+import org.checkerframework.framework.util.PerformanceStatistics;
+import org.checkerframework.framework.util.PerformanceStatistics.Phase;
 import org.checkerframework.javacutil.AbstractTypeProcessor;
 import org.checkerframework.javacutil.AnnotationProvider;
 import org.checkerframework.javacutil.AnnotationUtils;
@@ -197,6 +204,11 @@ import org.plumelib.util.UtilPlume;
     // "-Ainfer=stubs" or "-Ainfer=jaifs".
     "infer",
 
+    // With -Ainfer, write to the given file the source files of the compilation units that read
+    // the type of a field or method whose inferred type changed, and so need to be type-checked
+    // again. For use by build tools.
+    "inferRecheckFile",
+
     // With each warning, in addition to the concrete error key,
     // output the SuppressWarnings strings that can be used to
     // suppress that warning.
@@ -361,15 +373,59 @@ import org.plumelib.util.UtilPlume;
     // Set the cache size for caches in AnnotatedTypeFactory
     "atfCacheSize",
 
+    // Set the maximum total weight (number of annotated type nodes) of each cache of annotated
+    // types in AnnotatedTypeFactory
+    // org.checkerframework.framework.type.AnnotatedTypeFactory.getCacheWeight()
+    "atfCacheWeight",
+
     // Sets AnnotatedTypeFactory shouldCache to false
     "atfDoNotCache",
 
+    // Set the maximum total number of nodes of the control flow graphs that checkers share
+    // org.checkerframework.framework.source.SourceChecker.getCFGCache()
+    "cfgCacheWeight",
+
+    /// Performance
+
+    // Only type-check the compilation units in one partition of the input files.  The argument
+    // has the form "K/N" where 0 <= K < N.  Running N compiler processes with partitions
+    // 0/N through (N-1)/N type-checks every compilation unit exactly once.
+    // org.checkerframework.framework.source.SourceChecker.isInPartition
+    "partition",
+
+    // Record the diagnostics for each class in the given file, and replay them instead of
+    // type-checking a class whose source code and dependencies have not changed since.
+    // org.checkerframework.framework.source.IncrementalCheckingCache
+    "incrementalCheckingFile",
+
+    // Perform the dataflow analysis of a method only when the method is type-checked, rather than
+    // that of every method of a top-level class when the class is type-checked
+    // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.preProcessMethodTree
+    "lazyFlowAnalysis",
+
+    // Discard the dataflow results of a method, except its exit stores, once the method has been
+    // type-checked by the checker and all of its subcheckers
+    // org.checkerframework.framework.type.GenericAnnotatedTypeFactory.postProcessMethodTree
+    "discardFlowResults",
+
     /// Miscellaneous debugging options
 
     // Whether to output resource statistics at JVM shutdown
     // org.checkerframework.framework.source.SourceChecker.shutdownHook()
     "resourceStats",
 
+    // Record the time spent in each phase of type-checking and in each class, dataflow and
+    // subtyping counters, and cache hit rates, and output them as JSON to the given file, or to
+    // standard output if no file is given, when type-checking is over.
+    // org.checkerframework.framework.util.PerformanceStatistics
+    "perfStats",
+
+    // Also record the given number (default 20) of methods, initializers, and lambdas whose
+    // dataflow analysis takes the longest, and output them with the -AperfStats statistics.
+    // Implies -AperfStats.
+    // org.checkerframework.framework.source.SourceChecker.getPerformanceStatistics()
+    "slowestMethods",
+
     // Parse all JDK files at startup rather than as needed.
     "parseAllJdk"
 })
@@ -460,6 +516,34 @@ public abstract class SourceChecker extends AbstractTypeProcessor
      */
     private Pattern onlyDefsPattern;
 
+    /**
+     * The index of the partition of compilation units that this checker type-checks, as given by
+     * the {@code -Apartition} command-line option. Only meaningful if {@link #partitionCount} is
+     * non-zero.
+     */
+    private int partitionIndex;
+
+    /**
+     * The number of partitions of compilation units, as given by the {@code -Apartition}
+     * command-line option. 0 until the option has been read; 1 if the option was not supplied.
+     */
+    private int partitionCount = 0;
+
+    /**
+     * The performance statistics of this checker, or null if they have not been created yet. Only
+     * used by a checker that has no parent checker.
+     */
+    private @Nullable PerformanceStatistics performanceStatistics;
+
+    /**
+     * The control flow graphs that this checker shares with other checkers, or null if it has not
+     * been obtained yet. Only used by a checker that has no parent checker.
+     */
+    private @Nullable CFGCache cfgCache;
+
+    /** The number of slowest methods that {@code -AslowestMethods} records by default. */
+    private static final int DEFAULT_SLOWEST_METHODS = 20;
+
     /** The supported lint options. */
     private Set<String> supportedLints;
 
@@ -822,6 +906,13 @@ public abstract class SourceChecker extends AbstractTypeProcessor
         this.messager = processingEnv.getMessager();
         this.messagesProperties = getMessagesProperties();
 
+        // Validate the partition option, if it hasn't been used already.  This happens before the
+        // visitor is created, so that no compilation unit is type-checked if the option is
+        // malformed.
+        if (this.partitionCount == 0) {
+            parsePartitionOption();
+        }
+
         this.visitor = createSourceVisitor();
 
         // Validate the lint flags, if they haven't been used already.
@@ -893,6 +984,9 @@ public abstract class SourceChecker extends AbstractTypeProcessor
             // logged there. Don't also cause a NPE here.
             return;
         }
+        if (!isInPartition(p.getCompilationUnit())) {
+            return;
+        }
         if (p.getCompilationUnit() != currentRoot) {
             setRoot(p.getCompilationUnit());
             if (hasOption("filenames")) {
@@ -912,6 +1006,9 @@ public abstract class SourceChecker extends AbstractTypeProcessor
         }
 
         // Visit the attributed tree.
+        PerformanceStatistics performanceStatistics = getPerformanceStatistics();
+        long start = performanceStatistics.isEnabled() ? System.nanoTime() : 0;
+        performanceStatistics.start(Phase.VISITOR);
         try {
             visitor.visit(p);
             warnUnneededSuppressions();
@@ -924,12 +1021,47 @@ public abstract class SourceChecker extends AbstractTypeProcessor
         } catch (Throwable t) {
             logBugInCF(wrapThrowableAsBugInCF("SourceChecker.typeProcess", t, p));
         } finally {
+            performanceStatistics.stop(Phase.VISITOR);
+            if (performanceStatistics.isEnabled()) {
+                performanceStatistics.recordClass(
+                        e.getQualifiedName().toString(), System.nanoTime() - start);
+            }
             // Also add possibly deferred diagnostics, which will get published back in
             // AbstractTypeProcessor.
             this.errsOnLastExit = log.nerrors;
         }
     }
 
+    /**
+     * Outputs the performance statistics, if the {@code -AperfStats} command-line option was
+     * supplied and this checker has no parent checker.
+     */
+    @Override
+    public void typeProcessingOver() {
+        if (parentChecker == null && cfgCache != null) {
+            // Don't clear the cache: other checkers may not have processed the last class yet.
+            cfgCache.recordStatistics(getPerformanceStatistics());
+        }
+        if (parentChecker == null && getPerformanceStatistics().isEnabled()) {
+            String json = getPerformanceStatistics().toJson(getClass().getCanonicalName());
+            String fileName = getOption("perfStats");
+            if (fileName == null) {
+                System.out.print(json);
+            } else {
+                try {
+                    Files.write(Paths.get(fileName), json.getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    message(
+                            Kind.WARNING,
+                            "Cannot write performance statistics to %s: %s",
+                            fileName,
+                            e.getMessage());
+                }
+            }
+        }
+        super.typeProcessingOver();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     /// Reporting type-checking errors; most clients use reportError() or reportWarning()
     ///
@@ -2376,6 +2508,129 @@ public abstract class SourceChecker extends AbstractTypeProcessor
         return shouldSkipDefs(cls);
     }
 
+    /**
+     * Returns true if the given compilation unit belongs to the partition that this checker
+     * type-checks, as specified by the {@code -Apartition=K/N} command-line option. If the option
+     * is not supplied, every compilation unit is in the partition.
+     *
+     * <p>Compilation units are assigned to partitions by their package and the simple name of their
+     * source file, so that separate compiler invocations with the same source files but different
+     * partition indices type-check disjoint sets of compilation units. The directory of the source
+     * file is not used, so the assignment does not depend on where the sources are checked out.
+     * This permits type-checking on several cores at once: the compiler's symbol tables and the
+     * type factories are not thread-safe, so parallelism is obtained by running one compiler
+     * process per partition.
+     *
+     * @param root a compilation unit
+     * @return true if {@code root} should be type-checked by this checker
+     */
+    public final boolean isInPartition(CompilationUnitTree root) {
+        if (partitionCount == 0) {
+            parsePartitionOption();
+        }
+        if (partitionCount == 1) {
+            return true;
+        }
+        String fileName = root.getSourceFile().getName();
+        int lastSeparator =
+                Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf(File.separatorChar));
+        String key = fileName.substring(lastSeparator + 1);
+        if (root.getPackageName() != null) {
+            key = root.getPackageName().toString() + "." + key;
+        }
+        return Math.floorMod(key.hashCode(), partitionCount) == partitionIndex;
+    }
+
+    /** Sets {@link #partitionIndex} and {@link #partitionCount} from the command-line option. */
+    private void parsePartitionOption() {
+        // If the option is malformed, a UserError is thrown before any compilation unit is checked.
+        partitionIndex = 0;
+        partitionCount = 1;
+        String partition = getOption("partition");
+        if (partition == null) {
+            return;
+        }
+        String[] parts = partition.split("/", -1);
+        int index;
+        int count;
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException();
+            }
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException e) {
+            throw new UserError(
+                    "The partition option must have the form K/N, but was \"%s\"", partition);
+        }
+        if (count < 1 || index < 0 || index >= count) {
+            throw new UserError(
+                    "The partition option K/N requires 0 <= K < N, but was \"%s\"", partition);
+        }
+        partitionIndex = index;
+        partitionCount = count;
+    }
+
+    /**
+     * Returns the object that records the performance statistics of type-checking. A compound
+     * checker and its subcheckers share one. If neither the {@code -AperfStats} nor the {@code
+     * -AslowestMethods} command-line option was supplied, the result records nothing.
+     *
+     * @return the performance statistics of this checker
+     */
+    public PerformanceStatistics getPerformanceStatistics() {
+        if (parentChecker != null) {
+            return parentChecker.getPerformanceStatistics();
+        }
+        if (performanceStatistics == null) {
+            if (hasOption("slowestMethods")) {
+                String limit = getOption("slowestMethods");
+                try {
+                    performanceStatistics =
+                            new PerformanceStatistics(
+                                    limit == null
+                                            ? DEFAULT_SLOWEST_METHODS
+                                            : Integer.parseInt(limit));
+                } catch (NumberFormatException e) {
+                    throw new UserError("slowestMethods was not an integer: " + limit);
+                }
+            } else if (hasOption("perfStats")) {
+                performanceStatistics = new PerformanceStatistics();
+            } else {
+                performanceStatistics = PerformanceStatistics.DISABLED;
+            }
+        }
+        return performanceStatistics;
+    }
+
+    /**
+     * Returns the control flow graphs that this checker shares with its subcheckers and with the
+     * other checkers that run in the same javac process. The {@code -AcfgCacheWeight} command-line
+     * option of the first checker that obtains the cache bounds the total number of nodes of the
+     * graphs in it.
+     *
+     * @return the control flow graphs that this checker shares with other checkers
+     */
+    public CFGCache getCFGCache() {
+        if (parentChecker != null) {
+            return parentChecker.getCFGCache();
+        }
+        if (cfgCache == null) {
+            long maxWeight = CFGCache.DEFAULT_MAX_WEIGHT;
+            String option = getOption("cfgCacheWeight");
+            if (option != null) {
+                try {
+                    maxWeight = Long.parseLong(option);
+                } catch (NumberFormatException e) {
+                    throw new UserError("cfgCacheWeight was not an integer: " + option);
+                }
+            }
+            Context context = ((JavacProcessingEnvironment) processingEnv).getContext();
+            cfgCache = CFGCache.instance(context, maxWeight);
+        }
+        return cfgCache;
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     /// Errors other than type-checking errors
     ///
@@ -2,7 +2,6 @@ package org.checkerframework.framework.stub;
 
 import com.github.javaparser.ParseProblemException;
 import com.github.javaparser.Problem;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.AccessSpecifier;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.ImportDeclaration;
@@ -56,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Supplier;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
@@ -83,6 +83,8 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedExecutab
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVariable;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
 import org.checkerframework.framework.type.AnnotatedTypeReplacer;
+import org.checkerframework.framework.util.PerformanceStatistics;
+import org.checkerframework.framework.util.PerformanceStatistics.Phase;
 import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
@@ -101,7 +103,9 @@ import org.checkerframework.javacutil.Pair;
  * steps. First, it calls the Stub Parser to parse a stub file. Then, it walks the Stub Parser's AST
  * to create/collect types and declaration annotations.
  *
- * <p>The other entry point is {@link #parseJdkFileAsStub}.
+ * <p>The other entry point is {@link #parseJdkFileAsStub}. The annotated JDK files are parsed
+ * through {@link StubUnitCache#parseJdkFile}, so that each file is parsed once per JVM, and each
+ * checker only converts the shared syntax tree to its own annotated types.
  */
 public class StubParser {
 
@@ -447,7 +451,14 @@ public class StubParser {
             ProcessingEnvironment processingEnv,
             Map<Element, AnnotatedTypeMirror> atypes,
             Map<String, Set<AnnotationMirror>> declAnnos) {
-        parse(filename, inputStream, atypeFactory, processingEnv, atypes, declAnnos, false);
+        parse(
+                filename,
+                () -> StubUnitCache.parse(inputStream),
+                atypeFactory,
+                processingEnv,
+                atypes,
+                declAnnos,
+                false);
     }
 
     /**
@@ -470,14 +481,55 @@ public class StubParser {
             ProcessingEnvironment processingEnv,
             Map<Element, AnnotatedTypeMirror> atypes,
             Map<String, Set<AnnotationMirror>> declAnnos) {
-        parse(filename, inputStream, atypeFactory, processingEnv, atypes, declAnnos, true);
+        parse(
+                filename,
+                () -> StubUnitCache.parse(inputStream),
+                atypeFactory,
+                processingEnv,
+                atypes,
+                declAnnos,
+                true);
+    }
+
+    /**
+     * Parse a stub file that is a part of the annotated JDK and side-effects the last two
+     * arguments. The file is read and parsed only if no checker in this JVM has parsed the file at
+     * {@code location} before.
+     *
+     * @param filename name of stub file, used only for diagnostic messages
+     * @param location identifies the stub file and its version; see {@link
+     *     StubUnitCache#parseJdkFile}
+     * @param contents reads the stub file
+     * @param atypeFactory AnnotatedTypeFactory to use
+     * @param processingEnv ProcessingEnvironment to use
+     * @param atypes annotated types from this stub file are added to this map
+     * @param declAnnos map from a name (actually declaration element string) to the set of
+     *     declaration annotations on it. Declaration annotations from this stub file are added to
+     *     this map.
+     */
+    public static void parseJdkFileAsStub(
+            String filename,
+            String location,
+            StubUnitCache.StubContents contents,
+            AnnotatedTypeFactory atypeFactory,
+            ProcessingEnvironment processingEnv,
+            Map<Element, AnnotatedTypeMirror> atypes,
+            Map<String, Set<AnnotationMirror>> declAnnos) {
+        parse(
+                filename,
+                () -> StubUnitCache.parseJdkFile(location, contents),
+                atypeFactory,
+                processingEnv,
+                atypes,
+                declAnnos,
+                true);
     }
 
     /**
      * Parse a stub file and adds annotations to the maps.
      *
      * @param filename name of stub file, used only for diagnostic messages
-     * @param inputStream of stub file to parse
+     * @param stubUnitSupplier returns the syntax tree of the stub file
      * @param atypeFactory AnnotatedTypeFactory to use
      * @param processingEnv ProcessingEnvironment to use
      * @param atypes annotated types from this stub file are added to this map
@@ -488,7 +540,7 @@ public class StubParser {
      */
     private static void parse(
             String filename,
-            InputStream inputStream,
+            Supplier<StubUnit> stubUnitSupplier,
             AnnotatedTypeFactory atypeFactory,
             ProcessingEnvironment processingEnv,
             Map<Element, AnnotatedTypeMirror> atypes,
@@ -497,8 +549,11 @@ public class StubParser {
         StubParser sp =
                 new StubParser(
                         filename, atypeFactory, processingEnv, atypes, declAnnos, isJdkAsStub);
+        PerformanceStatistics performanceStatistics =
+                atypeFactory.getContext().getChecker().getPerformanceStatistics();
+        performanceStatistics.start(Phase.STUB_PARSING);
         try {
-            sp.parseStubUnit(inputStream);
+            sp.parseStubUnit(stubUnitSupplier);
             sp.process();
         } catch (ParseProblemException e) {
             StringJoiner message = new StringJoiner(LINE_SEPARATOR);
@@ -509,6 +564,8 @@ public class StubParser {
                 message.add(p.getVerboseMessage());
             }
             sp.stubWarn(message.toString());
+        } finally {
+            performanceStatistics.stop(Phase.STUB_PARSING);
         }
     }
 
@@ -516,13 +573,13 @@ public class StubParser {
      * Delegate to the Stub Parser to parse the stub file to an AST, and save it in {@link
      * #stubUnit}. Subsequently, all work uses the AST.
      *
-     * @param inputStream the stream from which to read a stub file
+     * @param stubUnitSupplier returns the syntax tree of the stub file, parsing it if necessary
      */
-    private void parseStubUnit(InputStream inputStream) {
+    private void parseStubUnit(Supplier<StubUnit> stubUnitSupplier) {
         if (debugStubParser) {
             stubDebug(String.format("parsing stub file %s", filename));
         }
-        stubUnit = StaticJavaParser.parseStubUnit(inputStream);
+        stubUnit = stubUnitSupplier.get();
 
         // getAllStubAnnotations() also modifies importedConstants and importedTypes. This should
         // be refactored to be nicer.
@@ -1,18 +1,21 @@
 package org.checkerframework.framework.stub;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,6 +29,7 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic.Kind;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.checker.signature.qual.CanonicalNameOrEmpty;
 import org.checkerframework.framework.qual.StubFiles;
 import org.checkerframework.framework.source.SourceChecker;
@@ -67,6 +71,19 @@ public class StubTypes {
      */
     private final Map<String, String> jdkStubFilesJar = new HashMap<>();
 
+    /**
+     * The path and modification time of the jar file that contains the annotated JDK, which
+     * identify its entries in {@link StubUnitCache#parseJdkFile}. Set by {@link #prepJdkFromJar}.
+     */
+    private String jdkJarLocation = "";
+
+    /**
+     * The name of the resource, in the annotated JDK directory, that lists the paths of the
+     * annotated JDK files relative to that directory, one per line. The build writes it so that
+     * {@link #prepJdkStubs} need not walk the directory or scan the jar file.
+     */
+    private static final String JDK_INDEX = "jdk-index.txt";
+
     /** Which version number of the annotated JDK should be used? */
     private final String annotatedJdkVersion;
 
@@ -383,16 +400,15 @@ public class StubTypes {
      */
     private void parseStubFile(Path path) {
         parsing = true;
-        try (FileInputStream jdkStub = new FileInputStream(path.toFile())) {
+        try {
             StubParser.parseJdkFileAsStub(
                     path.toFile().getName(),
-                    jdkStub,
+                    path + "@" + path.toFile().lastModified(),
+                    () -> Files.readAllBytes(path),
                     factory,
                     factory.getProcessingEnv(),
                     typesFromStubFiles,
                     declAnnosFromStubFiles);
-        } catch (IOException e) {
-            throw new BugInCF("cannot open the jdk stub file " + path, e);
         } finally {
             parsing = false;
         }
@@ -404,24 +420,16 @@ public class StubTypes {
      * @param jarEntryName name of the jar entry to parse
      */
     private void parseJarEntry(String jarEntryName) {
-        JarURLConnection connection = getJarURLConnectionToJdk();
         parsing = true;
-        try (JarFile jarFile = connection.getJarFile()) {
-            InputStream jdkStub;
-            try {
-                jdkStub = jarFile.getInputStream(jarFile.getJarEntry(jarEntryName));
-            } catch (IOException e) {
-                throw new BugInCF("cannot open the jdk stub file " + jarEntryName, e);
-            }
+        try {
             StubParser.parseJdkFileAsStub(
                     jarEntryName,
-                    jdkStub,
+                    jdkJarLocation + "!/" + jarEntryName,
+                    () -> readJarEntry(jarEntryName),
                     factory,
                     factory.getProcessingEnv(),
                     typesFromStubFiles,
                     declAnnosFromStubFiles);
-        } catch (IOException e) {
-            throw new BugInCF("cannot open the Jar file " + connection.getEntryName(), e);
         } catch (BugInCF e) {
             throw new BugInCF("Exception while parsing " + jarEntryName + ": " + e.getMessage(), e);
         } finally {
@@ -429,6 +437,21 @@ public class StubTypes {
         }
     }
 
+    /**
+     * Returns the contents of the given jar entry of the annotated JDK.
+     *
+     * @param jarEntryName name of the jar entry to read
+     * @return the contents of the jar entry
+     * @throws IOException if the jar entry cannot be read
+     */
+    private byte[] readJarEntry(String jarEntryName) throws IOException {
+        JarURLConnection connection = getJarURLConnectionToJdk();
+        try (JarFile jarFile = connection.getJarFile();
+                InputStream jdkStub = jarFile.getInputStream(jarFile.getJarEntry(jarEntryName))) {
+            return StubUnitCache.readAllBytes(jdkStub);
+        }
+    }
+
     /**
      * Returns a JarURLConnection to "/jdk*".
      *
@@ -483,8 +506,55 @@ public class StubTypes {
     }
 
     /**
-     * Walk through the jdk directory and create a mapping, {@link #jdkStubFiles}, from file name to
-     * the class contained with in it. Also, parses all package-info.java files.
+     * Returns the paths of the annotated JDK files, relative to the annotated JDK directory, as
+     * listed by the {@link #JDK_INDEX} resource, or null if there is no such resource.
+     *
+     * @return the paths of the annotated JDK files, or null if the annotated JDK has no index
+     */
+    private @Nullable List<String> readJdkIndex() {
+        InputStream in = factory.getClass().getResourceAsStream("/annotated-jdk/" + JDK_INDEX);
+        if (in == null) {
+            return null;
+        }
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new BugInCF("cannot read the annotated JDK index " + JDK_INDEX, e);
+        }
+    }
+
+    /**
+     * Returns true if the {@link #JDK_INDEX} file in the given jdk directory is at least as new as
+     * the directory and as every directory that contains a file it lists. Otherwise, files might
+     * have been added to or removed from those directories since the index was written, for
+     * example by an IDE that copies the annotated JDK without running the Gradle build. Checking
+     * the directories is much cheaper than walking them.
+     *
+     * @param root the jdk directory
+     * @param index the paths listed by the index, relative to {@code root}
+     * @return true if the index lists the files in {@code root}
+     */
+    private static boolean isJdkIndexCurrent(Path root, List<String> index) {
+        File indexFile = root.resolve(JDK_INDEX).toFile();
+        long indexModified = indexFile.lastModified();
+        if (indexModified == 0 || root.toFile().lastModified() > indexModified) {
+            return false;
+        }
+        Set<File> dirs = new HashSet<>();
+        for (String relativePath : index) {
+            File dir = root.resolve(relativePath).toFile().getParentFile();
+            if (dirs.add(dir) && dir.lastModified() > indexModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a mapping, {@link #jdkStubFiles}, from file name to the class contained with in it,
+     * using the index of the jdk directory if there is one and it is up to date, and otherwise
+     * walking through the jdk directory. Also, parses all package-info.java files.
      *
      * @param resourceURL the URL pointing to the JDK directory
      */
@@ -496,29 +566,20 @@ public class StubTypes {
             throw new BugInCF("Can parse URL: " + resourceURL.toString(), e);
         }
 
+        List<String> index = readJdkIndex();
+        if (index != null && isJdkIndexCurrent(root, index)) {
+            for (String relativePath : index) {
+                addJdkFile(root, root.resolve(relativePath));
+            }
+            return;
+        }
+
         try (Stream<Path> walk = Files.walk(root)) {
             List<Path> paths =
                     walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".java"))
                             .collect(Collectors.toList());
             for (Path path : paths) {
-                if (path.getFileName().toString().equals("package-info.java")) {
-                    parseStubFile(path);
-                    continue;
-                }
-                if (path.getFileName().toString().equals("module-info.java")) {
-                    // JavaParser can't parse module-info files, so skip them.
-                    continue;
-                }
-                if (parseAllJdkFiles) {
-                    parseStubFile(path);
-                    continue;
-                }
-                Path relativePath = root.relativize(path);
-                // 4: /src/<module>/share/classes
-                Path savepath = relativePath.subpath(4, relativePath.getNameCount());
-                String s =
-                        savepath.toString().replace(".java", "").replace(File.separatorChar, '.');
-                jdkStubFiles.put(s, path);
+                addJdkFile(root, path);
             }
         } catch (IOException e) {
             throw new BugInCF("prepJdkFromFile(" + resourceURL + ")", e);
@@ -526,41 +587,107 @@ public class StubTypes {
     }
 
     /**
-     * Walk through the jdk directory and create a mapping, {@link #jdkStubFilesJar}, from file name
-     * to the class contained with in it. Also, parses all package-info.java files.
+     * Adds a file of the jdk directory to {@link #jdkStubFiles}, or parses it if it is a
+     * package-info.java file or all JDK files should be parsed at startup.
+     *
+     * @param root the jdk directory
+     * @param path a .java file in {@code root}
+     */
+    private void addJdkFile(Path root, Path path) {
+        if (path.getFileName().toString().equals("package-info.java")) {
+            parseStubFile(path);
+            return;
+        }
+        if (path.getFileName().toString().equals("module-info.java")) {
+            // JavaParser can't parse module-info files, so skip them.
+            return;
+        }
+        if (parseAllJdkFiles) {
+            parseStubFile(path);
+            return;
+        }
+        Path relativePath = root.relativize(path);
+        // 4: /src/<module>/share/classes
+        Path savepath = relativePath.subpath(4, relativePath.getNameCount());
+        String s = savepath.toString().replace(".java", "").replace(File.separatorChar, '.');
+        jdkStubFiles.put(s, path);
+    }
+
+    /**
+     * Create a mapping, {@link #jdkStubFilesJar}, from file name to the class contained with in it,
+     * using the index of the jdk directory if there is one, and otherwise walking through the jdk
+     * directory. Also, parses all package-info.java files.
      *
      * @param resourceURL the URL pointing to the JDK directory
      */
     private void prepJdkFromJar(URL resourceURL) {
+        List<String> index = readJdkIndex();
+        if (index != null) {
+            jdkJarLocation = getJarLocation(resourceURL);
+            for (String relativePath : index) {
+                addJdkJarEntry("annotated-jdk/" + relativePath);
+            }
+            return;
+        }
+
         JarURLConnection connection = getJarURLConnectionToJdk();
 
         try (JarFile jarFile = connection.getJarFile()) {
+            jdkJarLocation = getJarLocation(resourceURL);
             for (JarEntry jarEntry : jarFile.stream().collect(Collectors.toList())) {
                 // filter out directories and non-class files
                 if (!jarEntry.isDirectory()
                         && jarEntry.getName().endsWith(".java")
-                        && jarEntry.getName().startsWith("annotated-jdk")
-                        // JavaParser can't parse module-info files, so skip them.
-                        && !jarEntry.getName().contains("module-info")) {
-                    String jarEntryName = jarEntry.getName();
-                    if (parseAllJdkFiles) {
-                        parseJarEntry(jarEntryName);
-                        continue;
-                    }
-                    int index = jarEntry.getName().indexOf("/share/classes/");
-                    String shortName =
-                            jarEntryName
-                                    .substring(index + "/share/classes/".length())
-                                    .replace(".java", "")
-                                    .replace('/', '.');
-                    jdkStubFilesJar.put(shortName, jarEntryName);
-                    if (jarEntryName.endsWith("package-info.java")) {
-                        parseJarEntry(jarEntryName);
-                    }
+                        && jarEntry.getName().startsWith("annotated-jdk")) {
+                    addJdkJarEntry(jarEntry.getName());
                 }
             }
         } catch (IOException e) {
             throw new BugInCF("cannot open the Jar file " + resourceURL.getFile(), e);
         }
     }
+
+    /**
+     * Adds a .java entry of the jdk directory to {@link #jdkStubFilesJar}, or parses it if it is a
+     * package-info.java file or all JDK files should be parsed at startup.
+     *
+     * @param jarEntryName the name of a .java entry in the jdk directory of the jar file
+     */
+    private void addJdkJarEntry(String jarEntryName) {
+        // JavaParser can't parse module-info files, so skip them.
+        if (jarEntryName.contains("module-info")) {
+            return;
+        }
+        if (parseAllJdkFiles) {
+            parseJarEntry(jarEntryName);
+            return;
+        }
+        int index = jarEntryName.indexOf("/share/classes/");
+        String shortName =
+                jarEntryName
+                        .substring(index + "/share/classes/".length())
+                        .replace(".java", "")
+                        .replace('/', '.');
+        jdkStubFilesJar.put(shortName, jarEntryName);
+        if (jarEntryName.endsWith("package-info.java")) {
+            parseJarEntry(jarEntryName);
+        }
+    }
+
+    /**
+     * Returns the path and modification time of the jar file that contains the given resource,
+     * without opening the jar file.
+     *
+     * @param resourceURL the URL of a resource in a jar file
+     * @return the path and modification time of the jar file
+     */
+    private static String getJarLocation(URL resourceURL) {
+        try {
+            URL jarFileURL = ((JarURLConnection) resourceURL.openConnection()).getJarFileURL();
+            File jarFile = new File(jarFileURL.toURI());
+            return jarFile.getPath() + "@" + jarFile.lastModified();
+        } catch (IOException | URISyntaxException e) {
+            throw new BugInCF("cannot locate the Jar file " + resourceURL.getFile(), e);
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package org.checkerframework.framework.stub;
+
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.StubUnit;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.CollectionUtils;
+
+/**
+ * A cache of parsed stub files, shared by every checker in the JVM.
+ *
+ * <p>Parsing a stub file with the Stub Parser does not depend on the checker, the compilation, or
+ * the processing environment: the resulting {@link StubUnit} is a plain syntax tree. {@link
+ * StubParser} only reads that tree when it converts it to annotated types, so one tree can be used
+ * by every checker and subchecker that reads the same stub file, and by later compilations in a
+ * long-running JVM such as a build daemon.
+ *
+ * <p>The annotated types and declaration annotations that {@link StubParser} creates from a stub
+ * file refer to the elements of one compilation, so they are not cached here.
+ *
+ * <p>The cache has two parts, and each evicts its least recently used entries:
+ *
+ * <ul>
+ *   <li>{@link #parse} keys stub files by a digest of their contents, so an edited stub file is
+ *       parsed again. It holds at most {@link #CACHE_SIZE} stub files.
+ *   <li>{@link #parseJdkFile} keys the files of the annotated JDK by their location, including the
+ *       modification time of the file or of the jar file that contains it, so that a checker that
+ *       needs a JDK file that another checker or subchecker has already parsed does not even read
+ *       it. It holds at most {@link #JDK_CACHE_SIZE} files.
+ * </ul>
+ */
+public final class StubUnitCache {
+
+    /** The maximum number of parsed stub files to retain. */
+    private static final int CACHE_SIZE = 300;
+
+    /** Maps a digest of a stub file's contents to the result of parsing it. */
+    private static final Map<String, StubUnit> cache =
+            Collections.synchronizedMap(CollectionUtils.createLRUCache(CACHE_SIZE));
+
+    /** The maximum number of parsed annotated JDK files to retain by location. */
+    private static final int JDK_CACHE_SIZE = 1000;
+
+    /**
+     * Maps the location of an annotated JDK file, including the modification time of the file or
+     * jar file that contains it, to the result of parsing it.
+     */
+    private static final Map<String, StubUnit> jdkCache =
+            Collections.synchronizedMap(CollectionUtils.createLRUCache(JDK_CACHE_SIZE));
+
+    /** Reads the contents of a stub file. */
+    @FunctionalInterface
+    public interface StubContents {
+        /**
+         * Returns the contents of the stub file.
+         *
+         * @return the contents of the stub file
+         * @throws IOException if the stub file cannot be read
+         */
+        byte[] read() throws IOException;
+    }
+
+    // Class cannot be instantiated.
+    private StubUnitCache() {
+        throw new AssertionError("Class StubUnitCache cannot be instantiated.");
+    }
+
+    /**
+     * Returns the syntax tree of the stub file read from {@code inputStream}, parsing it only if a
+     * stub file with the same contents has not been parsed before. The stream is read to its end
+     * but is not closed.
+     *
+     * <p>Clients must not modify the returned tree, which may be shared with other checkers.
+     *
+     * @param inputStream the stream from which to read a stub file
+     * @return the syntax tree of the stub file
+     * @throws ParseProblemException if the stub file cannot be parsed
+     */
+    public static StubUnit parse(InputStream inputStream) {
+        byte[] contents = readAllBytes(inputStream);
+        String key = digest(contents);
+        StubUnit stubUnit = cache.get(key);
+        if (stubUnit == null) {
+            stubUnit = StaticJavaParser.parseStubUnit(new ByteArrayInputStream(contents));
+            cache.put(key, stubUnit);
+        }
+        return stubUnit;
+    }
+
+    /**
+     * Returns the syntax tree of the annotated JDK file at {@code location}, reading and parsing it
+     * only if no checker in this JVM has done so before.
+     *
+     * <p>Clients must not modify the returned tree, which may be shared with other checkers.
+     *
+     * @param location identifies the file and its version, for example its path and modification
+     *     time
+     * @param contents reads the file, if it has not been parsed before
+     * @return the syntax tree of the file
+     * @throws ParseProblemException if the file cannot be parsed
+     */
+    public static StubUnit parseJdkFile(String location, StubContents contents) {
+        StubUnit stubUnit = jdkCache.get(location);
+        if (stubUnit == null) {
+            byte[] bytes;
+            try {
+                bytes = contents.read();
+            } catch (IOException e) {
+                throw new BugInCF("cannot read the jdk stub file " + location, e);
+            }
+            stubUnit = parse(new ByteArrayInputStream(bytes));
+            jdkCache.put(location, stubUnit);
+        }
+        return stubUnit;
+    }
+
+    /**
+     * Reads the remaining contents of the given stream.
+     *
+     * @param inputStream the stream to read
+     * @return the bytes read from {@code inputStream}
+     */
+    static byte[] readAllBytes(InputStream inputStream) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new BugInCF("Cannot read stub file", e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Returns a string that identifies the given contents.
+     *
+     * @param contents the contents of a stub file
+     * @return a hexadecimal SHA-256 digest of {@code contents}
+     */
+    private static String digest(byte[] contents) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new BugInCF("SHA-256 is not supported", e);
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : md.digest(contents)) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
@@ -90,7 +90,9 @@ public class AnnotatedTypeCopier
 
     @Override
     public AnnotatedTypeMirror visit(AnnotatedTypeMirror type) {
-        return type.accept(this, new IdentityHashMap<>());
+        // Most types have only a few components; the default capacity would allocate a table for
+        // 32 entries on every copy.
+        return type.accept(this, new IdentityHashMap<>(4));
     }
 
     @Override
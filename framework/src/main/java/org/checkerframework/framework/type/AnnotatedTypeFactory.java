@@ -39,6 +39,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.StringJoiner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -71,7 +72,9 @@ import org.checkerframework.common.reflection.MethodValAnnotatedTypeFactory;
 import org.checkerframework.common.reflection.MethodValChecker;
 import org.checkerframework.common.reflection.ReflectionResolver;
 import org.checkerframework.common.wholeprograminference.WholeProgramInference;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceDriver;
 import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenes;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage;
 import org.checkerframework.dataflow.qual.SideEffectFree;
 import org.checkerframework.framework.qual.FieldInvariant;
 import org.checkerframework.framework.qual.FromStubFile;
@@ -89,11 +92,14 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedPrimitiv
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedTypeVariable;
 import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcardType;
 import org.checkerframework.framework.type.visitor.AnnotatedTypeCombiner;
+import org.checkerframework.framework.type.visitor.AnnotatedTypeScanner;
+import org.checkerframework.framework.type.visitor.SimpleAnnotatedTypeScanner;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AnnotationFormatter;
 import org.checkerframework.framework.util.CFContext;
 import org.checkerframework.framework.util.DefaultAnnotationFormatter;
 import org.checkerframework.framework.util.FieldInvariants;
+import org.checkerframework.framework.util.PerformanceStatistics;
 import org.checkerframework.framework.util.TreePathCacher;
 import org.checkerframework.framework.util.typeinference.DefaultTypeArgumentInference;
 import org.checkerframework.framework.util.typeinference.TypeArgInferenceUtil;
@@ -110,6 +116,7 @@ import org.checkerframework.javacutil.TypeKindUtils;
 import org.checkerframework.javacutil.TypeSystemError;
 import org.checkerframework.javacutil.TypesUtils;
 import org.checkerframework.javacutil.UserError;
+import org.checkerframework.javacutil.WeightedLRUCache;
 import org.checkerframework.javacutil.trees.DetachedVarSymbol;
 
 /**
@@ -345,32 +352,39 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
     /** Size of LRU cache if one isn't specified using the atfCacheSize option. */
     private static final int DEFAULT_CACHE_SIZE = 300;
 
+    /**
+     * The default maximum total weight of the annotated types in an LRU cache, per entry of the
+     * cache size; used if the atfCacheWeight option isn't specified. The weight of an annotated
+     * type is its number of nodes (see {@link #weigh}).
+     */
+    private static final int DEFAULT_CACHE_WEIGHT_PER_ENTRY = 20;
+
     /** Mapping from a Tree to its annotated type; defaults have been applied. */
-    private final Map<Tree, AnnotatedTypeMirror> classAndMethodTreeCache;
+    private final WeightedLRUCache<Tree, AnnotatedTypeMirror> classAndMethodTreeCache;
 
     /**
      * Mapping from an expression tree to its annotated type; before defaults are applied, just what
      * the programmer wrote.
      */
-    protected final Map<Tree, AnnotatedTypeMirror> fromExpressionTreeCache;
+    protected final WeightedLRUCache<Tree, AnnotatedTypeMirror> fromExpressionTreeCache;
 
     /**
      * Mapping from a member tree to its annotated type; before defaults are applied, just what the
      * programmer wrote.
      */
-    protected final Map<Tree, AnnotatedTypeMirror> fromMemberTreeCache;
+    protected final WeightedLRUCache<Tree, AnnotatedTypeMirror> fromMemberTreeCache;
 
     /**
      * Mapping from a type tree to its annotated type; before defaults are applied, just what the
      * programmer wrote.
      */
-    protected final Map<Tree, AnnotatedTypeMirror> fromTypeTreeCache;
+    protected final WeightedLRUCache<Tree, AnnotatedTypeMirror> fromTypeTreeCache;
 
     /**
      * Mapping from an Element to its annotated type; before defaults are applied, just what the
      * programmer wrote.
      */
-    private final Map<Element, AnnotatedTypeMirror> elementCache;
+    private final WeightedLRUCache<Element, AnnotatedTypeMirror> elementCache;
 
     /** Mapping from an Element to the source Tree of the declaration. */
     private final Map<Element, Tree> elementToTreeCache;
@@ -432,11 +446,22 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         this.shouldCache = !checker.hasOption("atfDoNotCache");
         if (shouldCache) {
             int cacheSize = getCacheSize();
-            this.classAndMethodTreeCache = CollectionUtils.createLRUCache(cacheSize);
-            this.fromExpressionTreeCache = CollectionUtils.createLRUCache(cacheSize);
-            this.fromMemberTreeCache = CollectionUtils.createLRUCache(cacheSize);
-            this.fromTypeTreeCache = CollectionUtils.createLRUCache(cacheSize);
-            this.elementCache = CollectionUtils.createLRUCache(cacheSize);
+            long cacheWeight = getCacheWeight();
+            this.classAndMethodTreeCache =
+                    CollectionUtils.createLRUCache(
+                            cacheSize, cacheWeight, AnnotatedTypeFactory::weigh);
+            this.fromExpressionTreeCache =
+                    CollectionUtils.createLRUCache(
+                            cacheSize, cacheWeight, AnnotatedTypeFactory::weigh);
+            this.fromMemberTreeCache =
+                    CollectionUtils.createLRUCache(
+                            cacheSize, cacheWeight, AnnotatedTypeFactory::weigh);
+            this.fromTypeTreeCache =
+                    CollectionUtils.createLRUCache(
+                            cacheSize, cacheWeight, AnnotatedTypeFactory::weigh);
+            this.elementCache =
+                    CollectionUtils.createLRUCache(
+                            cacheSize, cacheWeight, AnnotatedTypeFactory::weigh);
             this.elementToTreeCache = CollectionUtils.createLRUCache(cacheSize);
             this.annotationClassNames =
                     Collections.synchronizedMap(
@@ -477,7 +502,17 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             }
             boolean isNullnessChecker =
                     "NullnessAnnotatedTypeFactory".equals(this.getClass().getSimpleName());
-            wholeProgramInference = new WholeProgramInferenceScenes(!isNullnessChecker);
+            // A driver that runs several rounds of inference in one JVM carries the inferred
+            // annotations from one round to the next. Otherwise, the next compilation continues
+            // from the files written to WholeProgramInferenceScenesStorage.JAIF_FILES_PATH.
+            WholeProgramInferenceDriver driver =
+                    WholeProgramInferenceDriver.instance(processingEnv);
+            wholeProgramInference =
+                    driver == null
+                            ? new WholeProgramInferenceScenes(
+                                    !isNullnessChecker,
+                                    WholeProgramInferenceScenesStorage.getReadersPath(checker))
+                            : driver.getWholeProgramInference(checker, !isNullnessChecker);
         } else {
             wholeProgramInference = null;
         }
@@ -650,6 +685,9 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
             fromMemberTreeCache.clear();
             fromTypeTreeCache.clear();
             classAndMethodTreeCache.clear();
+            if (typeHierarchy instanceof DefaultTypeHierarchy) {
+                ((DefaultTypeHierarchy) typeHierarchy).clearCache();
+            }
 
             // There is no need to clear the following cache, it is limited by cache size and it
             // contents won't change between compilation units.
@@ -956,6 +994,104 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         }
     }
 
+    /**
+     * Returns the long supplied to the checker via the atfCacheWeight option or the default cache
+     * weight, which is proportional to the cache size. This is the maximum total weight of the
+     * annotated types in each cache of annotated types; see {@link #weigh}.
+     *
+     * @return cache weight passed as argument to checker, or the default cache weight
+     */
+    protected long getCacheWeight() {
+        String option = checker.getOption("atfCacheWeight");
+        if (option == null) {
+            return (long) DEFAULT_CACHE_WEIGHT_PER_ENTRY * getCacheSize();
+        }
+        try {
+            return Long.valueOf(option);
+        } catch (NumberFormatException ex) {
+            throw new UserError("atfCacheWeight was not an integer: " + option);
+        }
+    }
+
+    /**
+     * Returns the weight of an annotated type in a cache: an approximation of its size, namely the
+     * number of annotated types that an {@link AnnotatedTypeScanner} visits in it.
+     *
+     * @param type an annotated type
+     * @return the approximate number of nodes in {@code type}
+     */
+    private static int weigh(AnnotatedTypeMirror type) {
+        Integer nodes =
+                new SimpleAnnotatedTypeScanner<Integer, Void>((t, p) -> 1, Integer::sum, 0)
+                        .visit(type);
+        return nodes;
+    }
+
+    /**
+     * Returns the size and hit, miss, and eviction counts of each cache of annotated types, one
+     * line per cache. Returns the empty string if caching is disabled.
+     *
+     * @return statistics about the caches of annotated types
+     */
+    public String getCacheStatistics() {
+        if (!shouldCache) {
+            return "";
+        }
+        StringJoiner result = new StringJoiner(System.lineSeparator());
+        result.add("classAndMethodTreeCache: " + classAndMethodTreeCache.getStatistics());
+        result.add("fromExpressionTreeCache: " + fromExpressionTreeCache.getStatistics());
+        result.add("fromMemberTreeCache: " + fromMemberTreeCache.getStatistics());
+        result.add("fromTypeTreeCache: " + fromTypeTreeCache.getStatistics());
+        result.add("elementCache: " + elementCache.getStatistics());
+        if (typeHierarchy instanceof DefaultTypeHierarchy) {
+            result.add(
+                    "subtypeCache: "
+                            + ((DefaultTypeHierarchy) typeHierarchy).getCacheStatistics());
+        }
+        return result.toString();
+    }
+
+    /**
+     * Records the hit and miss counts of each cache of annotated types in the given performance
+     * statistics, under the name of the checker and the cache. Does nothing if caching is
+     * disabled.
+     *
+     * @param performanceStatistics where to record the counts
+     */
+    public void recordCacheStatistics(PerformanceStatistics performanceStatistics) {
+        if (!shouldCache) {
+            return;
+        }
+        String prefix = checker.getClass().getSimpleName() + ".";
+        recordCacheStatistics(
+                performanceStatistics, prefix + "classAndMethodTreeCache", classAndMethodTreeCache);
+        recordCacheStatistics(
+                performanceStatistics, prefix + "fromExpressionTreeCache", fromExpressionTreeCache);
+        recordCacheStatistics(
+                performanceStatistics, prefix + "fromMemberTreeCache", fromMemberTreeCache);
+        recordCacheStatistics(
+                performanceStatistics, prefix + "fromTypeTreeCache", fromTypeTreeCache);
+        recordCacheStatistics(performanceStatistics, prefix + "elementCache", elementCache);
+        if (typeHierarchy instanceof DefaultTypeHierarchy) {
+            ((DefaultTypeHierarchy) typeHierarchy)
+                    .recordCacheStatistics(performanceStatistics, prefix + "subtypeCache");
+        }
+    }
+
+    /**
+     * Records the hit and miss counts of a cache in the given performance statistics.
+     *
+     * @param performanceStatistics where to record the counts
+     * @param name the name of the cache
+     * @param cache the cache
+     */
+    private static void recordCacheStatistics(
+            PerformanceStatistics performanceStatistics,
+            String name,
+            WeightedLRUCache<?, ?> cache) {
+        performanceStatistics.recordCache(name, cache.getHitCount(), cache.getMissCount());
+    }
+
     /**
      * Returns an AnnotatedTypeMirror representing the annotated type of {@code elt}.
      *
@@ -1010,8 +1146,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         if (tree == null) {
             throw new BugInCF("AnnotatedTypeFactory.getAnnotatedType: null tree");
         }
-        if (shouldCache && classAndMethodTreeCache.containsKey(tree)) {
-            return classAndMethodTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = classAndMethodTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror type;
@@ -1051,6 +1190,21 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      */
     public void preProcessClassTree(ClassTree classTree) {}
 
+    /**
+     * Called by {@link BaseTypeVisitor#scan(Tree, Void)} before the methodTree is type checked.
+     *
+     * @param methodTree MethodTree on which to perform preprocessing
+     */
+    public void preProcessMethodTree(MethodTree methodTree) {}
+
+    /**
+     * Called by {@link BaseTypeVisitor#scan(Tree, Void)} after the methodTree has been type
+     * checked.
+     *
+     * @param methodTree MethodTree on which to perform postprocessing
+     */
+    public void postProcessMethodTree(MethodTree methodTree) {}
+
     /**
      * Called by {@link BaseTypeVisitor#visitClass(ClassTree, Void)} after the ClassTree has been
      * type checked.
@@ -1139,8 +1293,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return AnnotatedTypeMirror of the element with explicitly-written and stub file annotations
      */
     public AnnotatedTypeMirror fromElement(Element elt) {
-        if (shouldCache && elementCache.containsKey(elt)) {
-            return elementCache.get(elt).deepCopy();
+        recordWholeProgramInferenceRead(elt);
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = elementCache.get(elt);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
         if (elt.getKind() == ElementKind.PACKAGE) {
             return toAnnotatedType(elt.asType(), false);
@@ -1213,8 +1371,12 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
                     "AnnotatedTypeFactory.fromMember: not a method or variable declaration: "
                             + tree);
         }
-        if (shouldCache && fromMemberTreeCache.containsKey(tree)) {
-            return fromMemberTreeCache.get(tree).deepCopy();
+        recordWholeProgramInferenceRead(TreeUtils.elementFromTree(tree));
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromMemberTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
         AnnotatedTypeMirror result = TypeFromTree.fromMember(this, tree);
 
@@ -1229,6 +1391,19 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
         return result;
     }
 
+    /**
+     * If whole-program inference is enabled, records that the compilation unit that is being
+     * type-checked read the declared type of {@code elt}, so that the compilation unit is
+     * type-checked again if the inferred type of {@code elt} changes.
+     *
+     * @param elt an element whose declared type is read, or null
+     */
+    private void recordWholeProgramInferenceRead(@Nullable Element elt) {
+        if (wholeProgramInference != null && root != null && elt != null) {
+            wholeProgramInference.recordRead(elt, root);
+        }
+    }
+
     /**
      * Merges types from stub files for {@code tree} into {@code type} by taking the greatest lower
      * bound of the annotations in both.
@@ -1282,8 +1457,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @see TypeFromExpressionVisitor
      */
     private AnnotatedTypeMirror fromExpression(ExpressionTree tree) {
-        if (shouldCache && fromExpressionTreeCache.containsKey(tree)) {
-            return fromExpressionTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromExpressionTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror result = TypeFromTree.fromExpression(this, tree);
@@ -1312,8 +1490,11 @@ public class AnnotatedTypeFactory implements AnnotationProvider {
      * @return the (partially) annotated type of the type in the AST
      */
     /*package private*/ final AnnotatedTypeMirror fromTypeTree(Tree tree) {
-        if (shouldCache && fromTypeTreeCache.containsKey(tree)) {
-            return fromTypeTreeCache.get(tree).deepCopy();
+        if (shouldCache) {
+            AnnotatedTypeMirror cached = fromTypeTreeCache.get(tree);
+            if (cached != null) {
+                return cached.deepCopy();
+            }
         }
 
         AnnotatedTypeMirror result = TypeFromTree.fromTypeTree(this, tree);
@@ -140,7 +140,7 @@ public abstract class AnnotatedTypeMirror {
     // the class name of Annotation instead.
     // Caution: Assumes that a type can have at most one AnnotationMirror for
     // any Annotation type.
-    protected final Set<AnnotationMirror> annotations = AnnotationUtils.createAnnotationSet();
+    protected final Set<AnnotationMirror> annotations = new PrimaryAnnotationSet();
 
     /** The explicitly written annotations on this type. */
     // TODO: use this to cache the result once computed? For generic types?
@@ -259,6 +259,9 @@ public abstract class AnnotatedTypeMirror {
      * @return an annotation from the same hierarchy as p if present
      */
     public AnnotationMirror getAnnotationInHierarchy(AnnotationMirror p) {
+        if (annotations.isEmpty()) {
+            return null;
+        }
         AnnotationMirror aliased = p;
         if (!atypeFactory.isSupportedQualifier(aliased)) {
             aliased = atypeFactory.canonicalAnnotation(p);
@@ -348,6 +351,22 @@ public abstract class AnnotatedTypeMirror {
         return annotations;
     }
 
+    /**
+     * If {@code copyAnnotations} is true, adds the primary annotations of {@code source} to this
+     * type. Used when copying types without an {@link AnnotatedTypeCopier}; the annotations are
+     * added through {@link #addAnnotations}, as {@link
+     * AnnotatedTypeCopier#maybeCopyPrimaryAnnotations} does.
+     *
+     * @param source the type whose primary annotations to copy
+     * @param copyAnnotations whether to copy the annotations
+     */
+    /*default-visibility*/ void copyPrimaryAnnotationsFrom(
+            AnnotatedTypeMirror source, boolean copyAnnotations) {
+        if (copyAnnotations) {
+            addAnnotations(source.getAnnotationsField());
+        }
+    }
+
     /**
      * Returns the "effective" annotations on this type, i.e. the annotations on the type itself, or
      * on the upper/extends bound of a type variable/wildcard (recursively, until a class type is
@@ -892,6 +911,20 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedDeclaredType deepCopy(boolean copyAnnotations) {
+            if (enclosingType == null && (typeArgs == null || typeArgs.isEmpty())) {
+                // This type has no component types, so copy it as AnnotatedTypeCopier would,
+                // without the copier's bookkeeping.
+                AnnotatedDeclaredType copy =
+                        new AnnotatedDeclaredType(getUnderlyingType(), atypeFactory, declaration);
+                copy.copyPrimaryAnnotationsFrom(this, copyAnnotations);
+                if (wasRaw) {
+                    copy.setWasRaw();
+                }
+                if (typeArgs != null) {
+                    copy.typeArgs = Collections.emptyList();
+                }
+                return copy;
+            }
             return (AnnotatedDeclaredType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
         }
 
@@ -1751,7 +1784,10 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNoType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNoType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // This type has no component types, so a shallow copy is a deep copy.
+            AnnotatedNoType copy = new AnnotatedNoType(getUnderlyingType(), atypeFactory);
+            copy.copyPrimaryAnnotationsFrom(this, copyAnnotations);
+            return copy;
         }
 
         @Override
@@ -1793,7 +1829,10 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedNullType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedNullType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // This type has no component types, so a shallow copy is a deep copy.
+            AnnotatedNullType copy = new AnnotatedNullType(getUnderlyingType(), atypeFactory);
+            copy.copyPrimaryAnnotationsFrom(this, copyAnnotations);
+            return copy;
         }
 
         @Override
@@ -1838,7 +1877,11 @@ public abstract class AnnotatedTypeMirror {
 
         @Override
         public AnnotatedPrimitiveType deepCopy(boolean copyAnnotations) {
-            return (AnnotatedPrimitiveType) new AnnotatedTypeCopier(copyAnnotations).visit(this);
+            // This type has no component types, so a shallow copy is a deep copy.
+            AnnotatedPrimitiveType copy =
+                    new AnnotatedPrimitiveType(getUnderlyingType(), atypeFactory);
+            copy.copyPrimaryAnnotationsFrom(this, copyAnnotations);
+            return copy;
         }
 
         @Override
@@ -22,9 +22,13 @@ import org.checkerframework.framework.type.AnnotatedTypeMirror.AnnotatedWildcard
 import org.checkerframework.framework.type.visitor.AbstractAtmComboVisitor;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.AtmCombo;
+import org.checkerframework.framework.util.PerformanceStatistics;
+import org.checkerframework.framework.util.PerformanceStatistics.Counter;
 import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
+import org.checkerframework.javacutil.CollectionUtils;
 import org.checkerframework.javacutil.TypesUtils;
+import org.checkerframework.javacutil.WeightedLRUCache;
 
 /**
  * Default implementation of TypeHierarchy that implements the JLS specification with minor
@@ -121,6 +125,17 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
      */
     protected final StructuralEqualityVisitHistory typeargVisitHistory;
 
+    /** The maximum number of results in {@link #subtypeCache}. */
+    private static final int SUBTYPE_CACHE_SIZE = 1000;
+
+    /**
+     * The results of {@link #isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror)} for pairs of
+     * types that {@link #isCacheable(AnnotatedTypeMirror)} accepts, or null if caching is disabled
+     * by the {@code -AatfDoNotCache} command-line option. The keys hold copies of the types,
+     * because annotated types are mutable. Cleared for each compilation unit.
+     */
+    private final @Nullable WeightedLRUCache<SubtypeKey, Boolean> subtypeCache;
+
     /** Creates a DefaultTypeHierarchy. */
     public DefaultTypeHierarchy(
             final BaseTypeChecker checker,
@@ -132,6 +147,11 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
         this.visitHistory = new SubtypeVisitHistory();
         this.typeargVisitHistory = new StructuralEqualityVisitHistory();
         this.equalityComparer = createEqualityComparer();
+        this.subtypeCache =
+                checker.hasOption("atfDoNotCache")
+                        ? null
+                        : CollectionUtils.createLRUCache(
+                                SUBTYPE_CACHE_SIZE, SUBTYPE_CACHE_SIZE, result -> 1);
 
         this.ignoreRawTypes = ignoreRawTypes;
         this.invariantArrayComponents = invariantArrayComponents;
@@ -150,6 +170,9 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
      * should not override this method, but instead override {@link #isSubtype(AnnotatedTypeMirror,
      * AnnotatedTypeMirror, AnnotationMirror)} or some of the {@code visitXXX} methods.
      *
+     * <p>The result is cached if both types are cacheable; see {@link
+     * #isCacheable(AnnotatedTypeMirror)}.
+     *
      * @param subtype expected subtype
      * @param supertype expected supertype
      * @return true if subtype is a subtype of supertype or equal to it
@@ -157,6 +180,29 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
     @Override
     public boolean isSubtype(
             final AnnotatedTypeMirror subtype, final AnnotatedTypeMirror supertype) {
+        checker.getPerformanceStatistics().record(Counter.IS_SUBTYPE, 1);
+        if (subtypeCache == null || !isCacheable(subtype) || !isCacheable(supertype)) {
+            return isSubtypeInAllHierarchies(subtype, supertype);
+        }
+        SubtypeKey key = new SubtypeKey(subtype, supertype);
+        Boolean cached = subtypeCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = isSubtypeInAllHierarchies(subtype, supertype);
+        subtypeCache.put(key.copy(), result);
+        return result;
+    }
+
+    /**
+     * Returns true if subtype {@literal <:} supertype in every hierarchy.
+     *
+     * @param subtype expected subtype
+     * @param supertype expected supertype
+     * @return true if subtype is a subtype of supertype or equal to it
+     */
+    private boolean isSubtypeInAllHierarchies(
+            final AnnotatedTypeMirror subtype, final AnnotatedTypeMirror supertype) {
         for (final AnnotationMirror top : qualifierHierarchy.getTopAnnotations()) {
             if (!isSubtype(subtype, supertype, top)) {
                 return false;
@@ -166,6 +212,143 @@ public class DefaultTypeHierarchy extends AbstractAtmComboVisitor<Boolean, Void>
         return true;
     }
 
+    /**
+     * Returns true if the results of {@link #isSubtype(AnnotatedTypeMirror, AnnotatedTypeMirror)}
+     * for {@code type} may be cached. Whether a type is a subtype of another must depend only on
+     * what {@link AnnotatedTypeMirror#equals(Object)} compares: the primary annotations and
+     * underlying types of the types and their components. That holds for primitive types, the
+     * null type, and arrays and non-raw declared types whose components are cacheable, but not
+     * for type variables and wildcards, whose bounds {@code equals} does not compare.
+     *
+     * <p>Subclasses whose subtyping rules depend on anything else must override this method.
+     *
+     * @param type a type
+     * @return true if the subtyping results for {@code type} may be cached
+     */
+    protected boolean isCacheable(AnnotatedTypeMirror type) {
+        switch (type.getKind()) {
+            case DECLARED:
+                AnnotatedDeclaredType declaredType = (AnnotatedDeclaredType) type;
+                if (declaredType.wasRaw()) {
+                    return false;
+                }
+                for (AnnotatedTypeMirror typeArg : declaredType.getTypeArguments()) {
+                    if (!isCacheable(typeArg)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ARRAY:
+                return isCacheable(((AnnotatedArrayType) type).getComponentType());
+            case NULL:
+                return true;
+            default:
+                return type.getKind().isPrimitive();
+        }
+    }
+
+    /**
+     * Discards the cached subtyping results. {@link AnnotatedTypeFactory#setRoot} calls this for
+     * each compilation unit.
+     */
+    public void clearCache() {
+        if (subtypeCache != null) {
+            subtypeCache.clear();
+        }
+    }
+
+    /**
+     * Records the hit and miss counts of the cache of subtyping results in the given performance
+     * statistics. Does nothing if caching is disabled.
+     *
+     * @param performanceStatistics where to record the counts
+     * @param name the name of the cache
+     */
+    public void recordCacheStatistics(PerformanceStatistics performanceStatistics, String name) {
+        if (subtypeCache != null) {
+            performanceStatistics.recordCache(
+                    name, subtypeCache.getHitCount(), subtypeCache.getMissCount());
+        }
+    }
+
+    /**
+     * Returns the size and hit, miss, and eviction counts of the cache of subtyping results, or
+     * the empty string if caching is disabled.
+     *
+     * @return statistics about the cache of subtyping results
+     */
+    public String getCacheStatistics() {
+        return subtypeCache == null ? "" : subtypeCache.getStatistics();
+    }
+
+    /**
+     * A key of {@link #subtypeCache}: a pair of types, compared with {@link
+     * AnnotatedTypeMirror#equals(Object)}.
+     */
+    private static final class SubtypeKey {
+        /** The expected subtype. */
+        private final AnnotatedTypeMirror subtype;
+
+        /** The expected supertype. */
+        private final AnnotatedTypeMirror supertype;
+
+        /** The hash code of this key, computed by {@link HashcodeAtmVisitor} once. */
+        private final int hashCode;
+
+        /**
+         * Creates a SubtypeKey.
+         *
+         * @param subtype the expected subtype
+         * @param supertype the expected supertype
+         */
+        SubtypeKey(AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype) {
+            this(subtype, supertype, 31 * subtype.hashCode() + supertype.hashCode());
+        }
+
+        /**
+         * Creates a SubtypeKey.
+         *
+         * @param subtype the expected subtype
+         * @param supertype the expected supertype
+         * @param hashCode the hash code of the key
+         */
+        private SubtypeKey(
+                AnnotatedTypeMirror subtype, AnnotatedTypeMirror supertype, int hashCode) {
+            this.subtype = subtype;
+            this.supertype = supertype;
+            this.hashCode = hashCode;
+        }
+
+        /**
+         * Returns a key with copies of the types of this key, which later changes to the types of
+         * this key do not affect.
+         *
+         * @return a copy of this key
+         */
+        SubtypeKey copy() {
+            return new SubtypeKey(subtype.deepCopy(), supertype.deepCopy(), hashCode);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SubtypeKey)) {
+                return false;
+            }
+            SubtypeKey other = (SubtypeKey) o;
+            return hashCode == other.hashCode
+                    && subtype.equals(other.subtype)
+                    && supertype.equals(other.supertype);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     /**
      * Returns true if {@code subtype <: supertype}, but only for the hierarchy of which {@code top}
      * is the top.
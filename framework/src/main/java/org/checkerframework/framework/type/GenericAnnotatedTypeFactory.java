@@ -30,6 +30,7 @@ import java.util.StringJoiner;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -62,7 +63,6 @@ import org.checkerframework.framework.flow.CFAbstractStore;
 import org.checkerframework.framework.flow.CFAbstractTransfer;
 import org.checkerframework.framework.flow.CFAbstractValue;
 import org.checkerframework.framework.flow.CFAnalysis;
-import org.checkerframework.framework.flow.CFCFGBuilder;
 import org.checkerframework.framework.flow.CFStore;
 import org.checkerframework.framework.flow.CFTransfer;
 import org.checkerframework.framework.flow.CFValue;
@@ -90,6 +90,10 @@ import org.checkerframework.framework.type.typeannotator.TypeAnnotator;
 import org.checkerframework.framework.util.AnnotatedTypes;
 import org.checkerframework.framework.util.FlowExpressionParseUtil;
 import org.checkerframework.framework.util.FlowExpressionParseUtil.FlowExpressionParseException;
+import org.checkerframework.framework.util.PerformanceStatistics;
+import org.checkerframework.framework.util.PerformanceStatistics.Counter;
+import org.checkerframework.framework.util.PerformanceStatistics.MethodStatistics;
+import org.checkerframework.framework.util.PerformanceStatistics.Phase;
 import org.checkerframework.framework.util.defaults.QualifierDefaults;
 import org.checkerframework.framework.util.dependenttypes.DependentTypesHelper;
 import org.checkerframework.framework.util.dependenttypes.DependentTypesTreeAnnotator;
@@ -157,6 +161,22 @@ public abstract class GenericAnnotatedTypeFactory<
     /** Is this type factory configured to use flow-sensitive type refinement? */
     private final boolean everUseFlow;
 
+    /**
+     * Whether the dataflow analysis of a method is deferred until the method is type-checked; set
+     * by the {@code -AlazyFlowAnalysis} command-line option.
+     *
+     * @see #preProcessMethodTree(MethodTree)
+     */
+    private final boolean lazyFlowAnalysis;
+
+    /**
+     * Whether the dataflow results of a method are discarded once the method has been
+     * type-checked; set by the {@code -AdiscardFlowResults} command-line option.
+     *
+     * @see #postProcessMethodTree(MethodTree)
+     */
+    private final boolean discardFlowResults;
+
     /**
      * Should the local variable default annotation be applied to type variables?
      *
@@ -235,9 +255,14 @@ public abstract class GenericAnnotatedTypeFactory<
         this.everUseFlow = useFlow;
         this.shouldDefaultTypeVarLocals = useFlow;
         this.useFlow = useFlow;
+        this.lazyFlowAnalysis = checker.hasOption("lazyFlowAnalysis");
+        this.discardFlowResults = checker.hasOption("discardFlowResults");
 
         this.variablesUnderInitialization = new HashSet<>();
         this.scannedClasses = new HashMap<>();
+        this.deferredMethods = new IdentityHashMap<>();
+        this.methodCFGs = new IdentityHashMap<>();
+        this.methodsToDiscard = new ArrayList<>();
         this.flowResult = null;
         this.regularExitStores = null;
         this.exceptionalExitStores = null;
@@ -295,6 +320,82 @@ public abstract class GenericAnnotatedTypeFactory<
         }
     }
 
+    /**
+     * Performs the deferred flow-sensitive type refinement of {@code methodTree}, if the {@code
+     * -AlazyFlowAnalysis} command-line option deferred it.
+     *
+     * @param methodTree the method that is about to be type-checked
+     */
+    @Override
+    public void preProcessMethodTree(MethodTree methodTree) {
+        performDeferredFlowAnalysis(methodTree);
+    }
+
+    /**
+     * Discards the dataflow results of {@code methodTree} and of the lambda expressions in it, for
+     * this checker and all of its subcheckers, if the {@code -AdiscardFlowResults} command-line
+     * option is given and this is the factory of the root checker.
+     *
+     * <p>A subchecker type-checks a whole class before its parent type-checks any method of it, and
+     * the parent's factory reads the subchecker's dataflow results while it type-checks each
+     * method. So the results of a method can only be discarded once the root checker, which runs
+     * last, has type-checked it.
+     *
+     * @param methodTree the method that has been type-checked
+     */
+    @Override
+    public void postProcessMethodTree(MethodTree methodTree) {
+        if (!discardFlowResults || checker.getParentChecker() != null) {
+            return;
+        }
+        for (BaseTypeChecker subchecker : checker.getSubcheckers()) {
+            GenericAnnotatedTypeFactory<?, ?, ?, ?> subFactory = subchecker.getTypeFactory();
+            if (subFactory != null) {
+                subFactory.discardFlowResults(methodTree);
+            }
+        }
+        discardFlowResults(methodTree);
+    }
+
+    /**
+     * Discards the dataflow results of {@code methodTree} and of the lambda expressions in it. Its
+     * exit stores and the values of its effectively final local variables are kept, because other
+     * methods use them.
+     *
+     * @param methodTree a method that this checker and its parent checkers have type-checked
+     */
+    private void discardFlowResults(MethodTree methodTree) {
+        if (analysis.isRunning()) {
+            // The running analysis might read the results, so discard them once it is done.
+            if (methodCFGs.containsKey(methodTree)) {
+                methodsToDiscard.add(methodTree);
+            }
+            return;
+        }
+        for (MethodTree method : methodsToDiscard) {
+            discardFlowResultsNow(method);
+        }
+        methodsToDiscard.clear();
+        discardFlowResultsNow(methodTree);
+    }
+
+    /**
+     * Discards the dataflow results of {@code methodTree} and of the lambda expressions in it,
+     * which must not be in use by a running analysis.
+     *
+     * @param methodTree a method that this checker and its parent checkers have type-checked
+     */
+    private void discardFlowResultsNow(MethodTree methodTree) {
+        List<ControlFlowGraph> cfgs = methodCFGs.remove(methodTree);
+        if (cfgs == null) {
+            return;
+        }
+        for (ControlFlowGraph cfg : cfgs) {
+            flowResult.removeResultsFor(cfg);
+        }
+        returnStatementStores.remove(methodTree);
+    }
+
     /**
      * Creates a type factory for checking the given compilation unit with respect to the given
      * annotation.
@@ -309,6 +410,9 @@ public abstract class GenericAnnotatedTypeFactory<
     public void setRoot(@Nullable CompilationUnitTree root) {
         super.setRoot(root);
         this.scannedClasses.clear();
+        this.deferredMethods.clear();
+        this.methodCFGs.clear();
+        this.methodsToDiscard.clear();
         this.flowResult = null;
         this.regularExitStores = null;
         this.exceptionalExitStores = null;
@@ -854,6 +958,80 @@ public abstract class GenericAnnotatedTypeFactory<
     /** Map from ClassTree to their dataflow analysis state. */
     protected final Map<ClassTree, ScanState> scannedClasses;
 
+    /** What is needed to analyze a method whose analysis was deferred. */
+    private class DeferredMethod {
+        /** The method. */
+        final CFGMethod method;
+
+        /** The path to the class that declares the method. */
+        final TreePath classPath;
+
+        /** The abstract values of the final fields with an initializer, as the method sees them. */
+        final List<Pair<VariableElement, Value>> fieldValues;
+
+        /** The top-level class that contains the method. */
+        final ClassTree topLevelClass;
+
+        /** The input Store to use for captured variables. */
+        final Store capturedStore;
+
+        /**
+         * The value of {@link GenericAnnotatedTypeFactory#initializationStore} when the methods of
+         * the class were reached.
+         */
+        final Store initializationStore;
+
+        /**
+         * The value of {@link GenericAnnotatedTypeFactory#initializationStaticStore} when the
+         * methods of the class were reached.
+         */
+        final Store initializationStaticStore;
+
+        /**
+         * Creates a DeferredMethod, which records the current initialization stores.
+         *
+         * @param method the method
+         * @param classPath the path to the class that declares the method
+         * @param fieldValues the abstract values of the final fields with an initializer
+         * @param topLevelClass the top-level class that contains the method
+         * @param capturedStore the input Store to use for captured variables
+         */
+        DeferredMethod(
+                CFGMethod method,
+                TreePath classPath,
+                List<Pair<VariableElement, Value>> fieldValues,
+                ClassTree topLevelClass,
+                Store capturedStore) {
+            this.method = method;
+            this.classPath = classPath;
+            this.fieldValues = fieldValues;
+            this.topLevelClass = topLevelClass;
+            this.capturedStore = capturedStore;
+            this.initializationStore = GenericAnnotatedTypeFactory.this.initializationStore;
+            this.initializationStaticStore =
+                    GenericAnnotatedTypeFactory.this.initializationStaticStore;
+        }
+    }
+
+    /**
+     * The methods whose dataflow analysis was deferred by the {@code -AlazyFlowAnalysis}
+     * command-line option, and that have not been analyzed yet.
+     */
+    private final IdentityHashMap<Tree, DeferredMethod> deferredMethods;
+
+    /**
+     * The control flow graphs of each method and of the lambda expressions in it, whose results
+     * {@link #postProcessMethodTree(MethodTree)} discards. Empty unless the {@code
+     * -AdiscardFlowResults} command-line option is given.
+     */
+    private final IdentityHashMap<MethodTree, List<ControlFlowGraph>> methodCFGs;
+
+    /**
+     * The methods whose dataflow results {@link #postProcessMethodTree(MethodTree)} could not
+     * discard because the analysis was running. They are discarded at the next opportunity.
+     */
+    private final List<MethodTree> methodsToDiscard;
+
     /**
      * The result of the flow analysis. Invariant:
      *
@@ -894,6 +1072,7 @@ public abstract class GenericAnnotatedTypeFactory<
      *     method cannot exit through the regular exit block).
      */
     public @Nullable Store getRegularExitStore(Tree tree) {
+        performDeferredFlowAnalysis(tree);
         return regularExitStores.get(tree);
     }
 
@@ -905,6 +1084,7 @@ public abstract class GenericAnnotatedTypeFactory<
      * @return the exceptional exit store, or {@code null}, if there is no such store.
      */
     public @Nullable Store getExceptionalExitStore(Tree tree) {
+        performDeferredFlowAnalysis(tree);
         return exceptionalExitStores.get(tree);
     }
 
@@ -919,6 +1099,7 @@ public abstract class GenericAnnotatedTypeFactory<
      */
     public List<Pair<ReturnNode, TransferResult<Value, Store>>> getReturnStatementStores(
             MethodTree methodTree) {
+        performDeferredFlowAnalysis(methodTree);
         assert returnStatementStores.containsKey(methodTree);
         return returnStatementStores.get(methodTree);
     }
@@ -1096,6 +1277,22 @@ public abstract class GenericAnnotatedTypeFactory<
         // No captured store for top-level classes.
         queue.add(Pair.of(classTree, null));
 
+        analyzeClasses(queue, fieldValues, classTree);
+    }
+
+    /**
+     * Performs dataflow analysis on the classes in {@code queue} and on the classes that are added
+     * to it, until it is empty.
+     *
+     * @param queue the classes to analyze, and their captured stores
+     * @param fieldValues the abstract values of the final fields with an initializer that have been
+     *     analyzed so far
+     * @param classTree the top-level class that contains the classes in {@code queue}
+     */
+    private void analyzeClasses(
+            Queue<Pair<ClassTree, Store>> queue,
+            List<Pair<VariableElement, Value>> fieldValues,
+            ClassTree classTree) {
         while (!queue.isEmpty()) {
             final Pair<ClassTree, Store> qel = queue.remove();
             final ClassTree ct = qel.first;
@@ -1201,36 +1398,9 @@ public abstract class GenericAnnotatedTypeFactory<
                 // Now analyze all methods.
                 // TODO: at this point, we don't have any information about
                 // fields of superclasses.
-                for (CFGMethod met : methods) {
-                    analyze(
-                            queue,
-                            lambdaQueue,
-                            met,
-                            fieldValues,
-                            classTree,
-                            TreeUtils.isConstructor(met.getMethod()),
-                            false,
-                            false,
-                            capturedStore);
-                }
+                analyzeMethods(queue, lambdaQueue, methods, fieldValues, classTree, capturedStore);
 
-                while (!lambdaQueue.isEmpty()) {
-                    Pair<LambdaExpressionTree, Store> lambdaPair = lambdaQueue.poll();
-                    MethodTree mt =
-                            (MethodTree)
-                                    TreeUtils.enclosingOfKind(
-                                            getPath(lambdaPair.first), Kind.METHOD);
-                    analyze(
-                            queue,
-                            lambdaQueue,
-                            new CFGLambda(lambdaPair.first, classTree, mt),
-                            fieldValues,
-                            classTree,
-                            false,
-                            false,
-                            false,
-                            lambdaPair.second);
-                }
+                analyzeLambdas(queue, lambdaQueue, fieldValues, classTree);
 
                 // by convention we store the static initialization store as the regular exit
                 // store of the class node, so that it can later be used to check
@@ -1253,6 +1423,173 @@ public abstract class GenericAnnotatedTypeFactory<
         }
     }
 
+    /**
+     * Performs dataflow analysis on the lambda expressions in {@code lambdaQueue} and on the lambda
+     * expressions that are added to it, until it is empty.
+     *
+     * @param queue the queue for encountered class trees and their initial stores
+     * @param lambdaQueue the lambda expressions to analyze, and their initial stores
+     * @param fieldValues the abstract values of the final fields with an initializer
+     * @param topLevelClass the top-level class that contains the lambda expressions
+     */
+    private void analyzeLambdas(
+            Queue<Pair<ClassTree, Store>> queue,
+            Queue<Pair<LambdaExpressionTree, Store>> lambdaQueue,
+            List<Pair<VariableElement, Value>> fieldValues,
+            ClassTree topLevelClass) {
+        while (!lambdaQueue.isEmpty()) {
+            Pair<LambdaExpressionTree, Store> lambdaPair = lambdaQueue.poll();
+            MethodTree mt =
+                    (MethodTree)
+                            TreeUtils.enclosingOfKind(getPath(lambdaPair.first), Kind.METHOD);
+            analyze(
+                    queue,
+                    lambdaQueue,
+                    new CFGLambda(lambdaPair.first, topLevelClass, mt),
+                    fieldValues,
+                    topLevelClass,
+                    false,
+                    false,
+                    false,
+                    lambdaPair.second);
+        }
+    }
+
+    /**
+     * Analyzes the methods of a class, after its field initializers and initializer blocks. The
+     * analysis of a method depends only on {@code fieldValues}, on the initialization store of the
+     * class, and on {@code capturedStore}, not on the analysis of the other methods.
+     *
+     * <p>The methods are analyzed one after another. They cannot be analyzed concurrently: the
+     * transfer functions query this type factory, whose caches are not thread-safe; building a
+     * control flow graph creates javac trees and symbols; and all methods share {@link #analysis},
+     * {@link #transfer}, and {@link #flowResult}.
+     *
+     * <p>With the {@code -AlazyFlowAnalysis} command-line option, this method only records the
+     * methods; each of them is analyzed when {@link #preProcessMethodTree(MethodTree)} or a method
+     * that returns its exit stores is first called on it.
+     *
+     * @param queue the queue for encountered class trees and their initial stores
+     * @param lambdaQueue the queue for encountered lambda expression trees and their initial stores
+     * @param methods the methods of the class that have a body
+     * @param fieldValues the abstract values of the final fields of the class that have an
+     *     initializer
+     * @param topLevelClass the top-level class that contains the methods
+     * @param capturedStore the input Store to use for captured variables
+     */
+    protected void analyzeMethods(
+            Queue<Pair<ClassTree, Store>> queue,
+            Queue<Pair<LambdaExpressionTree, Store>> lambdaQueue,
+            List<CFGMethod> methods,
+            List<Pair<VariableElement, Value>> fieldValues,
+            ClassTree topLevelClass,
+            Store capturedStore) {
+        if (lazyFlowAnalysis) {
+            // The fields of nested classes are added to fieldValues later, but must not be
+            // visible to these methods.
+            List<Pair<VariableElement, Value>> classFieldValues = new ArrayList<>(fieldValues);
+            for (CFGMethod met : methods) {
+                deferredMethods.put(
+                        met.getMethod(),
+                        new DeferredMethod(
+                                met,
+                                visitorState.getPath(),
+                                classFieldValues,
+                                topLevelClass,
+                                capturedStore));
+            }
+            return;
+        }
+        for (CFGMethod met : methods) {
+            analyze(
+                    queue,
+                    lambdaQueue,
+                    met,
+                    fieldValues,
+                    topLevelClass,
+                    TreeUtils.isConstructor(met.getMethod()),
+                    false,
+                    false,
+                    capturedStore);
+        }
+    }
+
+    /**
+     * Performs the dataflow analysis of {@code tree} if it is a method whose analysis was deferred
+     * by the {@code -AlazyFlowAnalysis} command-line option, followed by the analysis of the lambda
+     * expressions and classes in it. Does nothing while another analysis is running.
+     *
+     * @param tree a tree, which may be a method whose analysis was deferred
+     */
+    private void performDeferredFlowAnalysis(Tree tree) {
+        if (deferredMethods.isEmpty() || analysis.isRunning()) {
+            return;
+        }
+        DeferredMethod deferred = deferredMethods.remove(tree);
+        if (deferred == null) {
+            return;
+        }
+        PerformanceStatistics performanceStatistics = checker.getPerformanceStatistics();
+        performanceStatistics.start(Phase.FLOW_ANALYSIS);
+        try {
+            analyzeDeferredMethod(deferred);
+        } finally {
+            performanceStatistics.stop(Phase.FLOW_ANALYSIS);
+        }
+    }
+
+    /**
+     * Performs the dataflow analysis of a method whose analysis was deferred, followed by the
+     * analysis of the lambda expressions and classes in it.
+     *
+     * @param deferred the method whose analysis was deferred
+     */
+    private void analyzeDeferredMethod(DeferredMethod deferred) {
+        TreePath preTreePath = visitorState.getPath();
+        AnnotatedDeclaredType preClassType = visitorState.getClassType();
+        ClassTree preClassTree = visitorState.getClassTree();
+        AnnotatedDeclaredType preAMT = visitorState.getMethodReceiver();
+        MethodTree preMT = visitorState.getMethodTree();
+        Store preInitializationStore = initializationStore;
+        Store preInitializationStaticStore = initializationStaticStore;
+
+        ClassTree ct = deferred.method.getClassTree();
+        List<Pair<VariableElement, Value>> fieldValues = new ArrayList<>(deferred.fieldValues);
+        Queue<Pair<ClassTree, Store>> queue = new ArrayDeque<>();
+        try {
+            visitorState.setPath(deferred.classPath);
+            visitorState.setClassType(getAnnotatedType(TreeUtils.elementFromDeclaration(ct)));
+            visitorState.setClassTree(ct);
+            visitorState.setMethodReceiver(null);
+            visitorState.setMethodTree(null);
+            initializationStore = deferred.initializationStore;
+            initializationStaticStore = deferred.initializationStaticStore;
+
+            Queue<Pair<LambdaExpressionTree, Store>> lambdaQueue = new ArrayDeque<>();
+            analyze(
+                    queue,
+                    lambdaQueue,
+                    deferred.method,
+                    fieldValues,
+                    deferred.topLevelClass,
+                    TreeUtils.isConstructor(deferred.method.getMethod()),
+                    false,
+                    false,
+                    deferred.capturedStore);
+            analyzeLambdas(queue, lambdaQueue, fieldValues, deferred.topLevelClass);
+        } finally {
+            visitorState.setPath(preTreePath);
+            visitorState.setClassType(preClassType);
+            visitorState.setClassTree(preClassTree);
+            visitorState.setMethodReceiver(preAMT);
+            visitorState.setMethodTree(preMT);
+            initializationStore = preInitializationStore;
+            initializationStaticStore = preInitializationStaticStore;
+        }
+        // The classes declared in the method.
+        analyzeClasses(queue, fieldValues, deferred.topLevelClass);
+    }
+
     /**
      * Analyze the AST {@code ast} and store the result. Additional operations that should be
      * performed after analysis should be implemented in {@link #postAnalyze(ControlFlowGraph)}.
@@ -1279,7 +1616,15 @@ public abstract class GenericAnnotatedTypeFactory<
             boolean updateInitializationStore,
             boolean isStatic,
             Store capturedStore) {
-        ControlFlowGraph cfg = CFCFGBuilder.build(root, ast, checker, this, processingEnv);
+        PerformanceStatistics performanceStatistics = checker.getPerformanceStatistics();
+        long start = performanceStatistics.isRecordingMethods() ? System.nanoTime() : 0;
+        performanceStatistics.start(Phase.CFG_CONSTRUCTION);
+        ControlFlowGraph cfg;
+        try {
+            cfg = checker.getCFGCache().build(root, ast, checker, this, processingEnv);
+        } finally {
+            performanceStatistics.stop(Phase.CFG_CONSTRUCTION);
+        }
 
         if (isInitializationCode) {
             Store initStore = !isStatic ? initializationStore : initializationStaticStore;
@@ -1294,7 +1639,34 @@ public abstract class GenericAnnotatedTypeFactory<
         } else {
             transfer.setFixedInitialStore(capturedStore);
         }
-        analysis.performAnalysis(cfg, fieldValues);
+        performanceStatistics.start(Phase.DATAFLOW);
+        try {
+            analysis.performAnalysis(cfg, fieldValues);
+        } finally {
+            performanceStatistics.stop(Phase.DATAFLOW);
+        }
+        performanceStatistics.record(Counter.DATAFLOW_ITERATIONS, analysis.getBlockVisitCount());
+        if (performanceStatistics.isRecordingMethods()) {
+            long nanos = System.nanoTime() - start;
+            Tree code =
+                    ast.getKind() == UnderlyingAST.Kind.METHOD
+                            ? ((CFGMethod) ast).getMethod()
+                            : ast.getCode();
+            long line =
+                    root.getLineMap()
+                            .getLineNumber(trees.getSourcePositions().getStartPosition(root, code));
+            performanceStatistics.recordMethod(
+                    new MethodStatistics(
+                            checker.getClass().getSimpleName(),
+                            describeForStatistics(ast),
+                            root.getSourceFile().getName(),
+                            line,
+                            nanos,
+                            cfg.getAllBlocks().size(),
+                            analysis.getBlockVisitCount(),
+                            analysis.getMaxStoreSize(),
+                            analysis.getWideningCount()));
+        }
         AnalysisResult<Value, Store> result = analysis.getResult();
 
         // store result
@@ -1312,6 +1684,9 @@ public abstract class GenericAnnotatedTypeFactory<
                 exceptionalExitStores.put(method, exceptionalExitStore);
             }
             returnStatementStores.put(method, analysis.getReturnStatementStores());
+            if (discardFlowResults) {
+                methodCFGs.computeIfAbsent(method, m -> new ArrayList<>()).add(cfg);
+            }
         } else if (ast.getKind() == UnderlyingAST.Kind.ARBITRARY_CODE) {
             CFGStatement block = (CFGStatement) ast;
             Store regularExitStore = analysis.getRegularExitStore();
@@ -1334,6 +1709,12 @@ public abstract class GenericAnnotatedTypeFactory<
             if (exceptionalExitStore != null) {
                 exceptionalExitStores.put(block.getCode(), exceptionalExitStore);
             }
+            if (discardFlowResults && block.getMethod() != null) {
+                List<ControlFlowGraph> cfgs = methodCFGs.get(block.getMethod());
+                if (cfgs != null) {
+                    cfgs.add(cfg);
+                }
+            }
         } else {
             assert false : "Unexpected AST kind: " + ast.getKind();
         }
@@ -1359,6 +1740,53 @@ public abstract class GenericAnnotatedTypeFactory<
         postAnalyze(cfg);
     }
 
+    /**
+     * Returns a description of the given code for the {@code -AslowestMethods} command-line option:
+     * the method, the method that contains the lambda, or the class that contains the initializer.
+     *
+     * @param ast a method, lambda, or initializer
+     * @return a description of {@code ast}
+     */
+    private String describeForStatistics(UnderlyingAST ast) {
+        switch (ast.getKind()) {
+            case METHOD:
+                return describeForStatistics(((CFGMethod) ast).getMethod());
+            case LAMBDA:
+                CFGLambda lambda = (CFGLambda) ast;
+                if (lambda.getMethod() != null) {
+                    return "lambda in " + describeForStatistics(lambda.getMethod());
+                }
+                return "lambda in " + describeForStatistics(lambda.getClassTree());
+            default:
+                return "initializer in "
+                        + describeForStatistics(((CFGStatement) ast).getClassTree());
+        }
+    }
+
+    /**
+     * Returns the fully-qualified name of a class.
+     *
+     * @param classTree a class
+     * @return the fully-qualified name of {@code classTree}
+     */
+    private static String describeForStatistics(ClassTree classTree) {
+        return TreeUtils.elementFromDeclaration(classTree).getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the fully-qualified name of a method and the simple names of its parameter types,
+     * such as {@code java.lang.String.indexOf(String,int)}.
+     *
+     * @param method a method
+     * @return a description of {@code method}
+     */
+    private static String describeForStatistics(MethodTree method) {
+        ExecutableElement element = TreeUtils.elementFromDeclaration(method);
+        return ElementUtils.getQualifiedClassName(element)
+                + "."
+                + ElementUtils.getSimpleName(element);
+    }
+
     /**
      * Perform any additional operations on a CFG. Called once per CFG, after the CFG has been
      * analyzed by {@link #analyze(Queue, Queue, UnderlyingAST, List, ClassTree, boolean, boolean,
@@ -1639,7 +2067,13 @@ public abstract class GenericAnnotatedTypeFactory<
         if (tree instanceof ClassTree) {
             ClassTree classTree = (ClassTree) tree;
             if (!scannedClasses.containsKey(classTree)) {
-                performFlowAnalysis(classTree);
+                PerformanceStatistics performanceStatistics = checker.getPerformanceStatistics();
+                performanceStatistics.start(Phase.FLOW_ANALYSIS);
+                try {
+                    performFlowAnalysis(classTree);
+                } finally {
+                    performanceStatistics.stop(Phase.FLOW_ANALYSIS);
+                }
             }
         }
     }
@@ -3,9 +3,10 @@ package org.checkerframework.framework.type;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.util.Elements;
 import org.checkerframework.checker.initialization.qual.UnderInitialization;
@@ -48,6 +49,14 @@ public class NoElementQualifierHierarchy implements QualifierHierarchy {
     /** Set of all annotations in all the hierarchies. */
     protected final Set<? extends AnnotationMirror> qualifiers;
 
+    /**
+     * Mapping from each annotation mirror in {@link #kindToAnnotationMirror} to its {@link
+     * QualifierKind}. Because every lub, glb, top, and bottom that this returns is one of these
+     * annotation mirrors, {@link #getQualifierKind(AnnotationMirror)} usually finds the qualifier
+     * kind of an annotation here, without computing the annotation's name.
+     */
+    private final Map<AnnotationMirror, QualifierKind> annotationMirrorToKind;
+
     /**
      * Creates a NoElementQualifierHierarchy from the given classes.
      *
@@ -61,6 +70,10 @@ public class NoElementQualifierHierarchy implements QualifierHierarchy {
         this.kindToAnnotationMirror = createAnnotationMirrors(elements);
         this.qualifiers =
                 AnnotationUtils.createUnmodifiableAnnotationSet(kindToAnnotationMirror.values());
+        Map<AnnotationMirror, QualifierKind> annotationMirrorToKind =
+                new IdentityHashMap<>(kindToAnnotationMirror.size());
+        kindToAnnotationMirror.forEach((kind, anno) -> annotationMirrorToKind.put(anno, kind));
+        this.annotationMirrorToKind = annotationMirrorToKind;
 
         this.tops = createTops();
         this.bottoms = createBottoms();
@@ -89,7 +102,8 @@ public class NoElementQualifierHierarchy implements QualifierHierarchy {
     @RequiresNonNull("this.qualifierKindHierarchy")
     protected Map<QualifierKind, AnnotationMirror> createAnnotationMirrors(
             @UnderInitialization NoElementQualifierHierarchy this, Elements elements) {
-        Map<QualifierKind, AnnotationMirror> quals = new TreeMap<>();
+        // Qualifier kinds are interned, so they can be hashed rather than compared by name.
+        Map<QualifierKind, AnnotationMirror> quals = new LinkedHashMap<>();
         for (QualifierKind kind : qualifierKindHierarchy.allQualifierKinds()) {
             if (kind.hasElements()) {
                 throw new TypeSystemError(kind + "has elements");
@@ -146,6 +160,10 @@ public class NoElementQualifierHierarchy implements QualifierHierarchy {
      * @return the {@code QualifierKind} for the given annotation
      */
     protected QualifierKind getQualifierKind(AnnotationMirror anno) {
+        QualifierKind cached = annotationMirrorToKind.get(anno);
+        if (cached != null) {
+            return cached;
+        }
         String name = AnnotationUtils.annotationName(anno);
         QualifierKind kind = qualifierKindHierarchy.getQualifierKind(name);
         if (kind == null) {
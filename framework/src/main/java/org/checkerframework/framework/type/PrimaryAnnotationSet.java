@@ -0,0 +1,164 @@
+package org.checkerframework.framework.type;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.javacutil.AnnotationUtils;
+
+/**
+ * The primary annotations of an {@link AnnotatedTypeMirror}. Like the set that {@link
+ * AnnotationUtils#createAnnotationSet()} returns, this set compares and orders its elements by
+ * {@link AnnotationUtils#compareAnnotationMirrors}.
+ *
+ * <p>A type almost always has exactly one annotation per qualifier hierarchy, and most type
+ * systems have one or two hierarchies. So the annotations are stored in a sorted array of exactly
+ * the set's size, which takes much less memory than a tree and is faster to search. Every
+ * modification replaces the array and never changes an existing one, so copies of a type share
+ * the array of the original.
+ */
+final class PrimaryAnnotationSet extends AbstractSet<AnnotationMirror> {
+
+    /** The array of an empty set. */
+    private static final AnnotationMirror[] EMPTY = new AnnotationMirror[0];
+
+    /** The annotations, sorted by {@link AnnotationUtils#compareAnnotationMirrors}. */
+    private AnnotationMirror[] annos = EMPTY;
+
+    /** Creates an empty PrimaryAnnotationSet. */
+    PrimaryAnnotationSet() {}
+
+    /**
+     * Returns the index of {@code anno} in {@link #annos}, or {@code -(insertion point) - 1} if
+     * this set does not contain it.
+     *
+     * @param anno an annotation
+     * @return the index of {@code anno} in {@link #annos}, or {@code -(insertion point) - 1}
+     */
+    private int indexOf(AnnotationMirror anno) {
+        for (int i = 0; i < annos.length; i++) {
+            if (annos[i] == anno) {
+                return i;
+            }
+            int comparison = AnnotationUtils.compareAnnotationMirrors(annos[i], anno);
+            if (comparison == 0) {
+                return i;
+            } else if (comparison > 0) {
+                return -i - 1;
+            }
+        }
+        return -annos.length - 1;
+    }
+
+    @Override
+    public int size() {
+        return annos.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return annos.length == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf((AnnotationMirror) o) >= 0;
+    }
+
+    @Override
+    public boolean add(AnnotationMirror anno) {
+        int index = indexOf(anno);
+        if (index >= 0) {
+            return false;
+        }
+        int insertionPoint = -index - 1;
+        AnnotationMirror[] newAnnos = new AnnotationMirror[annos.length + 1];
+        System.arraycopy(annos, 0, newAnnos, 0, insertionPoint);
+        newAnnos[insertionPoint] = anno;
+        System.arraycopy(
+                annos, insertionPoint, newAnnos, insertionPoint + 1, annos.length - insertionPoint);
+        annos = newAnnos;
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends AnnotationMirror> c) {
+        if (annos.length == 0 && c instanceof PrimaryAnnotationSet) {
+            annos = ((PrimaryAnnotationSet) c).annos;
+            return annos.length != 0;
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf((AnnotationMirror) o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the annotation at the given index of {@link #annos}.
+     *
+     * @param index the index of the annotation to remove
+     */
+    private void removeAt(int index) {
+        if (annos.length == 1) {
+            annos = EMPTY;
+            return;
+        }
+        AnnotationMirror[] newAnnos = new AnnotationMirror[annos.length - 1];
+        System.arraycopy(annos, 0, newAnnos, 0, index);
+        System.arraycopy(annos, index + 1, newAnnos, index, annos.length - index - 1);
+        annos = newAnnos;
+    }
+
+    @Override
+    public void clear() {
+        annos = EMPTY;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(annos, annos.length, Object[].class);
+    }
+
+    @Override
+    public Iterator<AnnotationMirror> iterator() {
+        return new Iterator<AnnotationMirror>() {
+            /** The index of the next annotation to return. */
+            private int cursor = 0;
+
+            /** Whether the last annotation returned may be removed. */
+            private boolean canRemove = false;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < annos.length;
+            }
+
+            @Override
+            public AnnotationMirror next() {
+                if (cursor >= annos.length) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return annos[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                canRemove = false;
+                removeAt(--cursor);
+            }
+        };
+    }
+}
@@ -3,6 +3,7 @@ package org.checkerframework.framework.util;
 import java.lang.annotation.Annotation;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -46,6 +47,10 @@ import org.plumelib.util.UtilPlume;
  *
  * {@link DefaultQualifierKindHierarchy.DefaultQualifierKind} is the implementation used for {@link
  * QualifierKind} by this class.
+ *
+ * <p>Once the hierarchy is created, each qualifier kind is numbered by its position in {@link
+ * #qualifierKinds}. Subtyping tests are then bit set lookups, and lubs and glbs are array lookups,
+ * rather than lookups in sets and maps ordered by qualifier name.
  */
 @AnnotatedFor("nullness")
 public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
@@ -80,6 +85,20 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
      */
     private final Map<QualifierKind, Map<QualifierKind, QualifierKind>> glbs;
 
+    /**
+     * The lub of qualifier kinds, indexed by {@link DefaultQualifierKind#index}: {@code
+     * lubTable[kind1.index * qualifierKinds.size() + kind2.index]} is the lub of kind1 and kind2,
+     * or null if they are in different hierarchies.
+     */
+    private final @Nullable QualifierKind[] lubTable;
+
+    /**
+     * The glb of qualifier kinds, indexed by {@link DefaultQualifierKind#index}: {@code
+     * glbTable[kind1.index * qualifierKinds.size() + kind2.index]} is the glb of kind1 and kind2,
+     * or null if they are in different hierarchies.
+     */
+    private final @Nullable QualifierKind[] glbTable;
+
     @Override
     public Set<? extends QualifierKind> getTops() {
         return tops;
@@ -92,6 +111,11 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
     @Override
     public @Nullable QualifierKind leastUpperBound(QualifierKind q1, QualifierKind q2) {
+        int index1 = indexOf(q1);
+        int index2 = indexOf(q2);
+        if (index1 != -1 && index2 != -1) {
+            return lubTable[index1 * qualifierKinds.size() + index2];
+        }
         @SuppressWarnings(
                 "nullness:dereference.of.nullable") // All QualifierKinds are keys in lubs.
         QualifierKind result = lubs.get(q1).get(q2);
@@ -100,12 +124,34 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
     @Override
     public @Nullable QualifierKind greatestLowerBound(QualifierKind q1, QualifierKind q2) {
+        int index1 = indexOf(q1);
+        int index2 = indexOf(q2);
+        if (index1 != -1 && index2 != -1) {
+            return glbTable[index1 * qualifierKinds.size() + index2];
+        }
         @SuppressWarnings(
                 "nullness:dereference.of.nullable") // All QualifierKinds are keys in glbs.
         QualifierKind result = glbs.get(q1).get(q2);
         return result;
     }
 
+    /**
+     * Returns the index of {@code qualifierKind} in {@link #qualifierKinds}, or -1 if it is not a
+     * qualifier kind of this hierarchy.
+     *
+     * @param qualifierKind a qualifier kind
+     * @return the index of {@code qualifierKind} in {@link #qualifierKinds}, or -1
+     */
+    private int indexOf(QualifierKind qualifierKind) {
+        if (qualifierKind instanceof DefaultQualifierKind) {
+            DefaultQualifierKind defaultQualifierKind = (DefaultQualifierKind) qualifierKind;
+            if (defaultQualifierKind.hierarchy == this) {
+                return defaultQualifierKind.index;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public List<? extends QualifierKind> allQualifierKinds() {
         return qualifierKinds;
@@ -175,6 +221,61 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
         this.glbs = createGlbsMap();
 
         verifyHierarchy(directSuperMap);
+
+        initializeIndexes();
+        this.lubTable = createTable(lubs);
+        this.glbTable = createTable(glbs);
+    }
+
+    /**
+     * Returns an array such that {@code table[kind1.index * qualifierKinds.size() + kind2.index]}
+     * is {@code map.get(kind1).get(kind2)}. Requires that {@link DefaultQualifierKind#index} is
+     * set.
+     *
+     * @param map a mapping of lubs or glbs, created by {@link #createLubsMap()} or {@link
+     *     #createGlbsMap()}
+     * @return the contents of {@code map} as an array
+     */
+    @RequiresNonNull("this.qualifierKinds")
+    private @Nullable QualifierKind[] createTable(
+            @UnderInitialization DefaultQualifierKindHierarchy this,
+            Map<QualifierKind, Map<QualifierKind, QualifierKind>> map) {
+        int size = qualifierKinds.size();
+        @Nullable QualifierKind[] table = new QualifierKind[size * size];
+        map.forEach(
+                (qual1, qual1Map) ->
+                        qual1Map.forEach(
+                                (qual2, value) -> {
+                                    int index1 = ((DefaultQualifierKind) qual1).index;
+                                    int index2 = ((DefaultQualifierKind) qual2).index;
+                                    table[index1 * size + index2] = value;
+                                }));
+        return table;
+    }
+
+    /**
+     * Sets {@link DefaultQualifierKind#index}, {@link DefaultQualifierKind#superTypeIndexes}, and
+     * {@link DefaultQualifierKind#hierarchy} of each qualifier kind. Afterward, {@link
+     * DefaultQualifierKind#isSubtypeOf(QualifierKind)} no longer uses {@link
+     * DefaultQualifierKind#strictSuperTypes}, so this method must be called after the hierarchy is
+     * otherwise complete.
+     */
+    @RequiresNonNull("this.qualifierKinds")
+    private void initializeIndexes(@UnderInitialization DefaultQualifierKindHierarchy this) {
+        for (int i = 0; i < qualifierKinds.size(); i++) {
+            qualifierKinds.get(i).index = i;
+        }
+        @SuppressWarnings("initialization:assignment.type.incompatible") // only compared
+        DefaultQualifierKindHierarchy initializedThis = this;
+        for (DefaultQualifierKind qualifierKind : qualifierKinds) {
+            BitSet superTypeIndexes = new BitSet(qualifierKinds.size());
+            superTypeIndexes.set(qualifierKind.index);
+            for (QualifierKind superType : qualifierKind.getStrictSuperTypes()) {
+                superTypeIndexes.set(((DefaultQualifierKind) superType).index);
+            }
+            qualifierKind.superTypeIndexes = superTypeIndexes;
+            qualifierKind.hierarchy = initializedThis;
+        }
     }
 
     /**
@@ -235,8 +336,8 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
     protected Map<@Interned @CanonicalName String, DefaultQualifierKind> createQualifierKinds(
             @UnderInitialization DefaultQualifierKindHierarchy this,
             Collection<Class<? extends Annotation>> qualifierClasses) {
-        TreeMap<@Interned @CanonicalName String, DefaultQualifierKind> nameToQualifierKind =
-                new TreeMap<>();
+        Map<@Interned @CanonicalName String, DefaultQualifierKind> nameToQualifierKind =
+                new HashMap<>();
         for (Class<? extends Annotation> clazz : qualifierClasses) {
             @SuppressWarnings("interning") // uniqueness is tested immediately below
             @Interned DefaultQualifierKind qualifierKind = new DefaultQualifierKind(clazz);
@@ -725,6 +826,21 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
         // Set while creating the QualifierKindHierarchy.
         protected @MonotonicNonNull Set<QualifierKind> strictSuperTypes;
 
+        /** The index of this in {@link DefaultQualifierKindHierarchy#qualifierKinds}. */
+        // Set at the end of the creation of the QualifierKindHierarchy.
+        private int index = -1;
+
+        /**
+         * The indexes of the qualifier kinds that this is a subtype of, including this qualifier
+         * kind itself.
+         */
+        // Set at the end of the creation of the QualifierKindHierarchy.
+        private @MonotonicNonNull BitSet superTypeIndexes;
+
+        /** The hierarchy that {@link #index} and {@link #superTypeIndexes} refer to. */
+        // Set at the end of the creation of the QualifierKindHierarchy.
+        private @MonotonicNonNull DefaultQualifierKindHierarchy hierarchy;
+
         /**
          * Creates a {@link DefaultQualifierKind} for the given annotation class.
          *
@@ -808,6 +924,12 @@ public class DefaultQualifierKindHierarchy implements QualifierKindHierarchy {
 
         @Override
         public boolean isSubtypeOf(QualifierKind superQualKind) {
+            if (superTypeIndexes != null && superQualKind instanceof DefaultQualifierKind) {
+                DefaultQualifierKind superDefaultQualKind = (DefaultQualifierKind) superQualKind;
+                if (superDefaultQualKind.hierarchy == hierarchy) {
+                    return superTypeIndexes.get(superDefaultQualKind.index);
+                }
+            }
             if (strictSuperTypes == null) {
                 throw new BugInCF(
                         "DefaultQualifierKind#isSubtypeOf: strictSuperTypes was null. Don't call this method during initialization of DefaultQualifierKindHierarchy.");
@@ -34,10 +34,13 @@ import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Type.ArrayType;
 import com.sun.tools.javac.code.Type.ClassType;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.StringJoiner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -74,10 +77,12 @@ import org.checkerframework.dataflow.cfg.node.ObjectCreationNode;
 import org.checkerframework.framework.source.DiagMessage;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.util.dependenttypes.DependentTypesError;
+import org.checkerframework.javacutil.CollectionUtils;
 import org.checkerframework.javacutil.ElementUtils;
 import org.checkerframework.javacutil.Resolver;
 import org.checkerframework.javacutil.TreeUtils;
 import org.checkerframework.javacutil.TypesUtils;
+import org.checkerframework.javacutil.WeightedLRUCache;
 import org.checkerframework.javacutil.trees.TreeBuilder;
 
 /**
@@ -105,10 +110,39 @@ public class FlowExpressionParseUtil {
 
     private static final int PARAMETER_REPLACEMENT_LENGTH = PARMETER_REPLACEMENT.length();
 
+    /** The maximum number of expressions in {@link #PARSED_EXPRESSIONS}. */
+    private static final int PARSED_EXPRESSIONS_SIZE = 1000;
+
+    /**
+     * The JavaParser expressions of flow expression strings. The expression of a string does not
+     * depend on where the string is written, so all checkers and compilations share this cache.
+     * {@link ExpressionToReceiverVisitor} does not modify the expressions.
+     */
+    private static final WeightedLRUCache<String, Expression> PARSED_EXPRESSIONS =
+            CollectionUtils.createLRUCache(
+                    PARSED_EXPRESSIONS_SIZE, PARSED_EXPRESSIONS_SIZE, expr -> 1);
+
+    /** The maximum number of receivers in each cache of receivers. */
+    private static final int RECEIVERS_SIZE = 10_000;
+
+    /**
+     * The key of the cache of receivers in the javac context. The cache maps a flow expression
+     * string and where it is resolved to its receiver; see {@link ReceiverKey}. All checkers in one
+     * run of javac share it, because {@link ExpressionToReceiverVisitor} does not depend on the
+     * checker.
+     */
+    private static final Context.Key<WeightedLRUCache<ReceiverKey, Receiver>> RECEIVERS_KEY =
+            new Context.Key<>();
+
     /**
      * Parse a string and return its representation as a {@link Receiver}, or throw an {@link
      * FlowExpressionParseException}.
      *
+     * <p>The JavaParser expression of each string is cached. If {@code useLocalScope} is false, the
+     * result is also cached, for the string, the receiver and arguments of {@code context}, and the
+     * class and method that enclose {@code localScope}. Results are not cached if {@code
+     * useLocalScope} is true, because the local variables in scope differ within a method.
+     *
      * @param expression flow expression to parse
      * @param context information about any receiver and arguments
      * @param localScope path to local scope to use
@@ -122,11 +156,48 @@ public class FlowExpressionParseUtil {
             throws FlowExpressionParseException {
         context = context.copyAndSetUseLocalScope(useLocalScope);
         ProcessingEnvironment env = context.checkerContext.getProcessingEnvironment();
-        Expression expr;
-        try {
-            expr = StaticJavaParser.parseExpression(replaceParameterSyntax(expression));
-        } catch (ParseProblemException e) {
-            throw constructParserException(expression, "is an invalid expression");
+        WeightedLRUCache<ReceiverKey, Receiver> receivers = null;
+        ReceiverKey key = null;
+        if (!useLocalScope && localScope != null) {
+            receivers = getReceivers(env);
+            key = new ReceiverKey(expression, context, localScope);
+            Receiver cached = receivers.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Receiver result = parseUncached(expression, context, localScope, env);
+        if (receivers != null) {
+            receivers.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parse a string and return its representation as a {@link Receiver}, or throw an {@link
+     * FlowExpressionParseException}, without using the cache of receivers.
+     *
+     * @param expression flow expression to parse
+     * @param context information about any receiver and arguments, and whether {@code localScope}
+     *     should be used to resolve identifiers
+     * @param localScope path to local scope to use
+     * @param env the processing environment
+     * @return the receiver that {@code expression} represents
+     */
+    private static Receiver parseUncached(
+            String expression,
+            FlowExpressionContext context,
+            TreePath localScope,
+            ProcessingEnvironment env)
+            throws FlowExpressionParseException {
+        Expression expr = PARSED_EXPRESSIONS.get(expression);
+        if (expr == null) {
+            try {
+                expr = StaticJavaParser.parseExpression(replaceParameterSyntax(expression));
+            } catch (ParseProblemException e) {
+                throw constructParserException(expression, "is an invalid expression");
+            }
+            PARSED_EXPRESSIONS.put(expression, expr);
         }
 
         Receiver result;
@@ -151,6 +222,100 @@ public class FlowExpressionParseUtil {
         return result;
     }
 
+    /**
+     * Returns the cache of receivers of the javac context of {@code env}, creating it if necessary.
+     *
+     * @param env the processing environment
+     * @return the cache of receivers of {@code env}
+     */
+    private static WeightedLRUCache<ReceiverKey, Receiver> getReceivers(ProcessingEnvironment env) {
+        Context javacContext = ((JavacProcessingEnvironment) env).getContext();
+        WeightedLRUCache<ReceiverKey, Receiver> receivers = javacContext.get(RECEIVERS_KEY);
+        if (receivers == null) {
+            receivers = CollectionUtils.createLRUCache(RECEIVERS_SIZE, RECEIVERS_SIZE, r -> 1);
+            javacContext.put(RECEIVERS_KEY, receivers);
+        }
+        return receivers;
+    }
+
+    /**
+     * A flow expression string and what its receiver depends on, when local variables are not
+     * used to resolve identifiers: the receiver, outer receiver, and arguments of the context, and
+     * the class and method in which identifiers are resolved.
+     */
+    private static final class ReceiverKey {
+        /** The flow expression string. */
+        private final String expression;
+
+        /** The receiver of the context. */
+        private final Receiver receiver;
+
+        /** The type of {@link #receiver}, which {@link ThisReference#equals} ignores. */
+        private final @Nullable TypeMirror receiverType;
+
+        /** The outer receiver of the context. */
+        private final @Nullable Receiver outerReceiver;
+
+        /** The arguments of the context. */
+        private final @Nullable List<Receiver> arguments;
+
+        /** Whether the context is for the member part of a member select. */
+        private final boolean parsingMember;
+
+        /** The innermost class that encloses the local scope. */
+        private final @Nullable ClassTree enclosingClass;
+
+        /** The innermost method that encloses the local scope. */
+        private final @Nullable MethodTree enclosingMethod;
+
+        /**
+         * Creates a ReceiverKey.
+         *
+         * @param expression the flow expression string
+         * @param context the context in which {@code expression} is parsed
+         * @param localScope the path in which identifiers are resolved
+         */
+        ReceiverKey(String expression, FlowExpressionContext context, TreePath localScope) {
+            this.expression = expression;
+            this.receiver = context.receiver;
+            this.receiverType = context.receiver == null ? null : context.receiver.getType();
+            this.outerReceiver = context.outerReceiver;
+            this.arguments = context.arguments;
+            this.parsingMember = context.parsingMember;
+            this.enclosingClass = TreeUtils.enclosingClass(localScope);
+            this.enclosingMethod = TreeUtils.enclosingMethod(localScope);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ReceiverKey)) {
+                return false;
+            }
+            ReceiverKey other = (ReceiverKey) o;
+            return expression.equals(other.expression)
+                    && parsingMember == other.parsingMember
+                    && enclosingClass == other.enclosingClass
+                    && enclosingMethod == other.enclosingMethod
+                    && receiverType == other.receiverType
+                    && Objects.equals(receiver, other.receiver)
+                    && Objects.equals(outerReceiver, other.outerReceiver)
+                    && Objects.equals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    expression,
+                    receiver,
+                    arguments,
+                    System.identityHashCode(enclosingClass),
+                    System.identityHashCode(enclosingMethod));
+        }
+    }
+
     /**
      * Replaces every occurrence of "#(number)" with "PARAMETER_REPLACEMENT(number)" where number is
      * an index of a parameter.
@@ -0,0 +1,510 @@
+package org.checkerframework.framework.util;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.javacutil.BugInCF;
+
+/**
+ * Records the time that a checker spends in each phase of type-checking and in each class, the
+ * values of some counters, and the hit rates of caches. The {@code -AperfStats} command-line
+ * option enables the recording and outputs the result as JSON.
+ *
+ * <p>Phases nest: for example, the visitor requests the type of an expression, which runs dataflow
+ * analysis on the enclosing method, which builds its control flow graph. The time recorded for a
+ * phase excludes the time spent in the phases nested in it, so the times of all phases add up to
+ * the time the checker spent in them. Each thread has its own stack of running phases.
+ *
+ * <p>If enabled by the {@code -AslowestMethods} command-line option, this also records the
+ * dataflow analyses of the methods, initializers, and lambdas that take the longest.
+ *
+ * <p>A compound checker and its subcheckers share one instance, which the root checker outputs.
+ *
+ * @see org.checkerframework.framework.source.SourceChecker#getPerformanceStatistics()
+ */
+public class PerformanceStatistics {
+
+    /** A phase of type-checking. */
+    public enum Phase {
+        /** Parsing stub files and annotated JDK files, and converting them to annotated types. */
+        STUB_PARSING("stubParsing"),
+        /**
+         * Running dataflow analysis on a class and the classes nested in it, other than building
+         * control flow graphs and analyzing them; that is, the bookkeeping in {@code
+         * GenericAnnotatedTypeFactory.performFlowAnalysis}.
+         */
+        FLOW_ANALYSIS("flowAnalysis"),
+        /** Building control flow graphs. */
+        CFG_CONSTRUCTION("cfgConstruction"),
+        /** Running dataflow analysis on control flow graphs. */
+        DATAFLOW("dataflow"),
+        /** Visiting the trees of a compilation unit to issue diagnostics. */
+        VISITOR("visitor");
+
+        /** The name of the phase in the output. */
+        private final String jsonName;
+
+        /**
+         * Creates a Phase.
+         *
+         * @param jsonName the name of the phase in the output
+         */
+        Phase(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    /** A counter of events that do not take long enough to time individually. */
+    public enum Counter {
+        /**
+         * The number of basic blocks that a dataflow analysis visits before it reaches a fixed
+         * point. The value is recorded once per analyzed method, initializer, or lambda.
+         */
+        DATAFLOW_ITERATIONS("dataflowIterations"),
+        /** Calls to {@code TypeHierarchy.isSubtype}, with a value of 1 per call. */
+        IS_SUBTYPE("isSubtype");
+
+        /** The name of the counter in the output. */
+        private final String jsonName;
+
+        /**
+         * Creates a Counter.
+         *
+         * @param jsonName the name of the counter in the output
+         */
+        Counter(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    /** Statistics about the dataflow analysis of one method, initializer, or lambda. */
+    public static final class MethodStatistics {
+        /** The simple name of the checker whose analysis this is. */
+        final String checker;
+        /** A description of the method, initializer, or lambda. */
+        final String name;
+        /** The name of the source file. */
+        final String file;
+        /** The line number of the start of the code in the source file. */
+        final long line;
+        /** The time spent building the control flow graph and analyzing it, in nanoseconds. */
+        final long nanos;
+        /** The number of basic blocks in the control flow graph. */
+        final int blocks;
+        /** The number of basic blocks visited before the analysis reached a fixed point. */
+        final int blockVisits;
+        /** The largest number of expressions in any store before a basic block. */
+        final int maxStoreSize;
+        /** The number of times that the analysis widened a store. */
+        final int widenings;
+
+        /**
+         * Creates a MethodStatistics.
+         *
+         * @param checker the simple name of the checker whose analysis this is
+         * @param name a description of the method, initializer, or lambda
+         * @param file the name of the source file
+         * @param line the line number of the start of the code in the source file
+         * @param nanos the time spent building the control flow graph and analyzing it, in
+         *     nanoseconds
+         * @param blocks the number of basic blocks in the control flow graph
+         * @param blockVisits the number of basic blocks visited before the analysis reached a
+         *     fixed point
+         * @param maxStoreSize the largest number of expressions in any store before a basic block
+         * @param widenings the number of times that the analysis widened a store
+         */
+        public MethodStatistics(
+                String checker,
+                String name,
+                String file,
+                long line,
+                long nanos,
+                int blocks,
+                int blockVisits,
+                int maxStoreSize,
+                int widenings) {
+            this.checker = checker;
+            this.name = name;
+            this.file = file;
+            this.line = line;
+            this.nanos = nanos;
+            this.blocks = blocks;
+            this.blockVisits = blockVisits;
+            this.maxStoreSize = maxStoreSize;
+            this.widenings = widenings;
+        }
+    }
+
+    /** A phase that is running on some thread. */
+    private static final class Frame {
+        /** The running phase. */
+        final Phase phase;
+        /** The value of {@link System#nanoTime()} when the phase started. */
+        final long start;
+        /** The time spent in phases nested in this one, in nanoseconds. */
+        long nestedNanos = 0;
+
+        /**
+         * Creates a Frame.
+         *
+         * @param phase the running phase
+         * @param start the value of {@link System#nanoTime()} when the phase started
+         */
+        Frame(Phase phase, long start) {
+            this.phase = phase;
+            this.start = start;
+        }
+    }
+
+    /** An instance that does not record anything, used when {@code -AperfStats} is not passed. */
+    public static final PerformanceStatistics DISABLED = new PerformanceStatistics(false, 0);
+
+    /** Whether this records anything. */
+    private final boolean enabled;
+
+    /** The time spent in each phase, excluding nested phases, in nanoseconds; by ordinal. */
+    private final LongAdder[] nanos = newAdders(Phase.values().length);
+
+    /** The number of times each phase was entered; indexed by ordinal. */
+    private final LongAdder[] counts = newAdders(Phase.values().length);
+
+    /** The number of values recorded for each counter; indexed by ordinal. */
+    private final LongAdder[] counterCounts = newAdders(Counter.values().length);
+
+    /** The sum of the values recorded for each counter; indexed by ordinal. */
+    private final LongAdder[] counterTotals = newAdders(Counter.values().length);
+
+    /** The largest value recorded for each counter; indexed by ordinal. */
+    private final LongAccumulator[] counterMaxima = new LongAccumulator[Counter.values().length];
+
+    /** Maps the fully-qualified name of each type-checked class to the time spent checking it. */
+    private final Map<String, LongAdder> classNanos = new ConcurrentHashMap<>();
+
+    /** Maps the name of each cache to its hit count and miss count. */
+    private final Map<String, long[]> caches = new ConcurrentHashMap<>();
+
+    /** The number of slowest methods to record. */
+    private final int slowestMethodsLimit;
+
+    /**
+     * The slowest methods recorded so far, at most {@link #slowestMethodsLimit}, fastest first.
+     * Guarded by itself.
+     */
+    private final PriorityQueue<MethodStatistics> slowestMethods =
+            new PriorityQueue<>(Comparator.comparingLong(m -> m.nanos));
+
+    /** The phases running on each thread, innermost first. */
+    private final ThreadLocal<Deque<Frame>> running = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /** Creates a PerformanceStatistics that records everything except the slowest methods. */
+    public PerformanceStatistics() {
+        this(true, 0);
+    }
+
+    /**
+     * Creates a PerformanceStatistics that records everything, including the given number of
+     * slowest methods.
+     *
+     * @param slowestMethodsLimit the number of slowest methods to record
+     */
+    public PerformanceStatistics(int slowestMethodsLimit) {
+        this(true, slowestMethodsLimit);
+    }
+
+    /**
+     * Creates a PerformanceStatistics.
+     *
+     * @param enabled whether to record anything
+     * @param slowestMethodsLimit the number of slowest methods to record
+     */
+    private PerformanceStatistics(boolean enabled, int slowestMethodsLimit) {
+        this.enabled = enabled;
+        this.slowestMethodsLimit = slowestMethodsLimit;
+        for (int i = 0; i < counterMaxima.length; i++) {
+            counterMaxima[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    /**
+     * Returns an array of new adders.
+     *
+     * @param length the length of the array
+     * @return an array of {@code length} new adders
+     */
+    private static LongAdder[] newAdders(int length) {
+        LongAdder[] result = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if this records anything.
+     *
+     * @return true if this records anything
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns true if this records the slowest methods. Callers can use this to avoid computing
+     * the arguments of {@link #recordMethod}.
+     *
+     * @return true if this records the slowest methods
+     */
+    public boolean isRecordingMethods() {
+        return enabled && slowestMethodsLimit > 0;
+    }
+
+    /**
+     * Records that the current thread starts the given phase. Every call must be followed by a call
+     * to {@link #stop} with the same phase, typically in a {@code finally} block.
+     *
+     * @param phase the phase that starts
+     */
+    public void start(Phase phase) {
+        if (!enabled) {
+            return;
+        }
+        running.get().push(new Frame(phase, System.nanoTime()));
+    }
+
+    /**
+     * Records that the current thread finishes the given phase.
+     *
+     * @param phase the phase that finishes; must be the phase most recently started on this thread
+     */
+    public void stop(Phase phase) {
+        if (!enabled) {
+            return;
+        }
+        Deque<Frame> frames = running.get();
+        Frame frame = frames.pop();
+        if (frame.phase != phase) {
+            throw new BugInCF(
+                    "PerformanceStatistics.stop(%s) while %s is running", phase, frame.phase);
+        }
+        long elapsed = System.nanoTime() - frame.start;
+        nanos[phase.ordinal()].add(elapsed - frame.nestedNanos);
+        counts[phase.ordinal()].increment();
+        Frame enclosing = frames.peek();
+        if (enclosing != null) {
+            enclosing.nestedNanos += elapsed;
+        }
+    }
+
+    /**
+     * Records a value of the given counter.
+     *
+     * @param counter a counter
+     * @param value the value to record
+     */
+    public void record(Counter counter, long value) {
+        if (!enabled) {
+            return;
+        }
+        counterCounts[counter.ordinal()].increment();
+        counterTotals[counter.ordinal()].add(value);
+        counterMaxima[counter.ordinal()].accumulate(value);
+    }
+
+    /**
+     * Records the time spent type-checking a class. The times of several checkers, or of several
+     * visits by one checker, add up.
+     *
+     * @param className the fully-qualified name of the class
+     * @param nanos the time spent type-checking the class, in nanoseconds
+     */
+    public void recordClass(String className, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        classNanos.computeIfAbsent(className, k -> new LongAdder()).add(nanos);
+    }
+
+    /**
+     * Records the dataflow analysis of a method, initializer, or lambda, if it is one of the
+     * slowest so far.
+     *
+     * @param method statistics about the analysis of the method, initializer, or lambda
+     */
+    public void recordMethod(MethodStatistics method) {
+        if (!isRecordingMethods()) {
+            return;
+        }
+        synchronized (slowestMethods) {
+            slowestMethods.add(method);
+            if (slowestMethods.size() > slowestMethodsLimit) {
+                slowestMethods.poll();
+            }
+        }
+    }
+
+    /**
+     * Records the hit count and miss count of a cache. A later call with the same name replaces
+     * the counts.
+     *
+     * @param cacheName the name of the cache
+     * @param hits the number of lookups that found a value in the cache
+     * @param misses the number of lookups that did not find a value in the cache
+     */
+    public void recordCache(String cacheName, long hits, long misses) {
+        if (!enabled) {
+            return;
+        }
+        caches.put(cacheName, new long[] {hits, misses});
+    }
+
+    /**
+     * Returns the time spent in the given phase, excluding nested phases.
+     *
+     * @param phase a phase
+     * @return the time spent in {@code phase}, in nanoseconds
+     */
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of times the given phase was entered.
+     *
+     * @param phase a phase
+     * @return the number of times {@code phase} was entered
+     */
+    public long getCount(Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the recorded statistics as a JSON object. Classes and methods are listed in
+     * decreasing order of the time spent on them.
+     *
+     * @param checkerName the fully-qualified name of the checker whose statistics these are
+     * @return the recorded statistics as a JSON object
+     */
+    public String toJson(String checkerName) {
+        StringJoiner phases = new StringJoiner(",\n", "{\n", "\n  }");
+        for (Phase phase : Phase.values()) {
+            phases.add(
+                    String.format(
+                            Locale.ROOT,
+                            "    \"%s\": {\"count\": %d, \"nanos\": %d}",
+                            phase.jsonName,
+                            getCount(phase),
+                            getNanos(phase)));
+        }
+
+        StringJoiner counters = new StringJoiner(",\n", "{\n", "\n  }");
+        for (Counter counter : Counter.values()) {
+            int i = counter.ordinal();
+            counters.add(
+                    String.format(
+                            Locale.ROOT,
+                            "    \"%s\": {\"count\": %d, \"total\": %d, \"max\": %d}",
+                            counter.jsonName,
+                            counterCounts[i].sum(),
+                            counterTotals[i].sum(),
+                            counterMaxima[i].get()));
+        }
+
+        StringJoiner cacheStats = new StringJoiner(",\n", "{\n", "\n  }").setEmptyValue("{}");
+        caches.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(
+                        entry -> {
+                            long hits = entry.getValue()[0];
+                            long misses = entry.getValue()[1];
+                            double hitRate =
+                                    hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+                            cacheStats.add(
+                                    String.format(
+                                            Locale.ROOT,
+                                            "    %s: {\"hits\": %d, \"misses\": %d,"
+                                                    + " \"hitRate\": %.4f}",
+                                            jsonString(entry.getKey()),
+                                            hits,
+                                            misses,
+                                            hitRate));
+                        });
+
+        List<Map.Entry<String, Long>> classes = new ArrayList<>();
+        classNanos.forEach((name, nanos) -> classes.add(new SimpleEntry<>(name, nanos.sum())));
+        classes.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        StringJoiner classStats = new StringJoiner(",\n", "{\n", "\n  }").setEmptyValue("{}");
+        for (Map.Entry<String, Long> entry : classes) {
+            classStats.add(
+                    String.format(
+                            Locale.ROOT,
+                            "    %s: %d",
+                            jsonString(entry.getKey()),
+                            entry.getValue()));
+        }
+
+        List<MethodStatistics> methods;
+        synchronized (slowestMethods) {
+            methods = new ArrayList<>(slowestMethods);
+        }
+        methods.sort(Comparator.comparingLong((MethodStatistics m) -> m.nanos).reversed());
+        StringJoiner methodStats = new StringJoiner(",\n", "[\n", "\n  ]").setEmptyValue("[]");
+        for (MethodStatistics m : methods) {
+            methodStats.add(
+                    String.format(
+                            Locale.ROOT,
+                            "    {\"checker\": %s, \"name\": %s, \"file\": %s, \"line\": %d,"
+                                    + " \"nanos\": %d, \"blocks\": %d, \"blockVisits\": %d,"
+                                    + " \"maxStoreSize\": %d, \"widenings\": %d}",
+                            jsonString(m.checker),
+                            jsonString(m.name),
+                            jsonString(m.file),
+                            m.line,
+                            m.nanos,
+                            m.blocks,
+                            m.blockVisits,
+                            m.maxStoreSize,
+                            m.widenings));
+        }
+
+        return String.format(
+                Locale.ROOT,
+                "{\n  \"checker\": %s,\n  \"phases\": %s,\n  \"counters\": %s,\n"
+                        + "  \"caches\": %s,\n  \"classNanos\": %s,\n  \"slowestMethods\": %s\n}\n",
+                jsonString(checkerName),
+                phases,
+                counters,
+                cacheStats,
+                classStats,
+                methodStats);
+    }
+
+    /**
+     * Returns the given string as a JSON string literal.
+     *
+     * @param s a string
+     * @return {@code s} as a JSON string literal, with quotes
+     */
+    private static String jsonString(String s) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+}
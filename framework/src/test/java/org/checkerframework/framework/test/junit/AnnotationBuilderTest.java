@@ -6,12 +6,15 @@ import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.Options;
+import java.lang.ref.WeakReference;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
 import org.checkerframework.framework.testchecker.util.AnnoWithStringArg;
 import org.checkerframework.framework.testchecker.util.Encrypted;
 import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
 import org.checkerframework.javacutil.BugInCF;
 import org.junit.Assert;
 import org.junit.Ignore;
@@ -22,18 +25,28 @@ public class AnnotationBuilderTest {
     private final ProcessingEnvironment env;
 
     public AnnotationBuilderTest() {
+        env = createProcessingEnvironment();
+    }
+
+    /**
+     * Creates the processing environment of a new compilation.
+     *
+     * @return the processing environment of a new compilation
+     */
+    private static ProcessingEnvironment createProcessingEnvironment() {
         Context context = new Context();
         // Set source and target to 8
         Options options = Options.instance(context);
         options.put(Option.SOURCE, "8");
         options.put(Option.TARGET, "8");
 
-        env = JavacProcessingEnvironment.instance(context);
+        ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
         JavaCompiler javac = JavaCompiler.instance(context);
         // Even though source/target are set to 8, the modules in the JavaCompiler
         // need to be initialized by setting the list of modules to nil.
         javac.initModules(List.nil());
         javac.enterDone();
+        return env;
     }
 
     @Test
@@ -317,4 +330,87 @@ public class AnnotationBuilderTest {
         AnnotationBuilder builder = new AnnotationBuilder(env, ContainingAnno.class);
         builder.setValue("value", anno);
     }
+
+    @Test
+    public void testInternedAcrossBuilders() {
+        AnnotationBuilder builder1 = new AnnotationBuilder(env, AnnoWithStringArg.class);
+        builder1.setValue("value", "m");
+        AnnotationBuilder builder2 = new AnnotationBuilder(env, AnnoWithStringArg.class);
+        builder2.setValue("value", "m");
+        Assert.assertSame(builder1.build(), builder2.build());
+
+        Assert.assertSame(
+                new AnnotationBuilder(env, Encrypted.class).build(),
+                AnnotationBuilder.fromClass(env.getElementUtils(), Encrypted.class));
+    }
+
+    @Test
+    public void testAreSameWithDifferentValues() {
+        AnnotationBuilder builder1 = new AnnotationBuilder(env, Mult.class);
+        builder1.setValue("a", 1);
+        builder1.setValue("b", "m");
+        AnnotationMirror anno1 = builder1.build();
+        AnnotationBuilder builder2 = new AnnotationBuilder(env, Mult.class);
+        builder2.setValue("a", 1);
+        builder2.setValue("b", "n");
+        AnnotationMirror anno2 = builder2.build();
+        Assert.assertNotSame(anno1, anno2);
+        Assert.assertFalse(AnnotationUtils.areSame(anno1, anno2));
+
+        // The same values in a different order are the same annotation, but a different mirror,
+        // because their element values are listed in a different order.
+        AnnotationBuilder builder3 = new AnnotationBuilder(env, Mult.class);
+        builder3.setValue("b", "m");
+        builder3.setValue("a", 1);
+        AnnotationMirror anno3 = builder3.build();
+        Assert.assertNotSame(anno1, anno3);
+        Assert.assertTrue(AnnotationUtils.areSame(anno1, anno3));
+        Assert.assertEquals(0, AnnotationUtils.compareAnnotationMirrors(anno1, anno3));
+    }
+
+    public static @interface WithDefault {
+        int value() default 3;
+    }
+
+    @Test
+    public void testAreSameWithDefaultValue() {
+        AnnotationMirror implicit = new AnnotationBuilder(env, WithDefault.class).build();
+        AnnotationBuilder builder = new AnnotationBuilder(env, WithDefault.class);
+        builder.setValue("value", 3);
+        AnnotationMirror explicit = builder.build();
+        // An explicit default value is the same annotation, but getElementValues() differs.
+        Assert.assertNotSame(implicit, explicit);
+        Assert.assertTrue(AnnotationUtils.areSame(implicit, explicit));
+        Assert.assertEquals(0, implicit.getElementValues().size());
+        Assert.assertEquals(1, explicit.getElementValues().size());
+
+        AnnotationBuilder other = new AnnotationBuilder(env, WithDefault.class);
+        other.setValue("value", 4);
+        Assert.assertFalse(AnnotationUtils.areSame(implicit, other.build()));
+    }
+
+    @Test
+    public void testInternerDoesNotKeepCompilationAlive() {
+        List<WeakReference<?>> refs = buildInNewCompilation();
+        for (int i = 0; i < 100 && (refs.get(0).get() != null || refs.get(1).get() != null); i++) {
+            System.gc();
+        }
+        Assert.assertNull(
+                "the Elements of a finished compilation was not collected", refs.get(0).get());
+        Assert.assertNull("an interned annotation mirror was not collected", refs.get(1).get());
+    }
+
+    /**
+     * Builds an annotation in a new compilation, which becomes unreachable when this method
+     * returns.
+     *
+     * @return weak references to the element utilities of the new compilation and to the built
+     *     annotation mirror
+     */
+    private static List<WeakReference<?>> buildInNewCompilation() {
+        ProcessingEnvironment newEnv = createProcessingEnvironment();
+        AnnotationMirror anno = new AnnotationBuilder(newEnv, Encrypted.class).build();
+        Elements elements = newEnv.getElementUtils();
+        return List.of(new WeakReference<>(elements), new WeakReference<>(anno));
+    }
 }
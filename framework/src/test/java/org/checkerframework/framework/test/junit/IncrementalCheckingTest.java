@@ -0,0 +1,166 @@
+package org.checkerframework.framework.test.junit;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePath;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.common.value.ValueChecker;
+import org.checkerframework.common.value.ValueVisitor;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@code -AincrementalCheckingFile} skips the classes that did not change, and
+ * type-checks again the classes whose dependencies changed.
+ */
+public class IncrementalCheckingTest {
+
+    /** A Value Checker that records which classes it type-checks. */
+    public static class CountingChecker extends ValueChecker {
+
+        /** The simple names of the classes type-checked since the last call to {@link #reset}. */
+        static final List<String> checkedClasses = new ArrayList<>();
+
+        /** Forgets the classes type-checked so far. */
+        static void reset() {
+            checkedClasses.clear();
+        }
+
+        @Override
+        protected BaseTypeVisitor<?> createSourceVisitor() {
+            return new ValueVisitor(this) {
+                @Override
+                public void visit(TreePath path) {
+                    checkedClasses.add(((ClassTree) path.getLeaf()).getSimpleName().toString());
+                    super.visit(path);
+                }
+            };
+        }
+    }
+
+    /** The directory that holds the sources, the class files, and the cache file. */
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("incremental-checking");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Writes a source file in {@link #dir}.
+     *
+     * @param className the name of the class, which is in the unnamed package
+     * @param source the source code of the class
+     * @throws IOException if the file cannot be written
+     */
+    private void writeSource(String className, String source) throws IOException {
+        Files.write(dir.resolve(className + ".java"), source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compiles all source files in {@link #dir} with {@link CountingChecker} and {@code
+     * -AincrementalCheckingFile}. The cache file is kept from one call to the next.
+     *
+     * @return the simple names of the classes that were type-checked, sorted
+     * @throws IOException if the source files cannot be listed
+     */
+    private List<String> compile() throws IOException {
+        List<File> sources;
+        try (Stream<Path> files = Files.list(dir)) {
+            sources =
+                    files.filter(file -> file.toString().endsWith(".java"))
+                            .map(Path::toFile)
+                            .collect(Collectors.toList());
+        }
+        File classes = dir.resolve("classes").toFile();
+        classes.mkdirs();
+        List<String> options =
+                Arrays.asList(
+                        "-classpath",
+                        TestConfigurationBuilder.getDefaultClassPath(),
+                        "-d",
+                        classes.getPath(),
+                        "-ApermitMissingJdk",
+                        "-AincrementalCheckingFile=" + dir.resolve("cache.bin"));
+
+        CountingChecker.reset();
+        StringWriter output = new StringWriter();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units =
+                    fileManager.getJavaFileObjectsFromFiles(sources);
+            JavaCompiler.CompilationTask task =
+                    compiler.getTask(output, fileManager, null, options, null, units);
+            // Pass an instance rather than a class name, so that the checker is loaded by the same
+            // class loader as this test and records the classes in the same list.
+            task.setProcessors(Collections.singletonList(new CountingChecker()));
+            boolean success = task.call();
+            Assert.assertTrue(output.toString(), success);
+        }
+        return new ArrayList<>(new TreeSet<>(CountingChecker.checkedClasses));
+    }
+
+    @Test
+    public void testUnchangedClassesAreSkipped() throws IOException {
+        writeSource("A", "class A { int f() { return B.g(); } }");
+        writeSource("B", "class B { static int g() { return 1; } }");
+        writeSource("C", "class C {}");
+        Assert.assertEquals(Arrays.asList("A", "B", "C"), compile());
+
+        // Nothing changed.
+        Assert.assertEquals(Collections.emptyList(), compile());
+
+        // A refers to B, so a change to the signature of B forces A to be type-checked again.
+        writeSource("B", "class B { static int g() { return 1; } static int h() { return 2; } }");
+        Assert.assertEquals(Arrays.asList("A", "B"), compile());
+        Assert.assertEquals(Collections.emptyList(), compile());
+
+        // A change to a method body of B does not change the signature of B.
+        writeSource("B", "class B { static int g() { return 3; } static int h() { return 2; } }");
+        Assert.assertEquals(Arrays.asList("B"), compile());
+    }
+
+    @Test
+    public void testEntriesOfRemovedClassesArePruned() throws IOException {
+        writeSource("A", "class A {}");
+        writeSource("C", "class C {}");
+        Assert.assertEquals(Arrays.asList("A", "C"), compile());
+
+        // C is not part of this compilation, so its entry is discarded.
+        Files.delete(dir.resolve("C.java"));
+        Assert.assertEquals(Collections.emptyList(), compile());
+
+        writeSource("C", "class C {}");
+        Assert.assertEquals(Arrays.asList("C"), compile());
+    }
+}
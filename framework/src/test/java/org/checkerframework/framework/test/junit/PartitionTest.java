@@ -0,0 +1,174 @@
+package org.checkerframework.framework.test.junit;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePath;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.common.value.ValueChecker;
+import org.checkerframework.common.value.ValueVisitor;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@code -Apartition=K/N} divides the compilation units among the partitions, and that
+ * a malformed value is reported.
+ */
+public class PartitionTest {
+
+    /** A Value Checker that records which classes it type-checks. */
+    public static class CountingChecker extends ValueChecker {
+
+        /** The names of the classes type-checked since the last call to {@link #reset}. */
+        static final List<String> checkedClasses = new ArrayList<>();
+
+        /** Forgets the classes type-checked so far. */
+        static void reset() {
+            checkedClasses.clear();
+        }
+
+        @Override
+        protected BaseTypeVisitor<?> createSourceVisitor() {
+            return new ValueVisitor(this) {
+                @Override
+                public void visit(TreePath path) {
+                    String packageName = path.getCompilationUnit().getPackageName().toString();
+                    String className = ((ClassTree) path.getLeaf()).getSimpleName().toString();
+                    checkedClasses.add(packageName + "." + className);
+                    super.visit(path);
+                }
+            };
+        }
+    }
+
+    /** The number of classes in each package of the test sources. */
+    private static final int CLASSES_PER_PACKAGE = 10;
+
+    /** The packages of the test sources. */
+    private static final List<String> PACKAGES = Arrays.asList("p", "q");
+
+    /** The directory that holds the sources and the class files. */
+    private Path dir;
+
+    /** The qualified names of all classes in the test sources, sorted. */
+    private final List<String> allClasses = new ArrayList<>();
+
+    @Before
+    public void writeSources() throws IOException {
+        dir = Files.createTempDirectory("partition");
+        for (String packageName : PACKAGES) {
+            Path packageDir = Files.createDirectory(dir.resolve(packageName));
+            for (int i = 0; i < CLASSES_PER_PACKAGE; i++) {
+                String className = "C" + i;
+                String source = "package " + packageName + "; class " + className + " {}";
+                Files.write(
+                        packageDir.resolve(className + ".java"),
+                        source.getBytes(StandardCharsets.UTF_8));
+                allClasses.add(packageName + "." + className);
+            }
+        }
+        Collections.sort(allClasses);
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Compiles all source files in {@link #dir} with {@link CountingChecker} and the given
+     * partition option.
+     *
+     * @param partition the value of the {@code -Apartition} option
+     * @param output where to write the compiler's diagnostics
+     * @return true if the compilation succeeded
+     * @throws IOException if the source files cannot be listed
+     */
+    private boolean compile(String partition, StringWriter output) throws IOException {
+        List<File> sources;
+        try (Stream<Path> files = Files.walk(dir)) {
+            sources =
+                    files.filter(file -> file.toString().endsWith(".java"))
+                            .map(Path::toFile)
+                            .collect(Collectors.toList());
+        }
+        File classes = dir.resolve("classes").toFile();
+        classes.mkdirs();
+        List<String> options =
+                Arrays.asList(
+                        "-classpath",
+                        TestConfigurationBuilder.getDefaultClassPath(),
+                        "-d",
+                        classes.getPath(),
+                        "-ApermitMissingJdk",
+                        "-Apartition=" + partition);
+
+        CountingChecker.reset();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units =
+                    fileManager.getJavaFileObjectsFromFiles(sources);
+            JavaCompiler.CompilationTask task =
+                    compiler.getTask(output, fileManager, null, options, null, units);
+            // Pass an instance rather than a class name, so that the checker is loaded by the same
+            // class loader as this test and records the classes in the same list.
+            task.setProcessors(Collections.singletonList(new CountingChecker()));
+            return task.call();
+        }
+    }
+
+    @Test
+    public void testPartitionsCheckEveryUnitOnce() throws IOException {
+        for (int count = 1; count <= 4; count++) {
+            List<String> checked = new ArrayList<>();
+            for (int index = 0; index < count; index++) {
+                StringWriter output = new StringWriter();
+                boolean success = compile(index + "/" + count, output);
+                Assert.assertTrue(output.toString(), success);
+                if (count > 1) {
+                    Assert.assertTrue(
+                            "partition " + index + "/" + count + " checked every class",
+                            CountingChecker.checkedClasses.size() < allClasses.size());
+                }
+                checked.addAll(CountingChecker.checkedClasses);
+            }
+            Collections.sort(checked);
+            Assert.assertEquals("partitions of " + count, allClasses, checked);
+        }
+    }
+
+    @Test
+    public void testMalformedPartition() throws IOException {
+        for (String partition : Arrays.asList("1", "a/2", "1/2/3", "2/2", "-1/2", "0/0")) {
+            StringWriter output = new StringWriter();
+            boolean success = compile(partition, output);
+            Assert.assertFalse(partition, success);
+            Assert.assertTrue(
+                    output.toString(), output.toString().contains("The partition option"));
+            Assert.assertEquals(partition, Collections.emptyList(), CountingChecker.checkedClasses);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package org.checkerframework.framework.test.junit;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the JSON that {@code -AperfStats} and {@code -AslowestMethods} output. The {@code
+ * benchmarks} project's CheckerThroughput reads the phases from this output, so its format must
+ * not change by accident.
+ */
+public class PerformanceStatisticsTest {
+
+    /** The source code that is type-checked. */
+    private static final String FIXTURE =
+            String.join(
+                    "\n",
+                    "class Fixture {",
+                    "    int total = 0;",
+                    "    int sum(int[] a) {",
+                    "        int s = 0;",
+                    "        for (int i = 0; i < a.length; i++) {",
+                    "            s += a[i];",
+                    "        }",
+                    "        return s;",
+                    "    }",
+                    "    String describe(Object o) {",
+                    "        return o == null ? \"null\" : o.toString();",
+                    "    }",
+                    "}");
+
+    /** The phases of type-checking, by their names in the output. */
+    private static final List<String> PHASES =
+            Arrays.asList("stubParsing", "flowAnalysis", "cfgConstruction", "dataflow", "visitor");
+
+    /** The counters, by their names in the output. */
+    private static final List<String> COUNTERS = Arrays.asList("dataflowIterations", "isSubtype");
+
+    /** The fields of each entry of {@code slowestMethods}. */
+    private static final List<String> METHOD_FIELDS =
+            Arrays.asList(
+                    "checker",
+                    "name",
+                    "file",
+                    "line",
+                    "nanos",
+                    "blocks",
+                    "blockVisits",
+                    "maxStoreSize",
+                    "widenings");
+
+    /**
+     * The pattern with which the {@code benchmarks} project's CheckerThroughput finds the phases in
+     * the output.
+     */
+    private static final Pattern CHECKER_THROUGHPUT_PHASE =
+            Pattern.compile("\"(\\w+)\": \\{\"count\": (\\d+), \"nanos\": (\\d+)\\}");
+
+    /** The directory that holds the source, the class files, and the output. */
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("perf-stats");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testOutput() throws IOException {
+        Path source = dir.resolve("Fixture.java");
+        Files.write(source, FIXTURE.getBytes(StandardCharsets.UTF_8));
+        Path classes = Files.createDirectory(dir.resolve("classes"));
+        Path perfStats = dir.resolve("perfStats.json");
+        List<String> options =
+                Arrays.asList(
+                        "-processor",
+                        "org.checkerframework.common.value.ValueChecker",
+                        "-classpath",
+                        TestConfigurationBuilder.getDefaultClassPath(),
+                        "-d",
+                        classes.toString(),
+                        "-ApermitMissingJdk",
+                        "-AperfStats=" + perfStats,
+                        "-AslowestMethods=2");
+
+        StringWriter output = new StringWriter();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units =
+                    fileManager.getJavaFileObjects(source.toFile());
+            boolean success =
+                    compiler.getTask(output, fileManager, null, options, null, units).call();
+            Assert.assertTrue(output.toString(), success);
+        }
+
+        String json = new String(Files.readAllBytes(perfStats), StandardCharsets.UTF_8);
+        Map<?, ?> stats = (Map<?, ?>) new JsonParser(json).parse();
+        Assert.assertEquals("org.checkerframework.common.value.ValueChecker", stats.get("checker"));
+
+        Map<?, ?> phases = (Map<?, ?>) stats.get("phases");
+        Assert.assertEquals(PHASES, new ArrayList<>(phases.keySet()));
+        for (String phase : PHASES) {
+            Map<?, ?> entry = (Map<?, ?>) phases.get(phase);
+            Assert.assertEquals(Arrays.asList("count", "nanos"), new ArrayList<>(entry.keySet()));
+        }
+        Assert.assertTrue(count(phases, "visitor") > 0);
+        Assert.assertTrue(count(phases, "cfgConstruction") > 0);
+        Assert.assertTrue(count(phases, "dataflow") > 0);
+
+        Map<?, ?> counters = (Map<?, ?>) stats.get("counters");
+        Assert.assertEquals(COUNTERS, new ArrayList<>(counters.keySet()));
+        for (String counter : COUNTERS) {
+            Map<?, ?> entry = (Map<?, ?>) counters.get(counter);
+            Assert.assertEquals(
+                    Arrays.asList("count", "total", "max"), new ArrayList<>(entry.keySet()));
+        }
+        Assert.assertTrue(count(counters, "dataflowIterations") > 0);
+        Assert.assertTrue(count(counters, "isSubtype") > 0);
+
+        Assert.assertTrue(stats.get("caches") instanceof Map);
+        Map<?, ?> classNanos = (Map<?, ?>) stats.get("classNanos");
+        Assert.assertTrue(classNanos.toString(), classNanos.containsKey("Fixture"));
+
+        List<?> slowestMethods = (List<?>) stats.get("slowestMethods");
+        Assert.assertEquals(2, slowestMethods.size());
+        for (Object method : slowestMethods) {
+            Map<?, ?> entry = (Map<?, ?>) method;
+            Assert.assertEquals(METHOD_FIELDS, new ArrayList<>(entry.keySet()));
+            Assert.assertEquals("ValueChecker", entry.get("checker"));
+            Assert.assertTrue(((String) entry.get("file")).endsWith("Fixture.java"));
+        }
+
+        List<String> matchedPhases = new ArrayList<>();
+        Matcher matcher = CHECKER_THROUGHPUT_PHASE.matcher(json);
+        while (matcher.find()) {
+            matchedPhases.add(matcher.group(1));
+        }
+        Assert.assertEquals(PHASES, matchedPhases);
+    }
+
+    /**
+     * Returns the {@code count} field of an entry of a JSON object.
+     *
+     * @param object a JSON object whose values are JSON objects with a {@code count} field
+     * @param key the key of the entry
+     * @return the {@code count} field of the entry for {@code key}
+     */
+    private static long count(Map<?, ?> object, String key) {
+        return (Long) ((Map<?, ?>) object.get(key)).get("count");
+    }
+
+    /**
+     * A parser for the subset of JSON that {@code -AperfStats} outputs: objects, arrays, strings,
+     * integers, and decimal numbers. Objects are parsed into maps that keep the order of their
+     * keys, arrays into lists, integers into longs, and other numbers into doubles.
+     */
+    private static class JsonParser {
+        /** The text to parse. */
+        private final String text;
+
+        /** The position of the next character to parse. */
+        private int pos = 0;
+
+        /**
+         * Creates a JsonParser.
+         *
+         * @param text the text to parse
+         */
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Parses the text, which must be one JSON value.
+         *
+         * @return the parsed value
+         */
+        Object parse() {
+            Object result = parseValue();
+            skipWhitespace();
+            Assert.assertEquals("trailing text", text.length(), pos);
+            return result;
+        }
+
+        /**
+         * Parses a JSON value.
+         *
+         * @return the parsed value
+         */
+        private Object parseValue() {
+            skipWhitespace();
+            char c = text.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> result = new LinkedHashMap<>();
+                pos++;
+                if (!consume('}')) {
+                    do {
+                        skipWhitespace();
+                        String key = parseString();
+                        expect(':');
+                        Assert.assertNull("duplicate key " + key, result.put(key, parseValue()));
+                    } while (consume(','));
+                    expect('}');
+                }
+                return result;
+            } else if (c == '[') {
+                List<Object> result = new ArrayList<>();
+                pos++;
+                if (!consume(']')) {
+                    do {
+                        result.add(parseValue());
+                    } while (consume(','));
+                    expect(']');
+                }
+                return result;
+            } else if (c == '"') {
+                return parseString();
+            } else {
+                int start = pos;
+                while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                    pos++;
+                }
+                String number = text.substring(start, pos);
+                Assert.assertFalse("expected a value at " + start, number.isEmpty());
+                return number.matches("-?\\d+") ? Long.parseLong(number) : Double.valueOf(number);
+            }
+        }
+
+        /**
+         * Parses a JSON string.
+         *
+         * @return the value of the string
+         */
+        private String parseString() {
+            expect('"');
+            StringBuilder result = new StringBuilder();
+            for (char c = text.charAt(pos++); c != '"'; c = text.charAt(pos++)) {
+                if (c == '\\') {
+                    c = text.charAt(pos++);
+                    if (c == 'u') {
+                        c = (char) Integer.parseInt(text.substring(pos, pos + 4), 16);
+                        pos += 4;
+                    } else {
+                        Assert.assertTrue("bad escape \\" + c, c == '"' || c == '\\');
+                    }
+                } else {
+                    Assert.assertTrue("unescaped control character", c >= ' ');
+                }
+                result.append(c);
+            }
+            return result.toString();
+        }
+
+        /** Skips whitespace. */
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        /**
+         * Skips whitespace, then the given character if it is next.
+         *
+         * @param c a character
+         * @return true if {@code c} was next and was skipped
+         */
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips whitespace, then the given character, which must be next.
+         *
+         * @param c a character
+         */
+        private void expect(char c) {
+            Assert.assertTrue("expected " + c + " at " + pos, consume(c));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.PersistentHashMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This class tests the PersistentHashMap class by comparing it with {@link java.util.HashMap} on
+ * random operations.
+ */
+public class PersistentHashMapTest {
+
+    /** The number of random operations in each test. */
+    static final int OPERATIONS = 5000;
+
+    /**
+     * A key whose hash code is chosen by the test, so that distinct keys can have equal hash codes
+     * or hash codes that share their low bits.
+     */
+    static final class Key {
+        /** The identity of the key. */
+        final int id;
+
+        /** The hash code of the key. */
+        final int hash;
+
+        /**
+         * Creates a key.
+         *
+         * @param id the identity of the key
+         * @param hash the hash code of the key
+         */
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + id + ", " + hash + ")";
+        }
+    }
+
+    /** The ways in which {@link #randomKey} computes the hash code of a key from its identity. */
+    enum Hashing {
+        /** Distinct keys have distinct hash codes. */
+        DISTINCT,
+        /** Every key has one of three hash codes, so most keys collide. */
+        COLLIDING,
+        /** Distinct keys have distinct hash codes that only differ in their high bits. */
+        HIGH_BITS
+    }
+
+    /**
+     * Returns a random key, or null.
+     *
+     * @param random the source of randomness
+     * @param hashing how the hash code of the key is computed
+     * @return a key among at most 200 keys, or null
+     */
+    static @Nullable Key randomKey(Random random, Hashing hashing) {
+        int id = random.nextInt(201);
+        if (id == 200) {
+            return null;
+        }
+        switch (hashing) {
+            case DISTINCT:
+                return new Key(id, id * 0x9E3779B9);
+            case COLLIDING:
+                return new Key(id, id % 3);
+            case HIGH_BITS:
+                return new Key(id, id << 24);
+            default:
+                throw new AssertionError(hashing);
+        }
+    }
+
+    /**
+     * Returns a random value, or null.
+     *
+     * @param random the source of randomness
+     * @return a value among few values, or null
+     */
+    static @Nullable Integer randomValue(Random random) {
+        int value = random.nextInt(6);
+        return value == 5 ? null : value;
+    }
+
+    /**
+     * Checks that a PersistentHashMap has the same entries as a HashMap, and that the two maps are
+     * equal and have equal hash codes.
+     *
+     * @param expected the map that {@code actual} should be equal to
+     * @param actual the map to check
+     */
+    static void assertSameEntries(
+            Map<@Nullable Key, @Nullable Integer> expected,
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+
+        Map<@Nullable Key, @Nullable Integer> iterated = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<@Nullable Key, @Nullable Integer> entry : actual.entrySet()) {
+            iterated.put(entry.getKey(), entry.getValue());
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+        Assert.assertEquals(expected, iterated);
+    }
+
+    /**
+     * Applies random puts and removes to a PersistentHashMap and a HashMap, and compares them after
+     * each operation.
+     *
+     * @param random the source of randomness
+     * @param hashing how the hash codes of keys are computed
+     * @param expected a HashMap, which is side-effected
+     * @param actual a PersistentHashMap with the same entries as {@code expected}, which is
+     *     side-effected
+     * @param operations the number of operations to apply
+     */
+    static void randomOperations(
+            Random random,
+            Hashing hashing,
+            Map<@Nullable Key, @Nullable Integer> expected,
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actual,
+            int operations) {
+        for (int i = 0; i < operations; i++) {
+            Key key = randomKey(random, hashing);
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                Integer value = randomValue(random);
+                Assert.assertEquals(expected.put(key, value), actual.put(key, value));
+            }
+            Key probe = randomKey(random, hashing);
+            Assert.assertEquals(expected.containsKey(probe), actual.containsKey(probe));
+            Assert.assertEquals(expected.get(probe), actual.get(probe));
+            Assert.assertEquals(expected.size(), actual.size());
+        }
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        for (Hashing hashing : Hashing.values()) {
+            Random random = new Random(hashing.ordinal());
+            Map<@Nullable Key, @Nullable Integer> expected = new HashMap<>();
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actual = new PersistentHashMap<>();
+            for (int round = 0; round < 10; round++) {
+                randomOperations(random, hashing, expected, actual, OPERATIONS / 10);
+                assertSameEntries(expected, actual);
+            }
+            actual.clear();
+            expected.clear();
+            assertSameEntries(expected, actual);
+        }
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        for (Hashing hashing : Hashing.values()) {
+            Random random = new Random(10 + hashing.ordinal());
+            Map<@Nullable Key, @Nullable Integer> expected = new HashMap<>();
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actual = new PersistentHashMap<>();
+            randomOperations(random, hashing, expected, actual, OPERATIONS / 10);
+
+            Map<@Nullable Key, @Nullable Integer> expectedCopy = new HashMap<>(expected);
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actualCopy =
+                    new PersistentHashMap<>(actual);
+            assertSameEntries(expected, actualCopy);
+            randomOperations(random, hashing, expectedCopy, actualCopy, OPERATIONS / 10);
+            assertSameEntries(expected, actual);
+            assertSameEntries(expectedCopy, actualCopy);
+            Assert.assertEquals(expected.equals(expectedCopy), actual.equals(actualCopy));
+        }
+    }
+
+    @Test
+    public void testIntersect() {
+        BiFunction<@Nullable Integer, @Nullable Integer, @Nullable Integer> merge =
+                (a, b) -> {
+                    if (Objects.equals(a, b)) {
+                        return a;
+                    }
+                    if (a == null || b == null || (a + b) % 3 == 0) {
+                        return null;
+                    }
+                    return Math.max(a, b);
+                };
+        for (Hashing hashing : Hashing.values()) {
+            Random random = new Random(20 + hashing.ordinal());
+            for (int round = 0; round < 20; round++) {
+                Map<@Nullable Key, @Nullable Integer> expected1 = new HashMap<>();
+                PersistentHashMap<@Nullable Key, @Nullable Integer> actual1 =
+                        new PersistentHashMap<>();
+                randomOperations(random, hashing, expected1, actual1, 200);
+                // The second map shares most of its trie with the first one.
+                Map<@Nullable Key, @Nullable Integer> expected2 = new HashMap<>(expected1);
+                PersistentHashMap<@Nullable Key, @Nullable Integer> actual2 =
+                        new PersistentHashMap<>(actual1);
+                randomOperations(random, hashing, expected2, actual2, random.nextInt(50));
+
+                Map<@Nullable Key, @Nullable Integer> expectedResult = new HashMap<>();
+                for (Map.Entry<@Nullable Key, @Nullable Integer> entry : expected1.entrySet()) {
+                    if (expected2.containsKey(entry.getKey())) {
+                        Integer value =
+                                merge.apply(entry.getValue(), expected2.get(entry.getKey()));
+                        if (value != null) {
+                            expectedResult.put(entry.getKey(), value);
+                        }
+                    }
+                }
+                PersistentHashMap<@Nullable Key, @Nullable Integer> actualResult =
+                        actual1.intersect(actual2, merge);
+                assertSameEntries(expectedResult, actualResult);
+                // The arguments are not modified.
+                assertSameEntries(expected1, actual1);
+                assertSameEntries(expected2, actual2);
+                // The intersection of a map with itself is the map.
+                if (!expected1.containsValue(null)) {
+                    assertSameEntries(expected1, actual1.intersect(actual1, merge));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testContainsAllEntriesOf() {
+        for (Hashing hashing : Hashing.values()) {
+            Random random = new Random(30 + hashing.ordinal());
+            for (int round = 0; round < 50; round++) {
+                Map<@Nullable Key, @Nullable Integer> expected1 = new HashMap<>();
+                PersistentHashMap<@Nullable Key, @Nullable Integer> actual1 =
+                        new PersistentHashMap<>();
+                randomOperations(random, hashing, expected1, actual1, 100);
+                Map<@Nullable Key, @Nullable Integer> expected2 = new HashMap<>(expected1);
+                PersistentHashMap<@Nullable Key, @Nullable Integer> actual2 =
+                        new PersistentHashMap<>(actual1);
+                // Mostly removals, so that the second map is often a subset of the first one.
+                for (int i = random.nextInt(10); i > 0; i--) {
+                    Key key = randomKey(random, hashing);
+                    if (random.nextInt(5) == 0) {
+                        Integer value = randomValue(random);
+                        expected2.put(key, value);
+                        actual2.put(key, value);
+                    } else {
+                        expected2.remove(key);
+                        actual2.remove(key);
+                    }
+                }
+                Assert.assertEquals(
+                        expected1.entrySet().containsAll(expected2.entrySet()),
+                        actual1.containsAllEntriesOf(actual2));
+                Assert.assertEquals(
+                        expected2.entrySet().containsAll(expected1.entrySet()),
+                        actual2.containsAllEntriesOf(actual1));
+                Assert.assertEquals(expected1.equals(expected2), actual1.equals(actual2));
+                if (expected1.equals(expected2)) {
+                    Assert.assertEquals(actual1.hashCode(), actual2.hashCode());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        for (Hashing hashing : Hashing.values()) {
+            Random random = new Random(40 + hashing.ordinal());
+            Map<@Nullable Key, @Nullable Integer> expected = new HashMap<>();
+            PersistentHashMap<@Nullable Key, @Nullable Integer> actual = new PersistentHashMap<>();
+            randomOperations(random, hashing, expected, actual, OPERATIONS / 10);
+            PersistentHashMap<@Nullable Key, @Nullable Integer> copy =
+                    new PersistentHashMap<>(actual);
+            Map<@Nullable Key, @Nullable Integer> expectedCopy = new HashMap<>(expected);
+
+            // Remove and update entries through the iterator.
+            List<@Nullable Key> removed = new ArrayList<>();
+            Iterator<Map.Entry<@Nullable Key, @Nullable Integer>> iterator =
+                    actual.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<@Nullable Key, @Nullable Integer> entry = iterator.next();
+                switch (random.nextInt(3)) {
+                    case 0:
+                        iterator.remove();
+                        removed.add(entry.getKey());
+                        break;
+                    case 1:
+                        entry.setValue(7);
+                        expected.put(entry.getKey(), 7);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            for (Key key : removed) {
+                expected.remove(key);
+            }
+            assertSameEntries(expected, actual);
+            assertSameEntries(expectedCopy, copy);
+
+            try {
+                iterator.next();
+                Assert.fail("next() at the end of the iteration did not throw");
+            } catch (java.util.NoSuchElementException e) {
+                // expected
+            }
+            Iterator<Map.Entry<@Nullable Key, @Nullable Integer>> fresh =
+                    actual.entrySet().iterator();
+            try {
+                fresh.remove();
+                Assert.fail("remove() before next() did not throw");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+}
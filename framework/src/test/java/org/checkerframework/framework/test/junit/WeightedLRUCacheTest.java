@@ -0,0 +1,139 @@
+package org.checkerframework.framework.test.junit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.javacutil.CollectionUtils;
+import org.checkerframework.javacutil.WeightedLRUCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** This class tests the WeightedLRUCache class. */
+public class WeightedLRUCacheTest {
+
+    /**
+     * Returns a cache whose values weigh their length.
+     *
+     * @param maxSize the maximum number of entries
+     * @param maxWeight the maximum total weight of the entries
+     * @return a new cache
+     */
+    static WeightedLRUCache<String, String> newCache(int maxSize, long maxWeight) {
+        return CollectionUtils.createLRUCache(maxSize, maxWeight, String::length);
+    }
+
+    /**
+     * Returns the keys of a cache, in iteration order.
+     *
+     * @param cache a cache
+     * @return the keys of {@code cache}, from the least recently used to the most recently used
+     */
+    static List<String> keys(Map<String, ?> cache) {
+        return new ArrayList<>(cache.keySet());
+    }
+
+    @Test
+    public void testUnweightedCacheEvictsEldestEntry() {
+        Map<String, String> cache = CollectionUtils.createLRUCache(4);
+        for (String key : Arrays.asList("a", "b", "c", "d")) {
+            cache.put(key, key);
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), keys(cache));
+        cache.get("a");
+        cache.put("e", "e");
+        // Exactly one entry is evicted: the least recently used one.
+        Assert.assertEquals(Arrays.asList("c", "d", "a", "e"), keys(cache));
+        cache.put("f", "f");
+        Assert.assertEquals(Arrays.asList("d", "a", "e", "f"), keys(cache));
+    }
+
+    @Test
+    public void testWeightBound() {
+        WeightedLRUCache<String, String> cache = newCache(100, 10);
+        cache.put("a", "xxxx");
+        cache.put("b", "xxx");
+        cache.put("c", "xx");
+        Assert.assertEquals(9, cache.getWeight());
+        Assert.assertEquals(0, cache.getEvictionCount());
+
+        // Weight 13 exceeds the bound, so "a" is evicted.
+        cache.put("d", "xxxx");
+        Assert.assertEquals(Arrays.asList("b", "c", "d"), keys(cache));
+        Assert.assertEquals(9, cache.getWeight());
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        // Replacing a value replaces its weight. Weight 16: "b" and "c" are evicted.
+        cache.put("d", "xxxxxxxxxx");
+        Assert.assertEquals(Arrays.asList("d"), keys(cache));
+        Assert.assertEquals(10, cache.getWeight());
+        Assert.assertEquals(3, cache.getEvictionCount());
+
+        // A value that alone exceeds the bound is not cached, and removes the old value.
+        Assert.assertEquals("xxxxxxxxxx", cache.put("d", "xxxxxxxxxxx"));
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(0, cache.getWeight());
+        Assert.assertEquals(4, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testEvictionOrder() {
+        WeightedLRUCache<String, String> cache = newCache(3, 100);
+        cache.put("a", "x");
+        cache.put("b", "x");
+        cache.put("c", "x");
+        // get makes an entry the most recently used; containsKey and put of a new key do not
+        // affect the other entries.
+        Assert.assertEquals("x", cache.get("a"));
+        Assert.assertTrue(cache.containsKey("b"));
+        Assert.assertEquals(Arrays.asList("b", "c", "a"), keys(cache));
+        cache.put("d", "x");
+        Assert.assertEquals(Arrays.asList("c", "a", "d"), keys(cache));
+        // put of an existing key makes it the most recently used.
+        cache.put("c", "y");
+        cache.put("e", "x");
+        Assert.assertEquals(Arrays.asList("d", "c", "e"), keys(cache));
+
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        WeightedLRUCache<String, String> cache = newCache(10, 100);
+        cache.put("a", "x");
+        cache.put("b", "xx");
+        cache.put("c", "xxx");
+        cache.put("d", "xxxx");
+        cache.put("e", "xxxxx");
+        Assert.assertEquals(15, cache.getWeight());
+
+        Assert.assertTrue(cache.keySet().remove("b"));
+        Assert.assertEquals(Arrays.asList("a", "c", "d", "e"), keys(cache));
+        Assert.assertEquals(13, cache.getWeight());
+
+        Assert.assertTrue(cache.values().remove("xxxx"));
+        Assert.assertEquals(Arrays.asList("a", "c", "e"), keys(cache));
+        Assert.assertEquals(9, cache.getWeight());
+
+        Iterator<Map.Entry<String, String>> iterator = cache.entrySet().iterator();
+        Assert.assertEquals("a", iterator.next().getKey());
+        iterator.remove();
+        Map.Entry<String, String> entry = iterator.next();
+        Assert.assertEquals("c", entry.getKey());
+        Assert.assertEquals("xxx", entry.setValue("xxxxxxx"));
+        Assert.assertEquals(Arrays.asList("c", "e"), keys(cache));
+        Assert.assertEquals("xxxxxxx", cache.get("c"));
+        Assert.assertEquals(12, cache.getWeight());
+        // Iterating over a view does not change the order, and get does.
+        Assert.assertEquals(Arrays.asList("e", "c"), keys(cache));
+
+        cache.entrySet().clear();
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(0, cache.getWeight());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+}
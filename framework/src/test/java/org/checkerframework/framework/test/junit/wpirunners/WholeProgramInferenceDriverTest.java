@@ -0,0 +1,134 @@
+package org.checkerframework.framework.test.junit.wpirunners;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceDriver;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage;
+import org.checkerframework.framework.test.TestConfiguration;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.test.TestUtilities;
+import org.checkerframework.framework.test.TypecheckExecutor;
+import org.checkerframework.framework.test.TypecheckResult;
+import org.checkerframework.framework.testchecker.wholeprograminference.WholeProgramInferenceTestChecker;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Runs {@link WholeProgramInferenceDriver} on the whole-program inference tests, and checks that it
+ * reaches a fixed point, that later rounds type-check only the compilation units that must be
+ * type-checked again, and that the inferred stub files pass the same checks as those of {@link
+ * WholeProgramInferenceStubsValidationTest}.
+ *
+ * <p>Like the other tests in this package, this test writes to the directory {@link
+ * WholeProgramInferenceScenesStorage#JAIF_FILES_PATH}, so it must not run at the same time as them.
+ */
+@Category(WholeProgramInferenceDriverTest.class)
+public class WholeProgramInferenceDriverTest {
+
+    /** The directory of the sources from which annotations are inferred. */
+    private static final String NON_ANNOTATED = "whole-program-inference/non-annotated";
+
+    @Test
+    public void reachesFixedPoint() throws IOException {
+        List<File> sourceFiles = TestUtilities.findNestedJavaTestFiles(NON_ANNOTATED);
+        List<String> options =
+                Arrays.asList(
+                        "-processor",
+                        WholeProgramInferenceTestChecker.class.getName(),
+                        "-classpath",
+                        TestConfigurationBuilder.getDefaultClassPath(),
+                        "-Anomsgtext");
+        WholeProgramInferenceDriver driver = new WholeProgramInferenceDriver(options, sourceFiles);
+        Assert.assertEquals(0, driver.run());
+
+        List<Set<String>> typeChecked = driver.getTypeCheckedUnits();
+        List<Set<String>> skipped = driver.getSkippedUnits();
+        List<Set<String>> toRecheck = driver.getUnitsToRecheck();
+        int rounds = typeChecked.size();
+        Assert.assertTrue("expected more than one round, got " + rounds, rounds > 1);
+        Assert.assertEquals(rounds, skipped.size());
+        Assert.assertEquals(rounds, toRecheck.size());
+
+        Assert.assertEquals(sourceFiles.size(), typeChecked.get(0).size());
+        Assert.assertEquals(Collections.emptySet(), skipped.get(0));
+        for (int round = 1; round < rounds; round++) {
+            String message = "round " + (round + 1);
+            Assert.assertEquals(message, toRecheck.get(round - 1), typeChecked.get(round));
+            Assert.assertFalse(message + " type-checked every unit", skipped.get(round).isEmpty());
+            Set<String> compiled = new HashSet<>(typeChecked.get(round));
+            compiled.addAll(skipped.get(round));
+            Assert.assertEquals(message, typeChecked.get(0), compiled);
+        }
+        for (int round = 0; round < rounds - 1; round++) {
+            Assert.assertFalse("round " + (round + 1), toRecheck.get(round).isEmpty());
+        }
+        Assert.assertEquals(Collections.emptySet(), toRecheck.get(rounds - 1));
+
+        validateStubFiles(sourceFiles);
+    }
+
+    /**
+     * Type-checks the test sources with the inferred stub files, as {@link
+     * WholeProgramInferenceStubsValidationTest} does: the expected errors that the inferred
+     * annotations remove are deleted from the sources first, except in the files whose errors
+     * remain.
+     *
+     * @param sourceFiles the sources from which annotations were inferred
+     * @throws IOException if the sources cannot be copied
+     */
+    private static void validateStubFiles(List<File> sourceFiles) throws IOException {
+        // Keep these in sync with the testWPIStubs task in framework/build.gradle.
+        Set<String> keepErrors =
+                new HashSet<>(Arrays.asList("ExpectedErrors.java", "UsesAnonymous.java"));
+        Path annotated = Files.createTempDirectory("whole-program-inference-driver");
+        try {
+            List<File> annotatedFiles = new ArrayList<>();
+            for (File sourceFile : sourceFiles) {
+                List<String> lines =
+                        Files.readAllLines(sourceFile.toPath(), StandardCharsets.UTF_8);
+                if (!keepErrors.contains(sourceFile.getName())) {
+                    lines =
+                            lines.stream()
+                                    .filter(line -> !line.contains("// :: error:"))
+                                    .collect(Collectors.toList());
+                }
+                Path annotatedFile = annotated.resolve(sourceFile.getName());
+                Files.write(annotatedFile, lines, StandardCharsets.UTF_8);
+                annotatedFiles.add(annotatedFile.toFile());
+            }
+
+            TestConfiguration config =
+                    TestConfigurationBuilder.buildDefaultConfiguration(
+                            annotated.toString(),
+                            annotatedFiles,
+                            Collections.singleton(WholeProgramInferenceTestChecker.class.getName()),
+                            Arrays.asList(
+                                    "-Anomsgtext",
+                                    "-Astubs=" + WholeProgramInferenceScenesStorage.JAIF_FILES_PATH,
+                                    "-AmergeStubsWithSource"),
+                            TestUtilities.getShouldEmitDebugInfo());
+            TypecheckResult result = new TypecheckExecutor().runTest(config);
+            TestUtilities.assertTestDidNotFail(result);
+        } finally {
+            try (Stream<Path> files = Files.walk(annotated)) {
+                for (Path file :
+                        files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.checkerframework.framework.test.junit.wpirunners;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.checkerframework.common.wholeprograminference.WholeProgramInferenceScenesStorage;
+import org.checkerframework.framework.test.TestConfigurationBuilder;
+import org.checkerframework.framework.testchecker.wholeprograminference.WholeProgramInferenceTestChecker;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests {@code -AinferRecheckFile} over two compilations, the second of which compiles only some of
+ * the compilation units, as a build tool would. The second compilation must still list the other
+ * compilation units that read a type that it changed.
+ *
+ * <p>Like the other tests in this package, this test writes to the directory {@link
+ * WholeProgramInferenceScenesStorage#JAIF_FILES_PATH}, so it must not run at the same time as them.
+ */
+@Category(WholeProgramInferenceDriverTest.class)
+public class WholeProgramInferenceRecheckFileTest {
+
+    /** The package of the qualifiers of {@link WholeProgramInferenceTestChecker}. */
+    private static final String QUAL =
+            "org.checkerframework.framework.testchecker.wholeprograminference.qual";
+
+    /** The directory that holds the sources, the class files, and the recheck files. */
+    private Path dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("infer-recheck-file");
+        deleteRecursively(new File(WholeProgramInferenceScenesStorage.JAIF_FILES_PATH).toPath());
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        deleteRecursively(dir);
+    }
+
+    /**
+     * Deletes a file or directory and its contents, if it exists.
+     *
+     * @param path the file or directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Writes a source file to {@link #dir}.
+     *
+     * @param name the name of the file
+     * @param lines the lines of the file
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private File writeSource(String name, String... lines) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file.toFile();
+    }
+
+    /**
+     * Compiles the given source files with whole-program inference and {@code -AinferRecheckFile}.
+     *
+     * @param recheckFile the file to which the compilation units to type-check again are written
+     * @param sources the source files to compile
+     * @return the lines of {@code recheckFile}
+     * @throws IOException if the files cannot be read or written
+     */
+    private List<String> compile(Path recheckFile, File... sources) throws IOException {
+        Path classes = dir.resolve("classes");
+        Files.createDirectories(classes);
+        List<String> options =
+                Arrays.asList(
+                        "-processor",
+                        WholeProgramInferenceTestChecker.class.getName(),
+                        "-classpath",
+                        TestConfigurationBuilder.getDefaultClassPath()
+                                + File.pathSeparator
+                                + classes,
+                        "-d",
+                        classes.toString(),
+                        "-Ainfer=jaifs",
+                        "-AinferRecheckFile=" + recheckFile,
+                        "-Awarns");
+
+        StringWriter output = new StringWriter();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+            boolean success =
+                    compiler.getTask(output, fileManager, null, options, null, units).call();
+            Assert.assertTrue(output.toString(), success);
+        }
+        return Files.readAllLines(recheckFile, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSecondCompilationOfSomeUnits() throws IOException {
+        File holder = writeSource("Holder.java", "class Holder {", "    static int f;", "}");
+        File reader =
+                writeSource(
+                        "Reader.java",
+                        "class Reader {",
+                        "    int get() {",
+                        "        return Holder.f;",
+                        "    }",
+                        "}");
+        File unrelated =
+                writeSource("Unrelated.java", "class Unrelated {", "    void m() {}", "}");
+        File writer =
+                writeSource(
+                        "Writer.java",
+                        "import " + QUAL + ".Sibling1;",
+                        "import " + QUAL + ".Sibling2;",
+                        "class Writer {",
+                        "    void set() {",
+                        "        Holder.f = getSibling1();",
+                        "    }",
+                        "    @Sibling1 int getSibling1() {",
+                        "        return (@Sibling1 int) 0;",
+                        "    }",
+                        "    @Sibling2 int getSibling2() {",
+                        "        return (@Sibling2 int) 0;",
+                        "    }",
+                        "}");
+
+        // The inferred type of Holder.f becomes @Sibling1, so Reader must be type-checked again.
+        List<String> firstRecheck =
+                compile(dir.resolve("recheck1.txt"), holder, reader, unrelated, writer);
+        Assert.assertTrue(firstRecheck.toString(), firstRecheck.contains(reader.getPath()));
+        Assert.assertFalse(firstRecheck.toString(), firstRecheck.contains(unrelated.getPath()));
+        Assert.assertTrue(
+                "the reads were not kept",
+                new File(
+                                WholeProgramInferenceScenesStorage.JAIF_FILES_PATH,
+                                WholeProgramInferenceTestChecker.class.getName() + ".readers")
+                        .exists());
+
+        // Only Holder and Writer are compiled again. Holder.f becomes @Parent, the LUB of
+        // @Sibling1 and @Sibling2; Reader read it in the first compilation, so it must still be
+        // listed.
+        writer =
+                writeSource(
+                        "Writer.java",
+                        "import " + QUAL + ".Sibling1;",
+                        "import " + QUAL + ".Sibling2;",
+                        "class Writer {",
+                        "    void set() {",
+                        "        Holder.f = getSibling2();",
+                        "    }",
+                        "    @Sibling1 int getSibling1() {",
+                        "        return (@Sibling1 int) 0;",
+                        "    }",
+                        "    @Sibling2 int getSibling2() {",
+                        "        return (@Sibling2 int) 0;",
+                        "    }",
+                        "}");
+        List<String> secondRecheck = compile(dir.resolve("recheck2.txt"), holder, writer);
+        Assert.assertTrue(secondRecheck.toString(), secondRecheck.contains(reader.getPath()));
+        Assert.assertFalse(secondRecheck.toString(), secondRecheck.contains(unrelated.getPath()));
+    }
+}
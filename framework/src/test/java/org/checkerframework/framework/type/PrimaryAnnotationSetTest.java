@@ -0,0 +1,207 @@
+package org.checkerframework.framework.type;
+
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.main.Option;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.javacutil.AnnotationUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * This class tests the PrimaryAnnotationSet class by comparing it with the set that {@link
+ * AnnotationUtils#createAnnotationSet()} returns.
+ */
+public class PrimaryAnnotationSetTest {
+
+    public static @interface Odd {}
+
+    public static @interface Even {}
+
+    public static @interface Tainted {}
+
+    public static @interface Untainted {}
+
+    public static @interface Range {
+        int value() default 0;
+    }
+
+    /** Annotations with distinct names, and annotations that differ only in their values. */
+    private final List<AnnotationMirror> annos = new ArrayList<>();
+
+    /** {@code @Range}, which is the same annotation as {@link #explicitDefaultRange}. */
+    private final AnnotationMirror defaultRange;
+
+    /** {@code @Range(0)}, which is the same annotation as {@link #defaultRange}. */
+    private final AnnotationMirror explicitDefaultRange;
+
+    public PrimaryAnnotationSetTest() {
+        Context context = new Context();
+        Options options = Options.instance(context);
+        options.put(Option.SOURCE, "8");
+        options.put(Option.TARGET, "8");
+        ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
+        JavaCompiler javac = JavaCompiler.instance(context);
+        javac.initModules(com.sun.tools.javac.util.List.nil());
+        javac.enterDone();
+
+        for (Class<? extends java.lang.annotation.Annotation> annoClass :
+                Arrays.asList(Odd.class, Even.class, Tainted.class, Untainted.class)) {
+            annos.add(AnnotationBuilder.fromClass(env.getElementUtils(), annoClass));
+        }
+        for (int i = 1; i <= 3; i++) {
+            AnnotationBuilder builder = new AnnotationBuilder(env, Range.class);
+            builder.setValue("value", i);
+            annos.add(builder.build());
+        }
+        defaultRange = new AnnotationBuilder(env, Range.class).build();
+        AnnotationBuilder builder = new AnnotationBuilder(env, Range.class);
+        builder.setValue("value", 0);
+        explicitDefaultRange = builder.build();
+        annos.add(defaultRange);
+        annos.add(explicitDefaultRange);
+    }
+
+    /**
+     * Checks that a PrimaryAnnotationSet has the same elements, in the same order, as a set
+     * returned by {@link AnnotationUtils#createAnnotationSet()}, and that the two sets are equal.
+     *
+     * @param expected the set that {@code actual} should be equal to
+     * @param actual the set to check
+     */
+    private static void assertSameElements(
+            Set<AnnotationMirror> expected, PrimaryAnnotationSet actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.isEmpty(), actual.isEmpty());
+        Assert.assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        Assert.assertArrayEquals(expected.toArray(), actual.toArray());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(0);
+        Set<AnnotationMirror> expected = AnnotationUtils.createAnnotationSet();
+        PrimaryAnnotationSet actual = new PrimaryAnnotationSet();
+        for (int i = 0; i < 2000; i++) {
+            AnnotationMirror anno = annos.get(random.nextInt(annos.size()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.remove(anno), actual.remove(anno));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.contains(anno), actual.contains(anno));
+                    break;
+                default:
+                    Assert.assertEquals(expected.add(anno), actual.add(anno));
+                    break;
+            }
+            assertSameElements(expected, actual);
+            if (random.nextInt(50) == 0) {
+                expected.clear();
+                actual.clear();
+                assertSameElements(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testSameAnnotationsAreOneElement() {
+        PrimaryAnnotationSet set = new PrimaryAnnotationSet();
+        Assert.assertTrue(set.add(defaultRange));
+        Assert.assertFalse(set.add(explicitDefaultRange));
+        Assert.assertTrue(set.contains(explicitDefaultRange));
+        Assert.assertEquals(1, set.size());
+        Assert.assertTrue(set.remove(explicitDefaultRange));
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testReplaceInHierarchy() {
+        // What AnnotatedTypeMirror.replaceAnnotation does: remove the annotation in the same
+        // hierarchy, then add the new one.
+        AnnotationMirror odd = annos.get(0);
+        AnnotationMirror even = annos.get(1);
+        AnnotationMirror tainted = annos.get(2);
+        AnnotationMirror untainted = annos.get(3);
+        PrimaryAnnotationSet set = new PrimaryAnnotationSet();
+        set.add(odd);
+        set.add(untainted);
+
+        Assert.assertTrue(set.remove(untainted));
+        Assert.assertTrue(set.add(tainted));
+        Set<AnnotationMirror> expected = AnnotationUtils.createAnnotationSet();
+        expected.add(odd);
+        expected.add(tainted);
+        assertSameElements(expected, set);
+
+        Assert.assertTrue(set.remove(odd));
+        Assert.assertTrue(set.add(even));
+        expected.remove(odd);
+        expected.add(even);
+        assertSameElements(expected, set);
+        Assert.assertFalse(set.contains(odd));
+        Assert.assertFalse(set.contains(untainted));
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        PrimaryAnnotationSet original = new PrimaryAnnotationSet();
+        original.add(annos.get(0));
+        original.add(annos.get(2));
+        // addAll to an empty set shares the array of the original.
+        PrimaryAnnotationSet copy = new PrimaryAnnotationSet();
+        Assert.assertTrue(copy.addAll(original));
+        Assert.assertEquals(original, copy);
+
+        copy.remove(annos.get(0));
+        copy.add(annos.get(4));
+        original.add(annos.get(5));
+        Set<AnnotationMirror> expectedOriginal = AnnotationUtils.createAnnotationSet();
+        expectedOriginal.addAll(Arrays.asList(annos.get(0), annos.get(2), annos.get(5)));
+        assertSameElements(expectedOriginal, original);
+        Set<AnnotationMirror> expectedCopy = AnnotationUtils.createAnnotationSet();
+        expectedCopy.addAll(Arrays.asList(annos.get(2), annos.get(4)));
+        assertSameElements(expectedCopy, copy);
+
+        Assert.assertFalse(new PrimaryAnnotationSet().addAll(new PrimaryAnnotationSet()));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Set<AnnotationMirror> expected = AnnotationUtils.createAnnotationSet();
+        PrimaryAnnotationSet actual = new PrimaryAnnotationSet();
+        expected.addAll(annos);
+        actual.addAll(annos);
+        assertSameElements(expected, actual);
+
+        Iterator<AnnotationMirror> iterator = actual.iterator();
+        try {
+            iterator.remove();
+            Assert.fail("remove() before next() did not throw");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        int i = 0;
+        while (iterator.hasNext()) {
+            AnnotationMirror anno = iterator.next();
+            if (i++ % 2 == 0) {
+                iterator.remove();
+                expected.remove(anno);
+            }
+        }
+        assertSameElements(expected, actual);
+    }
+}
@@ -248,7 +248,9 @@ public class AnnotationBuilder {
             elementValues.put(annoElement, elementValue);
         }
 
-        AnnotationMirror result = new CheckerFrameworkAnnotationMirror(annoType, elementValues);
+        AnnotationMirror result =
+                AnnotationMirrorInterner.instance(elements)
+                        .intern(new CheckerFrameworkAnnotationMirror(annoType, elementValues));
         return result;
     }
 
@@ -264,7 +266,8 @@ public class AnnotationBuilder {
     public AnnotationMirror build() {
         assertNotBuilt();
         wasBuilt = true;
-        return new CheckerFrameworkAnnotationMirror(annotationType, elementValues);
+        return AnnotationMirrorInterner.instance(elements)
+                .intern(new CheckerFrameworkAnnotationMirror(annotationType, elementValues));
     }
 
     /**
@@ -640,6 +643,12 @@ public class AnnotationBuilder {
         /** The annotation name. */
         // default visibility to allow access from within package.
         final @Interned @CanonicalName String annotationName;
+        /**
+         * The canonical annotation mirrors that are the same as this one, if this is canonical;
+         * otherwise null. Set by {@link AnnotationMirrorInterner}.
+         */
+        // default visibility to allow access from within package.
+        AnnotationMirrorInterner.@Nullable SameAnnotations sameAnnotations;
 
         /**
          * Create a CheckerFrameworkAnnotationMirror.
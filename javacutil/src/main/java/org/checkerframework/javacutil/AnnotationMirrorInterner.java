@@ -0,0 +1,259 @@
+package org.checkerframework.javacutil;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.javacutil.AnnotationBuilder.CheckerFrameworkAnnotationMirror;
+
+/**
+ * Canonicalizes the annotation mirrors that {@link AnnotationBuilder} creates, so that building the
+ * same annotation twice returns the same object, and so that {@link
+ * AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)} can compare two built annotations
+ * without comparing their element values.
+ *
+ * <p>Two annotations are the same according to {@code areSame} even if one of them explicitly
+ * specifies the default value of an element and the other does not, but {@link
+ * AnnotationMirror#getElementValues()} differs for them. So an annotation mirror is only replaced
+ * by one that has the same explicit elements, in the same order, with the same values. All
+ * annotation mirrors that are the same according to {@code areSame} share one {@link
+ * SameAnnotations}, which {@code areSame} compares.
+ *
+ * <p>There is one interner per {@link Elements}, that is, per run of javac. The canonical
+ * annotation mirrors refer to the javac data structures, which refer to the {@link Elements}, so
+ * only the annotation mirrors that the interner created keep it alive.
+ */
+final class AnnotationMirrorInterner {
+
+    /** The interner of each {@link Elements}. */
+    private static final Map<Elements, WeakReference<AnnotationMirrorInterner>> interners =
+            new WeakHashMap<>();
+
+    /**
+     * The maximum number of distinct annotations that an interner holds. Annotations that are
+     * built once the interner is full are not interned.
+     */
+    private static final int MAX_SIZE = 100_000;
+
+    /** The annotation mirrors that are the same as an annotation mirror. */
+    private final Map<Key, SameAnnotations> sameAnnotations = new ConcurrentHashMap<>();
+
+    /** Creates an AnnotationMirrorInterner. */
+    private AnnotationMirrorInterner() {}
+
+    /**
+     * Returns the interner of the given element utilities.
+     *
+     * @param elements the element utilities of a run of javac
+     * @return the interner of {@code elements}
+     */
+    static AnnotationMirrorInterner instance(Elements elements) {
+        synchronized (interners) {
+            WeakReference<AnnotationMirrorInterner> ref = interners.get(elements);
+            AnnotationMirrorInterner interner = ref == null ? null : ref.get();
+            if (interner == null) {
+                interner = new AnnotationMirrorInterner();
+                interners.put(elements, new WeakReference<>(interner));
+            }
+            return interner;
+        }
+    }
+
+    /**
+     * Returns the canonical annotation mirror that has the same annotation type and explicit
+     * element values as {@code anno}, which is {@code anno} itself if it is the first such
+     * annotation mirror.
+     *
+     * @param anno a newly created annotation mirror
+     * @return the canonical annotation mirror that is equal to {@code anno}
+     */
+    CheckerFrameworkAnnotationMirror intern(CheckerFrameworkAnnotationMirror anno) {
+        Key key = new Key(anno);
+        SameAnnotations same = sameAnnotations.get(key);
+        if (same == null) {
+            if (sameAnnotations.size() >= MAX_SIZE) {
+                return anno;
+            }
+            SameAnnotations newSame = new SameAnnotations(this);
+            same = sameAnnotations.putIfAbsent(key, newSame);
+            if (same == null) {
+                same = newSame;
+            }
+        }
+        return same.intern(anno);
+    }
+
+    /**
+     * The canonical annotation mirrors that are the same according to {@link
+     * AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}. Each of them has different
+     * explicit element values.
+     */
+    static final class SameAnnotations {
+
+        /** The interner that created this. */
+        final AnnotationMirrorInterner interner;
+
+        /** The canonical annotation mirrors; usually just one. */
+        private final List<CheckerFrameworkAnnotationMirror> annos = new ArrayList<>(1);
+
+        /**
+         * Creates a SameAnnotations.
+         *
+         * @param interner the interner that creates this
+         */
+        SameAnnotations(AnnotationMirrorInterner interner) {
+            this.interner = interner;
+        }
+
+        /**
+         * Returns the canonical annotation mirror that has the same explicit element values as
+         * {@code anno}, making {@code anno} canonical if there is none.
+         *
+         * @param anno an annotation mirror that is the same as the annotations in this
+         * @return the canonical annotation mirror that is equal to {@code anno}
+         */
+        synchronized CheckerFrameworkAnnotationMirror intern(
+                CheckerFrameworkAnnotationMirror anno) {
+            for (CheckerFrameworkAnnotationMirror canonical : annos) {
+                if (sameExplicitElementValues(canonical, anno)) {
+                    return canonical;
+                }
+            }
+            anno.sameAnnotations = this;
+            annos.add(anno);
+            return anno;
+        }
+
+        /**
+         * Returns true if the two annotations specify the same elements, in the same order, with
+         * values of the same class and string representation.
+         *
+         * @param a1 an annotation mirror
+         * @param a2 an annotation mirror that is the same as {@code a1}
+         * @return true if {@code a1} and {@code a2} have the same explicit element values
+         */
+        private static boolean sameExplicitElementValues(
+                AnnotationMirror a1, AnnotationMirror a2) {
+            Map<? extends ExecutableElement, ? extends AnnotationValue> vals1 =
+                    a1.getElementValues();
+            Map<? extends ExecutableElement, ? extends AnnotationValue> vals2 =
+                    a2.getElementValues();
+            if (vals1.size() != vals2.size()) {
+                return false;
+            }
+            Iterator<? extends Map.Entry<? extends ExecutableElement, ? extends AnnotationValue>>
+                    iter2 = vals2.entrySet().iterator();
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry1 :
+                    vals1.entrySet()) {
+                Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry2 =
+                        iter2.next();
+                if (entry1.getKey() != entry2.getKey()) {
+                    return false;
+                }
+                AnnotationValue val1 = entry1.getValue();
+                AnnotationValue val2 = entry2.getValue();
+                if (val1 != val2
+                        && (val1.getClass() != val2.getClass()
+                                || !val1.toString().equals(val2.toString()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * An annotation mirror as a hash table key, which is equal to the annotation mirrors that are
+     * the same according to {@link AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}.
+     */
+    private static final class Key {
+
+        /** The annotation mirror. */
+        private final AnnotationMirror anno;
+
+        /** The hash code of {@link #anno}. */
+        private final int hashCode;
+
+        /**
+         * Creates a Key.
+         *
+         * @param anno the annotation mirror
+         */
+        Key(AnnotationMirror anno) {
+            this.anno = anno;
+            this.hashCode = annotationHashCode(anno);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return obj instanceof Key
+                    && hashCode == ((Key) obj).hashCode
+                    && AnnotationUtils.areSame(anno, ((Key) obj).anno);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        /**
+         * Returns a hash code of an annotation mirror that is consistent with {@link
+         * AnnotationUtils#areSame(AnnotationMirror, AnnotationMirror)}: like it, the hash code
+         * uses the default value of each element that the annotation does not specify.
+         *
+         * @param anno an annotation mirror
+         * @return a hash code of {@code anno}
+         */
+        private static int annotationHashCode(AnnotationMirror anno) {
+            int result = AnnotationUtils.annotationName(anno).hashCode();
+            Map<? extends ExecutableElement, ? extends AnnotationValue> vals =
+                    anno.getElementValues();
+            for (ExecutableElement meth :
+                    ElementFilter.methodsIn(
+                            anno.getAnnotationType().asElement().getEnclosedElements())) {
+                AnnotationValue val = vals.get(meth);
+                if (val == null) {
+                    val = meth.getDefaultValue();
+                }
+                result = 31 * result + valueHashCode(val);
+            }
+            return result;
+        }
+
+        /**
+         * Returns a hash code of an annotation element value that is consistent with the
+         * comparison of element values in {@link AnnotationUtils#sameAnnotationValue}. Types are
+         * compared structurally, so their hash code is 0.
+         *
+         * @param value an annotation value, an annotation mirror, a list of values, or a constant
+         * @return a hash code of {@code value}
+         */
+        private static int valueHashCode(@Nullable Object value) {
+            if (value instanceof AnnotationValue) {
+                return valueHashCode(((AnnotationValue) value).getValue());
+            } else if (value instanceof List<?>) {
+                int result = 1;
+                for (Object element : (List<?>) value) {
+                    result = 31 * result + valueHashCode(element);
+                }
+                return result;
+            } else if (value instanceof AnnotationMirror) {
+                return annotationHashCode((AnnotationMirror) value);
+            } else if (value == null || value instanceof TypeMirror) {
+                return 0;
+            } else {
+                return value.hashCode();
+            }
+        }
+    }
+}
@@ -87,6 +87,18 @@ public class AnnotationUtils {
             return true;
         }
 
+        if (a1 instanceof CheckerFrameworkAnnotationMirror
+                && a2 instanceof CheckerFrameworkAnnotationMirror) {
+            // Canonical annotation mirrors that are the same share their SameAnnotations.
+            AnnotationMirrorInterner.SameAnnotations same1 =
+                    ((CheckerFrameworkAnnotationMirror) a1).sameAnnotations;
+            AnnotationMirrorInterner.SameAnnotations same2 =
+                    ((CheckerFrameworkAnnotationMirror) a2).sameAnnotations;
+            if (same1 != null && same2 != null && same1.interner == same2.interner) {
+                return same1 == same2;
+            }
+        }
+
         if (!areSameByName(a1, a2)) {
             return false;
         }
@@ -323,6 +335,9 @@ public class AnnotationUtils {
      * @return an ordering over AnnotationMirrors based on their name and values
      */
     public static int compareAnnotationMirrors(AnnotationMirror a1, AnnotationMirror a2) {
+        if (a1 == a2) {
+            return 0;
+        }
         if (!AnnotationUtils.areSameByName(a1, a2)) {
             return annotationName(a1).compareTo(annotationName(a2));
         }
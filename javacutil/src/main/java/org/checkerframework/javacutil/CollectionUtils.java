@@ -1,7 +1,7 @@
 package org.checkerframework.javacutil;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 
 /** Utility methods related to Java Collections. */
 public class CollectionUtils {
@@ -13,14 +13,20 @@ public class CollectionUtils {
      * @return a new cache with the provided size
      */
     public static <K, V> Map<K, V> createLRUCache(final int size) {
-        return new LinkedHashMap<K, V>(size, .75F, true) {
-
-            private static final long serialVersionUID = 5261489276168775084L;
+        return new WeightedLRUCache<K, V>(size, size, value -> 1);
+    }
 
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<K, V> entry) {
-                return size() > size;
-            }
-        };
+    /**
+     * Creates a LRU cache that is bounded both by its number of entries and by the total weight of
+     * its values. The cache is synchronized, and it counts hits, misses, and evictions.
+     *
+     * @param size the maximum number of entries in the cache
+     * @param weight the maximum total weight of the values in the cache
+     * @param weigher computes the weight of a value
+     * @return a new cache with the provided bounds
+     */
+    public static <K, V> WeightedLRUCache<K, V> createLRUCache(
+            final int size, final long weight, ToIntFunction<? super V> weigher) {
+        return new WeightedLRUCache<K, V>(size, weight, weigher);
     }
 }
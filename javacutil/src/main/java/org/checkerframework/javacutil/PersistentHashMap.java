@@ -0,0 +1,948 @@
+package org.checkerframework.javacutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hash map that can be copied in constant time. The entries are stored in a hash array mapped
+ * trie whose nodes are never modified: each modification of the map copies the path from the root
+ * to the changed node and shares the rest of the trie. A copy made by {@link
+ * #PersistentHashMap(PersistentHashMap)} shares the whole trie with the original, and the two
+ * maps diverge only along the paths that are modified later.
+ *
+ * <p>The trie is kept in a canonical form, so that two maps with the same entries have tries of
+ * the same shape. {@link #equals} and {@link #containsAllEntriesOf} use this to compare nodes by
+ * reference before comparing their entries; on maps that were copied from one another, they only
+ * visit the paths on which the maps differ. {@link #intersect} reuses the nodes of this map that it
+ * does not change.
+ *
+ * <p>Apart from that, this class behaves like {@link java.util.HashMap}: it permits null keys and
+ * values, it is not synchronized, and the iteration order is unspecified. Iterators never throw
+ * {@link java.util.ConcurrentModificationException}: an iterator traverses the trie as it was when
+ * the iterator was created.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    /** The number of bits of the hash code that select a child at each level of the trie. */
+    private static final int BITS_PER_LEVEL = 5;
+
+    /** The maximal number of nodes on a path from the root of the trie to a leaf. */
+    private static final int MAX_DEPTH = (Integer.SIZE + BITS_PER_LEVEL - 1) / BITS_PER_LEVEL + 1;
+
+    /** Returned by {@link Node#find} if the key is not in the trie. */
+    private static final Object NOT_FOUND = new Object();
+
+    /** The root of the trie. */
+    private Node root;
+
+    /** The number of entries in the trie. */
+    private int size;
+
+    /** Creates an empty map. */
+    public PersistentHashMap() {
+        this.root = BitmapNode.EMPTY;
+        this.size = 0;
+    }
+
+    /**
+     * Creates a map with the same entries as {@code other}, in constant time. Modifying either map
+     * does not affect the other.
+     *
+     * @param other the map to copy
+     */
+    public PersistentHashMap(PersistentHashMap<K, V> other) {
+        this.root = other.root;
+        this.size = other.size;
+    }
+
+    /**
+     * Creates a map with the given trie.
+     *
+     * @param root the root of the trie
+     */
+    private PersistentHashMap(Node root) {
+        this.root = root;
+        this.size = root.size();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // only values of type V are stored
+    public @Nullable V get(@Nullable Object key) {
+        Object value = root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public @Nullable V put(K key, V value) {
+        Change change = new Change();
+        root = root.put(key, value, hash(key), 0, change);
+        size = root.size();
+        return oldValue(change);
+    }
+
+    @Override
+    public @Nullable V remove(@Nullable Object key) {
+        Change change = new Change();
+        root = root.remove(key, hash(key), 0, change);
+        size = root.size();
+        return oldValue(change);
+    }
+
+    /**
+     * Returns the value that a modification replaced or removed.
+     *
+     * @param change the effect of the modification
+     * @return the value that the modified key had before, or null if it was not in the map
+     */
+    @SuppressWarnings("unchecked") // only values of type V are stored
+    private @Nullable V oldValue(Change change) {
+        return change.oldValue == NOT_FOUND ? null : (V) change.oldValue;
+    }
+
+    @Override
+    public void clear() {
+        root = BitmapNode.EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns true if this map contains every entry of {@code other}, comparing values by {@link
+     * Object#equals}. Subtries that the two maps share are not visited.
+     *
+     * @param other a map
+     * @return true if this map contains every entry of {@code other}
+     */
+    public boolean containsAllEntriesOf(PersistentHashMap<K, V> other) {
+        return other.size <= size && root.containsAll(other.root, 0);
+    }
+
+    /**
+     * Returns a map whose keys are the keys that are in both this map and {@code other}. The value
+     * of each such key {@code k} is {@code merge.apply(this.get(k), other.get(k))}; if {@code
+     * merge} returns null, {@code k} is omitted from the result.
+     *
+     * <p>Where {@code merge} returns a value that is equal to the value in this map, the result
+     * contains the value of this map, and shares the subtries of this map in which no value
+     * changed. Thus, if no value changed, the result is equal to this map by reference, and
+     * comparing the two maps takes constant time.
+     *
+     * @param other a map
+     * @param merge computes the value of a key that is in both maps
+     * @return the intersection of this map and {@code other}
+     */
+    public PersistentHashMap<K, V> intersect(
+            PersistentHashMap<K, V> other,
+            BiFunction<? super V, ? super V, ? extends @Nullable V> merge) {
+        @SuppressWarnings("unchecked") // only values of type V are stored
+        BiFunction<Object, Object, @Nullable Object> objectMerge =
+                (BiFunction<Object, Object, @Nullable Object>) (BiFunction<?, ?, ?>) merge;
+        return new PersistentHashMap<>(root.intersect(other.root, 0, objectMerge));
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (o instanceof PersistentHashMap) {
+            PersistentHashMap<?, ?> other = (PersistentHashMap<?, ?>) o;
+            return size == other.size && root.containsAll(other.root, 0);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * Returns the hash code of a key.
+     *
+     * @param key a key
+     * @return the hash code of {@code key}
+     */
+    private static int hash(@Nullable Object key) {
+        return key == null ? 0 : key.hashCode();
+    }
+
+    /**
+     * Returns the bit that represents the child that contains {@code hash} in a {@link BitmapNode}
+     * at the given shift.
+     *
+     * @param hash the hash code of a key
+     * @param shift the number of bits of the hash code that the ancestors of the node consumed
+     * @return the bit of the child that contains {@code hash}
+     */
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & ((1 << BITS_PER_LEVEL) - 1));
+    }
+
+    /**
+     * Returns the index of a bit among the bits that are set in a bitmap.
+     *
+     * @param bitmap a bitmap
+     * @param bit a bit
+     * @return the number of bits set in {@code bitmap} that are lower than {@code bit}
+     */
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    /** Records the value that a modification of the trie replaced or removed. */
+    private static final class Change {
+        /** The value that the modified key had before, or {@link #NOT_FOUND}. */
+        @Nullable Object oldValue = NOT_FOUND;
+
+        /**
+         * Records that the modified key was in the trie.
+         *
+         * @param value the value that the key had before the modification
+         */
+        void found(@Nullable Object value) {
+            oldValue = value;
+        }
+    }
+
+    /**
+     * A node of the trie. Nodes are immutable; the methods that modify the trie return a new node,
+     * or {@code this} if nothing changed.
+     *
+     * <p>A node holds {@link #dataArity} entries and {@link #nodeArity} children. In canonical
+     * form, every child holds at least two entries.
+     */
+    private abstract static class Node {
+
+        /**
+         * Returns the number of entries in the subtrie rooted at this node.
+         *
+         * @return the number of entries in the subtrie
+         */
+        abstract int size();
+
+        /**
+         * Returns the number of entries that this node holds directly.
+         *
+         * @return the number of entries that this node holds directly
+         */
+        abstract int dataArity();
+
+        /**
+         * Returns the number of children of this node.
+         *
+         * @return the number of children of this node
+         */
+        abstract int nodeArity();
+
+        /**
+         * Returns the key of an entry that this node holds directly.
+         *
+         * @param i the index of the entry, less than {@link #dataArity}
+         * @return the key of the entry
+         */
+        abstract @Nullable Object keyAt(int i);
+
+        /**
+         * Returns the value of an entry that this node holds directly.
+         *
+         * @param i the index of the entry, less than {@link #dataArity}
+         * @return the value of the entry
+         */
+        abstract @Nullable Object valueAt(int i);
+
+        /**
+         * Returns a child of this node.
+         *
+         * @param i the index of the child, less than {@link #nodeArity}
+         * @return the child
+         */
+        abstract Node nodeAt(int i);
+
+        /**
+         * Returns the value of a key in the subtrie rooted at this node.
+         *
+         * @param key a key
+         * @param hash the hash code of {@code key}
+         * @param shift the number of bits of the hash code that the ancestors of this node consumed
+         * @return the value of {@code key}, or {@link #NOT_FOUND}
+         */
+        abstract @Nullable Object find(@Nullable Object key, int hash, int shift);
+
+        /**
+         * Maps a key to a value in the subtrie rooted at this node.
+         *
+         * @param key a key
+         * @param value the new value of {@code key}
+         * @param hash the hash code of {@code key}
+         * @param shift the number of bits of the hash code that the ancestors of this node consumed
+         * @param change records the old value of {@code key}
+         * @return the new subtrie
+         */
+        abstract Node put(
+                @Nullable Object key, @Nullable Object value, int hash, int shift, Change change);
+
+        /**
+         * Removes a key from the subtrie rooted at this node.
+         *
+         * @param key a key
+         * @param hash the hash code of {@code key}
+         * @param shift the number of bits of the hash code that the ancestors of this node consumed
+         * @param change records the old value of {@code key}
+         * @return the new subtrie
+         */
+        abstract Node remove(@Nullable Object key, int hash, int shift, Change change);
+
+        /**
+         * Returns true if the subtrie rooted at this node contains every entry of the subtrie
+         * rooted at {@code other}.
+         *
+         * @param other a node at the same level as this node
+         * @param shift the number of bits of the hash code that the ancestors of the nodes consumed
+         * @return true if this subtrie contains every entry of {@code other}
+         */
+        abstract boolean containsAll(Node other, int shift);
+
+        /**
+         * Returns the intersection of the subtries rooted at this node and {@code other}.
+         *
+         * @param other a node at the same level as this node
+         * @param shift the number of bits of the hash code that the ancestors of the nodes consumed
+         * @param merge computes the value of a key that is in both subtries
+         * @return the intersection, in canonical form; {@code this} if it has the same entries
+         * @see PersistentHashMap#intersect
+         */
+        abstract Node intersect(
+                Node other, int shift, BiFunction<Object, Object, @Nullable Object> merge);
+
+        /**
+         * Returns true if this node holds a single entry and no children, so that its parent
+         * should hold the entry directly.
+         *
+         * @return true if this node holds a single entry and no children
+         */
+        final boolean isSingleEntry() {
+            return size() == 1;
+        }
+    }
+
+    /**
+     * A node that distinguishes its entries and children by {@link #BITS_PER_LEVEL} bits of their
+     * hash codes. The entries come first in {@link #content}, as alternating keys and values,
+     * followed by the children.
+     */
+    private static final class BitmapNode extends Node {
+
+        /** The empty trie. */
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0], 0);
+
+        /** The bits of the entries that this node holds directly. */
+        final int dataMap;
+
+        /** The bits of the children of this node. */
+        final int nodeMap;
+
+        /** The keys and values of the entries, followed by the children. */
+        final @Nullable Object[] content;
+
+        /** The number of entries in the subtrie rooted at this node. */
+        final int size;
+
+        /**
+         * Creates a new BitmapNode.
+         *
+         * @param dataMap the bits of the entries that the node holds directly
+         * @param nodeMap the bits of the children of the node
+         * @param content the keys and values of the entries, followed by the children
+         * @param size the number of entries in the subtrie rooted at the node
+         */
+        BitmapNode(int dataMap, int nodeMap, @Nullable Object[] content, int size) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+            this.size = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int dataArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        @Nullable Object keyAt(int i) {
+            return content[2 * i];
+        }
+
+        @Override
+        @Nullable Object valueAt(int i) {
+            return content[2 * i + 1];
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            return (Node) content[2 * dataArity() + i];
+        }
+
+        /**
+         * Returns the child at the given bit.
+         *
+         * @param bit a bit of {@link #nodeMap}
+         * @return the child at {@code bit}
+         */
+        Node nodeAtBit(int bit) {
+            return nodeAt(index(nodeMap, bit));
+        }
+
+        @Override
+        @Nullable Object find(@Nullable Object key, int hash, int shift) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                return Objects.equals(keyAt(i), key) ? valueAt(i) : NOT_FOUND;
+            } else if ((nodeMap & bit) != 0) {
+                return nodeAtBit(bit).find(key, hash, shift + BITS_PER_LEVEL);
+            } else {
+                return NOT_FOUND;
+            }
+        }
+
+        @Override
+        Node put(@Nullable Object key, @Nullable Object value, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                Object oldKey = keyAt(i);
+                Object oldValue = valueAt(i);
+                if (Objects.equals(oldKey, key)) {
+                    change.found(oldValue);
+                    if (oldValue == value) {
+                        return this;
+                    }
+                    @Nullable Object[] newContent = content.clone();
+                    newContent[2 * i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, newContent, size);
+                }
+                // Replace the entry by a child that holds both entries.
+                int childShift = shift + BITS_PER_LEVEL;
+                Node child = pair(oldKey, oldValue, hash(oldKey), key, value, hash, childShift);
+                int dataArity = dataArity();
+                int j = index(nodeMap, bit);
+                @Nullable Object[] newContent = new Object[content.length - 1];
+                System.arraycopy(content, 0, newContent, 0, 2 * i);
+                System.arraycopy(
+                        content, 2 * i + 2, newContent, 2 * i, 2 * (dataArity - i - 1) + j);
+                newContent[2 * (dataArity - 1) + j] = child;
+                System.arraycopy(
+                        content,
+                        2 * dataArity + j,
+                        newContent,
+                        2 * (dataArity - 1) + j + 1,
+                        content.length - 2 * dataArity - j);
+                return new BitmapNode(dataMap ^ bit, nodeMap | bit, newContent, size + 1);
+            } else if ((nodeMap & bit) != 0) {
+                Node child = nodeAtBit(bit);
+                Node newChild = child.put(key, value, hash, shift + BITS_PER_LEVEL, change);
+                if (newChild == child) {
+                    return this;
+                }
+                @Nullable Object[] newContent = content.clone();
+                newContent[2 * dataArity() + index(nodeMap, bit)] = newChild;
+                return new BitmapNode(
+                        dataMap, nodeMap, newContent, size - child.size() + newChild.size());
+            } else {
+                int i = index(dataMap, bit);
+                @Nullable Object[] newContent = new Object[content.length + 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * i);
+                newContent[2 * i] = key;
+                newContent[2 * i + 1] = value;
+                System.arraycopy(content, 2 * i, newContent, 2 * i + 2, content.length - 2 * i);
+                return new BitmapNode(dataMap | bit, nodeMap, newContent, size + 1);
+            }
+        }
+
+        @Override
+        Node remove(@Nullable Object key, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                if (!Objects.equals(keyAt(i), key)) {
+                    return this;
+                }
+                change.found(valueAt(i));
+                @Nullable Object[] newContent = new Object[content.length - 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * i);
+                System.arraycopy(content, 2 * i + 2, newContent, 2 * i, content.length - 2 * i - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, newContent, size - 1);
+            } else if ((nodeMap & bit) != 0) {
+                Node child = nodeAtBit(bit);
+                Node newChild = child.remove(key, hash, shift + BITS_PER_LEVEL, change);
+                if (newChild == child) {
+                    return this;
+                }
+                if (!newChild.isSingleEntry()) {
+                    @Nullable Object[] newContent = content.clone();
+                    newContent[2 * dataArity() + index(nodeMap, bit)] = newChild;
+                    return new BitmapNode(dataMap, nodeMap, newContent, size - 1);
+                }
+                if (shift != 0 && size == 2) {
+                    // This node is left with a single entry, which its parent will hold directly.
+                    return newChild;
+                }
+                // Hold the remaining entry of the child directly.
+                int dataArity = dataArity();
+                int i = index(dataMap, bit);
+                int j = index(nodeMap, bit);
+                @Nullable Object[] newContent = new Object[content.length + 1];
+                System.arraycopy(content, 0, newContent, 0, 2 * i);
+                newContent[2 * i] = newChild.keyAt(0);
+                newContent[2 * i + 1] = newChild.valueAt(0);
+                System.arraycopy(content, 2 * i, newContent, 2 * i + 2, 2 * (dataArity - i) + j);
+                System.arraycopy(
+                        content,
+                        2 * dataArity + j + 1,
+                        newContent,
+                        2 * (dataArity + 1) + j,
+                        content.length - 2 * dataArity - j - 1);
+                return new BitmapNode(dataMap | bit, nodeMap ^ bit, newContent, size - 1);
+            } else {
+                return this;
+            }
+        }
+
+        @Override
+        boolean containsAll(Node other, int shift) {
+            if (this == other) {
+                return true;
+            }
+            if (other.size() > size) {
+                return false;
+            }
+            BitmapNode that = (BitmapNode) other;
+            for (int i = 0; i < that.dataArity(); i++) {
+                Object key = that.keyAt(i);
+                Object value = find(key, hash(key), shift);
+                if (value == NOT_FOUND || !Objects.equals(value, that.valueAt(i))) {
+                    return false;
+                }
+            }
+            // In canonical form, a child holds at least two entries, so the corresponding part of
+            // this node must be a child too.
+            if ((that.nodeMap & ~nodeMap) != 0) {
+                return false;
+            }
+            for (int remaining = that.nodeMap; remaining != 0; remaining &= remaining - 1) {
+                int bit = Integer.lowestOneBit(remaining);
+                if (!nodeAtBit(bit).containsAll(that.nodeAtBit(bit), shift + BITS_PER_LEVEL)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Node intersect(Node other, int shift, BiFunction<Object, Object, @Nullable Object> merge) {
+            BitmapNode that = (BitmapNode) other;
+            int newDataMap = 0;
+            int newNodeMap = 0;
+            int newSize = 0;
+            // If the result holds a single entry, its parent will hold the entry directly.
+            @Nullable Object[] entries = new Object[2 * Integer.SIZE];
+            Node[] children = new Node[Integer.SIZE];
+            int dataCount = 0;
+            int nodeCount = 0;
+            int common = (dataMap | nodeMap) & (that.dataMap | that.nodeMap);
+            // Whether the result has the same entries and children as this node, so far.
+            boolean unchanged = common == (dataMap | nodeMap);
+            for (int remaining = common; remaining != 0; remaining &= remaining - 1) {
+                int bit = Integer.lowestOneBit(remaining);
+                Object key;
+                Object value;
+                if ((nodeMap & bit) != 0 && (that.nodeMap & bit) != 0) {
+                    Node thisChild = nodeAtBit(bit);
+                    Node child =
+                            thisChild.intersect(that.nodeAtBit(bit), shift + BITS_PER_LEVEL, merge);
+                    if (child != thisChild) {
+                        unchanged = false;
+                    }
+                    if (child.size() == 0) {
+                        continue;
+                    } else if (!child.isSingleEntry()) {
+                        newNodeMap |= bit;
+                        children[nodeCount++] = child;
+                        newSize += child.size();
+                        continue;
+                    }
+                    key = child.keyAt(0);
+                    value = child.valueAt(0);
+                } else {
+                    // At least one side holds a single entry at this bit.
+                    Object thisValue;
+                    Object thatValue;
+                    if ((dataMap & bit) != 0) {
+                        int i = index(dataMap, bit);
+                        key = keyAt(i);
+                        thisValue = valueAt(i);
+                        thatValue = that.find(key, hash(key), shift);
+                    } else {
+                        unchanged = false;
+                        int i = index(that.dataMap, bit);
+                        key = that.keyAt(i);
+                        thatValue = that.valueAt(i);
+                        thisValue = find(key, hash(key), shift);
+                    }
+                    if (thisValue == NOT_FOUND || thatValue == NOT_FOUND) {
+                        unchanged = false;
+                        continue;
+                    }
+                    value = mergeValues(merge, thisValue, thatValue);
+                    // A null result omits the key, even if its value in this map is null.
+                    if (value != thisValue || value == null) {
+                        unchanged = false;
+                    }
+                    if (value == null) {
+                        continue;
+                    }
+                }
+                newDataMap |= bit;
+                entries[2 * dataCount] = key;
+                entries[2 * dataCount + 1] = value;
+                dataCount++;
+                newSize++;
+            }
+            if (unchanged) {
+                return this;
+            }
+            @Nullable Object[] newContent = new Object[2 * dataCount + nodeCount];
+            System.arraycopy(entries, 0, newContent, 0, 2 * dataCount);
+            System.arraycopy(children, 0, newContent, 2 * dataCount, nodeCount);
+            return new BitmapNode(newDataMap, newNodeMap, newContent, newSize);
+        }
+    }
+
+    /**
+     * A node that holds entries whose keys have the same hash code. Such nodes only occur below
+     * the level that consumes the last bits of the hash code.
+     */
+    private static final class CollisionNode extends Node {
+
+        /** The hash code of the keys of the entries. */
+        final int hash;
+
+        /** The keys and values of the entries, alternating. */
+        final @Nullable Object[] content;
+
+        /**
+         * Creates a new CollisionNode.
+         *
+         * @param hash the hash code of the keys of the entries
+         * @param content the keys and values of the entries, alternating
+         */
+        CollisionNode(int hash, @Nullable Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        @Override
+        int size() {
+            return content.length / 2;
+        }
+
+        @Override
+        int dataArity() {
+            return content.length / 2;
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        @Nullable Object keyAt(int i) {
+            return content[2 * i];
+        }
+
+        @Override
+        @Nullable Object valueAt(int i) {
+            return content[2 * i + 1];
+        }
+
+        @Override
+        Node nodeAt(int i) {
+            throw new IndexOutOfBoundsException("CollisionNode has no children");
+        }
+
+        /**
+         * Returns the index of the entry with the given key.
+         *
+         * @param key a key
+         * @return the index of the entry with {@code key}, or -1
+         */
+        int indexOf(@Nullable Object key) {
+            for (int i = 0; i < size(); i++) {
+                if (Objects.equals(keyAt(i), key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        @Nullable Object find(@Nullable Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i == -1 ? NOT_FOUND : valueAt(i);
+        }
+
+        @Override
+        Node put(@Nullable Object key, @Nullable Object value, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i == -1) {
+                @Nullable Object[] newContent = Arrays.copyOf(content, content.length + 2);
+                newContent[content.length] = key;
+                newContent[content.length + 1] = value;
+                return new CollisionNode(hash, newContent);
+            }
+            change.found(valueAt(i));
+            if (valueAt(i) == value) {
+                return this;
+            }
+            @Nullable Object[] newContent = content.clone();
+            newContent[2 * i + 1] = value;
+            return new CollisionNode(hash, newContent);
+        }
+
+        @Override
+        Node remove(@Nullable Object key, int hash, int shift, Change change) {
+            int i = indexOf(key);
+            if (i == -1) {
+                return this;
+            }
+            change.found(valueAt(i));
+            @Nullable Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, 2 * i);
+            System.arraycopy(content, 2 * i + 2, newContent, 2 * i, content.length - 2 * i - 2);
+            return new CollisionNode(hash, newContent);
+        }
+
+        @Override
+        boolean containsAll(Node other, int shift) {
+            if (this == other) {
+                return true;
+            }
+            for (int i = 0; i < other.dataArity(); i++) {
+                Object value = find(other.keyAt(i), hash, shift);
+                if (value == NOT_FOUND || !Objects.equals(value, other.valueAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Node intersect(Node other, int shift, BiFunction<Object, Object, @Nullable Object> merge) {
+            @Nullable Object[] newContent = new Object[content.length];
+            int count = 0;
+            boolean unchanged = true;
+            for (int i = 0; i < size(); i++) {
+                Object thatValue = other.find(keyAt(i), hash, shift);
+                if (thatValue == NOT_FOUND) {
+                    unchanged = false;
+                    continue;
+                }
+                Object thisValue = valueAt(i);
+                Object value = mergeValues(merge, thisValue, thatValue);
+                if (value != thisValue || value == null) {
+                    unchanged = false;
+                }
+                if (value != null) {
+                    newContent[2 * count] = keyAt(i);
+                    newContent[2 * count + 1] = value;
+                    count++;
+                }
+            }
+            if (unchanged) {
+                return this;
+            }
+            return new CollisionNode(hash, Arrays.copyOf(newContent, 2 * count));
+        }
+    }
+
+    /**
+     * Merges the values of a key that is in two maps.
+     *
+     * @param merge computes the value of a key that is in both maps
+     * @param thisValue the value in the first map
+     * @param thatValue the value in the second map
+     * @return {@code thisValue} if the merged value is equal to it, otherwise the merged value
+     */
+    private static @Nullable Object mergeValues(
+            BiFunction<Object, Object, @Nullable Object> merge,
+            @Nullable Object thisValue,
+            @Nullable Object thatValue) {
+        Object value = merge.apply(thisValue, thatValue);
+        return Objects.equals(value, thisValue) ? thisValue : value;
+    }
+
+    /**
+     * Returns a subtrie that holds two entries whose keys differ.
+     *
+     * @param key1 the first key
+     * @param value1 the value of the first key
+     * @param hash1 the hash code of the first key
+     * @param key2 the second key
+     * @param value2 the value of the second key
+     * @param hash2 the hash code of the second key
+     * @param shift the number of bits of the hash codes that the ancestors of the subtrie consumed
+     * @return a subtrie that holds both entries
+     */
+    private static Node pair(
+            @Nullable Object key1,
+            @Nullable Object value1,
+            int hash1,
+            @Nullable Object key2,
+            @Nullable Object value2,
+            int hash2,
+            int shift) {
+        if (shift >= Integer.SIZE) {
+            return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        }
+        int bit1 = bitpos(hash1, shift);
+        int bit2 = bitpos(hash2, shift);
+        if (bit1 == bit2) {
+            Node child = pair(key1, value1, hash1, key2, value2, hash2, shift + BITS_PER_LEVEL);
+            return new BitmapNode(0, bit1, new Object[] {child}, 2);
+        }
+        Object[] content =
+                Integer.compareUnsigned(bit1, bit2) < 0
+                        ? new Object[] {key1, value1, key2, value2}
+                        : new Object[] {key2, value2, key1, value1};
+        return new BitmapNode(bit1 | bit2, 0, content, 2);
+    }
+
+    /**
+     * Iterates over the entries of a trie, in depth-first order. The entries can be removed from or
+     * updated in the map through the iterator.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        /** The nodes on the path from the root to the current node. */
+        private final Node[] path = new Node[MAX_DEPTH];
+
+        /** For each node on {@link #path}, the index of the next child to visit. */
+        private final int[] nextChild = new int[MAX_DEPTH];
+
+        /** The index of the current node in {@link #path}. */
+        private int depth = 0;
+
+        /** The index of the next entry of the current node. */
+        private int nextEntry = 0;
+
+        /** The key of the entry that {@link #next} returned last, or {@link #NOT_FOUND}. */
+        private @Nullable Object lastKey = NOT_FOUND;
+
+        /**
+         * Creates a new EntryIterator.
+         *
+         * @param root the root of the trie
+         */
+        EntryIterator(Node root) {
+            path[0] = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextEntry >= path[depth].dataArity()) {
+                while (nextChild[depth] >= path[depth].nodeArity()) {
+                    if (depth == 0) {
+                        return false;
+                    }
+                    depth--;
+                }
+                Node child = path[depth].nodeAt(nextChild[depth]++);
+                depth++;
+                path[depth] = child;
+                nextChild[depth] = 0;
+                nextEntry = 0;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked") // only keys of type K and values of type V are stored
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = path[depth];
+            K key = (K) node.keyAt(nextEntry);
+            V value = (V) node.valueAt(nextEntry);
+            nextEntry++;
+            lastKey = key;
+            return new SimpleEntry<K, V>(key, value) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public V setValue(V newValue) {
+                    PersistentHashMap.this.put(key, newValue);
+                    return super.setValue(newValue);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == NOT_FOUND) {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(lastKey);
+            lastKey = NOT_FOUND;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package org.checkerframework.javacutil;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cache that evicts its least recently used entries when either the number of entries or their
+ * total weight exceeds a bound. The weight of each value is computed once, when it is put in the
+ * cache, by a client-supplied function; for example, a cache of annotated types can weigh each
+ * type by its number of nodes so that a few huge types do not crowd out many small ones.
+ *
+ * <p>The entries are kept in a {@link LinkedHashMap} in access order, and the cache keeps a
+ * running total of their weights. When a bound is exceeded, the cache evicts the least recently
+ * used entries, one at a time, until it is within both bounds again. A value that alone weighs
+ * more than the weight bound is not cached at all. A cache whose values all weigh 1 and whose
+ * weight bound equals its size bound therefore behaves like a {@link LinkedHashMap} that evicts its
+ * eldest entry whenever it exceeds its size.
+ *
+ * <p>{@link #entrySet}, {@link #keySet}, and {@link #values} are views backed by the cache:
+ * removing an element from a view, or through an iterator of a view, removes the entry from the
+ * cache. Setting the value of an entry of {@link #entrySet} updates the total weight, but does not
+ * evict other entries until the next {@link #put}.
+ *
+ * <p>All methods of the cache synchronize on the cache. As with {@link
+ * java.util.Collections#synchronizedMap}, a client that iterates over a view while other threads
+ * use the cache must hold the lock on the cache. Note that {@link #get} changes the order of
+ * iteration, because it makes the entry the most recently used one.
+ *
+ * <p>The cache counts hits and misses of {@link #get}, and evictions.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see CollectionUtils#createLRUCache(int, long, ToIntFunction)
+ */
+public class WeightedLRUCache<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * A cached value, with its weight.
+     *
+     * @param <V> the type of the value
+     */
+    private static final class Node<V> {
+        /** The cached value. */
+        final V value;
+        /** The weight of {@link #value}. */
+        final int weight;
+
+        /**
+         * Creates a new Node.
+         *
+         * @param value the cached value
+         * @param weight the weight of {@code value}
+         */
+        Node(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /** The maximum number of entries. */
+    private final int maxSize;
+
+    /** The maximum total weight of the entries. */
+    private final long maxWeight;
+
+    /** Computes the weight of a value. */
+    private final ToIntFunction<? super V> weigher;
+
+    /** The entries, from the least recently used to the most recently used. */
+    private final LinkedHashMap<K, Node<V>> map;
+
+    /** The total weight of the entries in {@link #map}. */
+    private long totalWeight = 0;
+
+    /** The number of calls to {@link #get} that found a value. */
+    private long hitCount = 0;
+
+    /** The number of calls to {@link #get} that did not find a value. */
+    private long missCount = 0;
+
+    /** The number of entries evicted, including values too heavy to be cached. */
+    private long evictionCount = 0;
+
+    /** The view returned by {@link #entrySet}, or null if it has not been created yet. */
+    private @Nullable Set<Map.Entry<K, V>> entrySet = null;
+
+    /**
+     * Creates a new WeightedLRUCache.
+     *
+     * @param maxSize the maximum number of entries
+     * @param maxWeight the maximum total weight of the entries
+     * @param weigher computes the weight of a value; must return a non-negative number
+     */
+    public WeightedLRUCache(int maxSize, long maxWeight, ToIntFunction<? super V> weigher) {
+        if (maxSize < 0 || maxWeight < 0) {
+            throw new BugInCF(
+                    "WeightedLRUCache: negative bound: maxSize=%d maxWeight=%d",
+                    maxSize, maxWeight);
+        }
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.map = new LinkedHashMap<>(16, .75F, true);
+    }
+
+    @Override
+    public synchronized @Nullable V get(@Nullable Object key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return node.value;
+    }
+
+    @Override
+    public synchronized boolean containsKey(@Nullable Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public synchronized @Nullable V put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        Node<V> old;
+        if (weight > maxWeight) {
+            old = map.remove(key);
+            evictionCount++;
+        } else {
+            old = map.put(key, new Node<>(value, weight));
+            totalWeight += weight;
+        }
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+        evict();
+        return old == null ? null : old.value;
+    }
+
+    @Override
+    public synchronized @Nullable V remove(@Nullable Object key) {
+        Node<V> old = map.remove(key);
+        if (old == null) {
+            return null;
+        }
+        totalWeight -= old.weight;
+        return old.value;
+    }
+
+    @Override
+    public synchronized void clear() {
+        map.clear();
+        totalWeight = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return map.size();
+    }
+
+    @Override
+    public synchronized Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is within both of its bounds. Must be
+     * called while holding the lock on {@code this}.
+     */
+    private void evict() {
+        Iterator<Node<V>> eldest = map.values().iterator();
+        while ((map.size() > maxSize || totalWeight > maxWeight) && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /** The view returned by {@link #entrySet}. */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return WeightedLRUCache.this.size();
+        }
+
+        @Override
+        public void clear() {
+            WeightedLRUCache.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            Iterator<Map.Entry<K, Node<V>>> iterator = map.entrySet().iterator();
+            return new Iterator<Map.Entry<K, V>>() {
+                /** The entry last returned by {@link #next}, or null. */
+                private Map.@Nullable Entry<K, Node<V>> current = null;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<K, V> next() {
+                    current = iterator.next();
+                    return new Entry(current);
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    synchronized (WeightedLRUCache.this) {
+                        iterator.remove();
+                        totalWeight -= current.getValue().weight;
+                        current = null;
+                    }
+                }
+            };
+        }
+    }
+
+    /** An entry of {@link #entrySet}, which writes through to the underlying entry. */
+    private final class Entry implements Map.Entry<K, V> {
+
+        /** The underlying entry. */
+        private final Map.Entry<K, Node<V>> entry;
+
+        /**
+         * Creates a new Entry.
+         *
+         * @param entry the underlying entry
+         */
+        Entry(Map.Entry<K, Node<V>> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public K getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public V getValue() {
+            return entry.getValue().value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            int weight = weigher.applyAsInt(value);
+            synchronized (WeightedLRUCache.this) {
+                Node<V> old = entry.setValue(new Node<>(value, weight));
+                totalWeight += weight - old.weight;
+                return old.value;
+            }
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), other.getKey())
+                    && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * Returns the total weight of the entries.
+     *
+     * @return the total weight of the entries
+     */
+    public synchronized long getWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get} that found a value.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of calls to {@link #get} that did not find a value.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of entries evicted, including values that were too heavy to be cached.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns a one-line summary of the size and statistics of this cache.
+     *
+     * @return a summary of the size and statistics of this cache
+     */
+    public synchronized String getStatistics() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return String.format(
+                "size=%d/%d weight=%d/%d hits=%d misses=%d hitRate=%.1f%% evictions=%d",
+                size(),
+                maxSize,
+                getWeight(),
+                maxWeight,
+                hits,
+                getMissCount(),
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+                getEvictionCount());
+    }
+}